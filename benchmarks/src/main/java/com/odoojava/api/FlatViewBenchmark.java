@@ -0,0 +1,74 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.odoojava.api.helpers.FlatViewHelper;
+import com.odoojava.api.helpers.FlatViewHelper.FlatViewField;
+import com.odoojava.api.helpers.FlatViewHelper.FlatViewFieldCollection;
+
+/**
+ * Flattens rows through FlatViewHelper.getRowValue, as an export to a table
+ * does. Rows are built once and reused round robin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FlatViewBenchmark {
+
+	@Param({ "50", "300" })
+	public int fieldCount;
+
+	@Param({ "10000", "1000000" })
+	public int rowCount;
+
+	private FlatViewFieldCollection flatFields;
+	private Row[] pool;
+
+	@Setup
+	public void setUp() throws Exception {
+		SyntheticModel model = new SyntheticModel(fieldCount);
+		FieldCollection fields = model.adapter.getFields();
+		flatFields = FlatViewHelper.getFields(SyntheticModel.MODEL_NAME, fields);
+		pool = new Row[Math.min(RowBenchmark.POOL_SIZE, rowCount)];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = new Row(model.serverRecord(i + 1), fields);
+	}
+
+	@Benchmark
+	public void getRowValues(Blackhole blackhole) {
+		for (int i = 0; i < rowCount; i++) {
+			Row row = pool[i % pool.length];
+			for (FlatViewField field : flatFields)
+				blackhole.consume(FlatViewHelper.getRowValue(row, field));
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the CPU time and heap allocation of the client while it runs
+ * against a FakeOdooServer in the same JVM.
+ *
+ * The client work runs on threads that may end before they can be measured,
+ * like the chunk threads of an import, so process totals are taken and the
+ * use of the server threads, which are pooled and outlive a run, is
+ * subtracted. Allocation is derived from the heap use and the bytes freed by
+ * the collector. Work of the JIT and GC threads is counted for the client, so
+ * the numbers are approximate.
+ */
+final class ResourceMeter {
+
+	private static final String[] SERVER_THREAD_PREFIXES = { "fake-odoo-server", "HTTP-Dispatcher" };
+
+	private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+	private final AtomicLong collectedBytes = new AtomicLong();
+
+	private long startCpu;
+	private long startHeap;
+	private long startCollected;
+	private Map<Long, long[]> startServerThreads;
+
+	static final class Usage {
+		final long cpuNanos;
+		final long allocatedBytes;
+
+		Usage(long cpuNanos, long allocatedBytes) {
+			this.cpuNanos = cpuNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+	}
+
+	ResourceMeter() {
+		threads.setThreadAllocatedMemoryEnabled(true);
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).addNotificationListener(this::collected, null, null);
+		}
+	}
+
+	private void collected(Notification notification, Object handback) {
+		if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+			return;
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+		long freed = 0;
+		Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+		for (Map.Entry<String, MemoryUsage> before : info.getGcInfo().getMemoryUsageBeforeGc().entrySet())
+			freed += before.getValue().getUsed() - after.get(before.getKey()).getUsed();
+		collectedBytes.addAndGet(freed);
+	}
+
+	void start() {
+		startServerThreads = serverThreads();
+		startCollected = collectedBytes.get();
+		startHeap = heapUsed();
+		startCpu = os.getProcessCpuTime();
+	}
+
+	Usage stop() {
+		long cpu = os.getProcessCpuTime() - startCpu;
+		long allocated = heapUsed() - startHeap + collectedBytes.get() - startCollected;
+		for (Map.Entry<Long, long[]> thread : serverThreads().entrySet()) {
+			long[] start = startServerThreads.get(thread.getKey());
+			cpu -= thread.getValue()[0] - (start == null ? 0 : start[0]);
+			allocated -= thread.getValue()[1] - (start == null ? 0 : start[1]);
+		}
+		return new Usage(Math.max(0, cpu), Math.max(0, allocated));
+	}
+
+	private static long heapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private Map<Long, long[]> serverThreads() {
+		Map<Long, long[]> usage = new HashMap<Long, long[]>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			for (String prefix : SERVER_THREAD_PREFIXES) {
+				if (thread.getName().startsWith(prefix)) {
+					long id = thread.getId();
+					usage.put(id, new long[] { threads.getThreadCpuTime(id), threads.getThreadAllocatedBytes(id) });
+				}
+			}
+		}
+		return usage;
+	}
+}
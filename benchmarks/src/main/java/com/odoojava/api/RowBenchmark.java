@@ -0,0 +1,85 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Wraps server records in Rows and reads every field, as a caller iterating a
+ * RowCollection does. Records are taken round robin from a pool so that the
+ * large row counts don't have to be held in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RowBenchmark {
+
+	static final int POOL_SIZE = 10000;
+
+	@Param({ "50", "300" })
+	public int fieldCount;
+
+	@Param({ "10000", "1000000" })
+	public int rowCount;
+
+	private SyntheticModel model;
+	private FieldCollection fields;
+	private HashMap<String, Object>[] pool;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		model = new SyntheticModel(fieldCount);
+		fields = model.adapter.getFields();
+		pool = new HashMap[Math.min(POOL_SIZE, rowCount)];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = model.serverRecord(i + 1);
+	}
+
+	@Benchmark
+	public void createAndReadRows(Blackhole blackhole) throws OdooApiException {
+		for (int i = 0; i < rowCount; i++) {
+			Row row = new Row(pool[i % pool.length], fields);
+			for (Field field : fields)
+				blackhole.consume(row.get(field));
+		}
+	}
+
+	@Benchmark
+	public void readRowsByName(Blackhole blackhole) throws OdooApiException {
+		String[] names = model.fieldNames;
+		for (int i = 0; i < rowCount; i++) {
+			Row row = new Row(pool[i % pool.length], fields);
+			for (String name : names)
+				blackhole.consume(row.get(name));
+		}
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs read, write and import scenarios through Session and ObjectAdapter
+ * against a FakeOdooServer with injected latency, and prints rows per second,
+ * call latency percentiles, bytes on the wire and the CPU time and allocation
+ * of the client for each.
+ *
+ *		java -cp target/benchmarks.jar com.odoojava.api.ScenarioBenchmark latency=2 rows=20000
+ *
+ * Arguments, all optional, as name=value:
+ * fields (50), rows (20000), valueSize (32), latency in ms per call (2),
+ * rowLatency in microseconds per row (5), pageSize (2000), writes (1000),
+ * imports (20000), chunkSize of imports (1000), concurrency (4), iterations (3).
+ */
+public class ScenarioBenchmark {
+
+	private static final String MODEL = "bench.order";
+
+	private interface Scenario {
+		/**
+		 * Prepares an iteration, not measured
+		 */
+		void prepare() throws Exception;
+
+		/**
+		 * Runs an iteration
+		 * @return The number of rows read or changed
+		 */
+		int run() throws Exception;
+	}
+
+	private final Map<String, Integer> settings = new HashMap<String, Integer>();
+	private ObjectAdapter adapter;
+	private OdooCommand command;
+	private String[] fieldNames;
+	private RowCollection writeRows;
+	private RowCollection importRows;
+	private int writeCounter = 0;
+
+	public static void main(String[] args) throws Exception {
+		new ScenarioBenchmark(args).run();
+	}
+
+	ScenarioBenchmark(String[] args) {
+		settings.put("fields", 50);
+		settings.put("rows", 20000);
+		settings.put("valueSize", 32);
+		settings.put("latency", 2);
+		settings.put("rowLatency", 5);
+		settings.put("pageSize", 2000);
+		settings.put("writes", 1000);
+		settings.put("imports", 20000);
+		settings.put("chunkSize", 1000);
+		settings.put("concurrency", 4);
+		settings.put("iterations", 3);
+		for (String arg : args) {
+			String[] nameValue = arg.split("=", 2);
+			if (nameValue.length != 2 || !settings.containsKey(nameValue[0]))
+				throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + settings.keySet());
+			settings.put(nameValue[0], Integer.parseInt(nameValue[1]));
+		}
+	}
+
+	private int setting(String name) {
+		return settings.get(name);
+	}
+
+	void run() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel(MODEL, setting("fields"), setting("rows"), setting("valueSize"));
+			server.start();
+			Session session = server.newSession();
+			adapter = session.getObjectAdapter(MODEL);
+			command = new OdooCommand(session);
+			fieldNames = adapter.getFieldNames();
+			InProcessRpcMetrics metrics = new InProcessRpcMetrics();
+			session.setRpcMetrics(metrics);
+			// Latency applies to the measured calls only, not to loading the test data
+			server.setLatencyMillis(setting("latency"));
+			server.setLatencyPerRowMicros(setting("rowLatency"));
+
+			System.out.println("Settings " + settings);
+			System.out.println(String.format("%-22s %12s %9s %9s %7s %10s %10s %10s %12s", "Scenario", "rows/s",
+					"p50 ms", "p99 ms", "calls", "sent KB", "recv KB", "cpu ms", "alloc MB"));
+
+			ResourceMeter meter = new ResourceMeter();
+			for (Map.Entry<String, Scenario> scenario : scenarios().entrySet()) {
+				// One iteration to warm up
+				scenario.getValue().prepare();
+				scenario.getValue().run();
+
+				int rows = 0;
+				long nanos = 0;
+				long cpuNanos = 0;
+				long allocatedBytes = 0;
+				metrics.reset();
+				for (int i = 0; i < setting("iterations"); i++) {
+					scenario.getValue().prepare();
+					System.gc();
+					meter.start();
+					long start = System.nanoTime();
+					rows += scenario.getValue().run();
+					nanos += System.nanoTime() - start;
+					ResourceMeter.Usage usage = meter.stop();
+					cpuNanos += usage.cpuNanos;
+					allocatedBytes += usage.allocatedBytes;
+				}
+
+				System.out.println(String.format("%-22s %12.0f %9.2f %9.2f %7d %10d %10d %10d %12.1f",
+						scenario.getKey(), rows / (nanos / 1e9), metrics.getLatencyMillis(50),
+						metrics.getLatencyMillis(99), metrics.getCallCount(), metrics.getRequestBytes() / 1024,
+						metrics.getResponseBytes() / 1024, cpuNanos / 1000000, allocatedBytes / 1048576.0));
+			}
+		}
+	}
+
+	private Map<String, Scenario> scenarios() {
+		Map<String, Scenario> scenarios = new LinkedHashMap<String, Scenario>();
+		scenarios.put("search + read", new ReadScenario() {
+			@Override
+			public int run() throws Exception {
+				return adapter.searchAndReadObject(all(), fieldNames).size();
+			}
+		});
+		scenarios.put("search_read", new ReadScenario() {
+			@Override
+			public int run() throws Exception {
+				Object[] rows = command.searchReadObject(MODEL, adapter.validateFilters(all()), fieldNames, 0, -1,
+						"id");
+				return new RowCollection(rows, adapter.getFields(fieldNames)).size();
+			}
+		});
+		scenarios.put("paged by id", new ReadScenario() {
+			@Override
+			public int run() throws Exception {
+				int rows = 0;
+				int lastId = 0;
+				while (true) {
+					FilterCollection page = new FilterCollection();
+					page.add("id", ">", lastId);
+					RowCollection pageRows = adapter.searchAndReadObject(page, fieldNames, -1, setting("pageSize"),
+							"id");
+					if (pageRows.isEmpty())
+						return rows;
+					rows += pageRows.size();
+					lastId = pageRows.get(pageRows.size() - 1).getID();
+				}
+			}
+		});
+		scenarios.put("write per row", new WriteScenario() {
+			@Override
+			public int run() throws Exception {
+				for (Row row : writeRows)
+					adapter.writeObject(row, true);
+				return writeRows.size();
+			}
+		});
+		scenarios.put("write batched", new WriteScenario() {
+			@Override
+			public int run() throws Exception {
+				adapter.writeObject(writeRows, true);
+				return writeRows.size();
+			}
+		});
+		scenarios.put("import sequential", new ImportScenario(1));
+		scenarios.put("import parallel", new ImportScenario(setting("concurrency")));
+		return scenarios;
+	}
+
+	private static FilterCollection all() throws OdooApiException {
+		FilterCollection filter = new FilterCollection();
+		filter.add("id", ">", 0);
+		return filter;
+	}
+
+	private abstract class ReadScenario implements Scenario {
+		@Override
+		public void prepare() {
+		}
+	}
+
+	/**
+	 * Changes the same value on every row, so the rows can be written together
+	 */
+	private abstract class WriteScenario implements Scenario {
+		@Override
+		public void prepare() throws Exception {
+			if (writeRows == null)
+				writeRows = adapter.searchAndReadObject(all(), new String[] { "name" }, -1, setting("writes"), "id");
+			writeCounter++;
+			for (Row row : writeRows) {
+				row.changesApplied();
+				row.put("name", "Written " + writeCounter);
+			}
+		}
+	}
+
+	private final class ImportScenario implements Scenario {
+		private final int concurrency;
+
+		ImportScenario(int concurrency) {
+			this.concurrency = concurrency;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			FieldCollection fields = adapter.getFields(new String[] { "name", "x_char_0", "x_integer_1" });
+			importRows = new RowCollection();
+			for (int i = 0; i < setting("imports"); i++) {
+				Row row = adapter.getNewRow(fields);
+				row.put("name", "Imported " + i);
+				row.put("x_char_0", "Value " + i);
+				row.put("x_integer_1", i);
+				importRows.add(row);
+			}
+		}
+
+		@Override
+		public int run() throws Exception {
+			ImportOptions options = new ImportOptions();
+			options.setChunkSize(setting("chunkSize"));
+			options.setMaxConcurrentChunks(concurrency);
+			adapter.importData(importRows, options);
+			return importRows.size();
+		}
+	}
+}
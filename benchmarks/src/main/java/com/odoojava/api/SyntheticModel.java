@@ -0,0 +1,220 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * A wide model with generated field definitions and rows, served by a command
+ * that answers in memory so benchmarks never reach a server. Field types
+ * cycle through the types the adapter converts.
+ */
+final class SyntheticModel {
+
+	static final String MODEL_NAME = "bench.wide.model";
+	static final String TAG_MODEL_NAME = "bench.tag";
+	static final int TAG_COUNT = 20;
+
+	private static final String[] TYPES = { "char", "integer", "float", "boolean", "date", "datetime", "many2one",
+			"many2many", "selection", "text" };
+
+	final int fieldCount;
+	final Map<String, Object> fieldDefinitions = new HashMap<String, Object>();
+	final String[] fieldNames;
+	final ObjectAdapter adapter;
+
+	SyntheticModel(int fieldCount) throws XmlRpcException, OdooApiException {
+		this.fieldCount = fieldCount;
+		this.fieldNames = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			String type = TYPES[i % TYPES.length];
+			String name = "x_" + type + "_" + i;
+			HashMap<String, Object> definition = new HashMap<String, Object>();
+			definition.put("type", type);
+			definition.put("string", "Field " + i);
+			if (type.equals("many2one") || type.equals("many2many"))
+				definition.put("relation", TAG_MODEL_NAME);
+			if (type.equals("selection"))
+				definition.put("selection", new Object[] { new Object[] { "draft", "Draft" },
+						new Object[] { "open", "Open" }, new Object[] { "done", "Done" } });
+			fieldDefinitions.put(name, definition);
+			fieldNames[i] = name;
+		}
+		this.adapter = new ObjectAdapter(new Command(), MODEL_NAME, new Version("10.0"));
+	}
+
+	static String typeOf(String fieldName) {
+		return fieldName.substring(2, fieldName.lastIndexOf('_'));
+	}
+
+	/**
+	 * Returns a record as the server returns it from read
+	 */
+	HashMap<String, Object> serverRecord(int id) {
+		HashMap<String, Object> record = new HashMap<String, Object>(fieldCount * 2);
+		record.put("id", id);
+		for (String fieldName : fieldNames) {
+			Object value;
+			switch (typeOf(fieldName)) {
+			case "integer":
+				value = id;
+				break;
+			case "float":
+				value = id * 1.5;
+				break;
+			case "boolean":
+				value = id % 2 == 0;
+				break;
+			case "date":
+				value = "2018-03-" + (10 + id % 18);
+				break;
+			case "datetime":
+				value = "2018-03-" + (10 + id % 18) + " 10:" + (10 + id % 50) + ":00";
+				break;
+			case "many2one":
+				value = new Object[] { id % TAG_COUNT + 1, "Tag " + (id % TAG_COUNT + 1) };
+				break;
+			case "many2many":
+				value = new Object[] { 1, 2, id % TAG_COUNT + 1 };
+				break;
+			case "selection":
+				value = id % 3 == 0 ? "draft" : "done";
+				break;
+			default:
+				value = fieldName + " value " + id;
+				break;
+			}
+			record.put(fieldName, value);
+		}
+		return record;
+	}
+
+	/**
+	 * Sets client side values on a row, as an import or write job does
+	 * @param forImport Many2many values are passed to imports as a comma separated list of IDs
+	 */
+	void fillRow(Row row, int seed, boolean forImport) throws OdooApiException {
+		for (String fieldName : fieldNames) {
+			Object value;
+			switch (typeOf(fieldName)) {
+			case "integer":
+				value = seed;
+				break;
+			case "float":
+				value = seed * 1.5;
+				break;
+			case "boolean":
+				value = seed % 2 == 0;
+				break;
+			case "date":
+			case "datetime":
+				value = new Date(1520000000000L + seed * 60000L);
+				break;
+			case "many2one":
+				value = seed % TAG_COUNT + 1;
+				break;
+			case "many2many":
+				value = forImport ? "1,2," + (seed % TAG_COUNT + 1) : new Object[] { 1, 2, seed % TAG_COUNT + 1 };
+				break;
+			case "selection":
+				value = seed % 3 == 0 ? "draft" : "done";
+				break;
+			default:
+				value = fieldName + " value " + seed;
+				break;
+			}
+			row.put(fieldName, value);
+		}
+	}
+
+	/**
+	 * Answers the calls of the adapter from memory
+	 */
+	private final class Command extends OdooCommand {
+
+		Command() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			if (TAG_MODEL_NAME.equals(objectName)) {
+				Object[] ids = new Object[TAG_COUNT];
+				for (int i = 0; i < TAG_COUNT; i++)
+					ids[i] = i + 1;
+				return new Response(ids);
+			}
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) {
+			if ("ir.model".equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<String, Object>();
+				row.put("model", MODEL_NAME);
+				return new Object[] { row };
+			}
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++)
+				rows[i] = serverRecord(Integer.parseInt(ids[i].toString()));
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) {
+			return fieldDefinitions;
+		}
+
+		@Override
+		public Object[] nameGet(String objectName, Object[] ids) {
+			Object[] names = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++)
+				names[i] = new Object[] { ids[i], "Tag " + ids[i] };
+			return names;
+		}
+
+		@Override
+		public Map<String, Object> load(String objectName, String[] fieldList, Object[][] rows) {
+			List<Object> ids = new ArrayList<Object>(rows.length);
+			for (int i = 0; i < rows.length; i++)
+				ids.add(i + 1);
+			HashMap<String, Object> result = new HashMap<String, Object>();
+			result.put("ids", ids.toArray());
+			result.put("messages", new Object[0]);
+			return result;
+		}
+
+		@Override
+		public boolean writeObject(String objectName, Object[] ids, Map<String, Object> valueList) {
+			return true;
+		}
+
+		@Override
+		public boolean writeObject(String objectName, int id, Map<String, Object> valueList) {
+			return true;
+		}
+	}
+}
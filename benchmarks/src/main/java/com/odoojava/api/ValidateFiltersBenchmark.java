@@ -0,0 +1,111 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Validates a domain with a filter on every field type and a long "in" list,
+ * once through validateFilters and once by binding a prepared domain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ValidateFiltersBenchmark {
+
+	@Param({ "50", "300" })
+	public int fieldCount;
+
+	@Param({ "1000" })
+	public int inListSize;
+
+	private ObjectAdapter adapter;
+	private FilterCollection filters;
+	private PreparedDomain preparedDomain;
+	private Map<String, Object> parameters;
+
+	@Setup
+	public void setUp() throws Exception {
+		SyntheticModel model = new SyntheticModel(fieldCount);
+		adapter = model.adapter;
+
+		StringBuilder ids = new StringBuilder();
+		for (int i = 1; i <= inListSize; i++)
+			ids.append(i == 1 ? "" : ",").append(i);
+
+		filters = new FilterCollection();
+		FilterCollection parameterized = new FilterCollection();
+		parameters = new HashMap<String, Object>();
+		filters.add("id", "in", ids.toString());
+		parameterized.add("id", "in", PreparedDomain.parameter("ids"));
+		parameters.put("ids", ids.toString());
+		// One filter per field type
+		for (int i = 0; i < 10 && i < model.fieldNames.length; i++) {
+			String fieldName = model.fieldNames[i];
+			Object value = filterValue(SyntheticModel.typeOf(fieldName));
+			filters.add(fieldName, "=", value);
+			parameterized.add(fieldName, "=", PreparedDomain.parameter(fieldName));
+			parameters.put(fieldName, value);
+		}
+		preparedDomain = adapter.prepareDomain(parameterized);
+	}
+
+	private static Object filterValue(String type) {
+		switch (type) {
+		case "integer":
+		case "many2one":
+		case "many2many":
+			return "5";
+		case "float":
+			return "1.5";
+		case "boolean":
+			return "true";
+		case "date":
+			return "2018-03-10";
+		case "datetime":
+			return "2018-03-10 10:00:00";
+		case "selection":
+			return "draft";
+		default:
+			return "value";
+		}
+	}
+
+	@Benchmark
+	public Object[] validateFilters() throws OdooApiException {
+		return adapter.validateFilters(filters);
+	}
+
+	@Benchmark
+	public Object[] bindPreparedDomain() throws OdooApiException {
+		return preparedDomain.bind(parameters);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Formats the changed values of read rows for write through
+ * writeObjectGrouped. The write calls are answered in memory, so the score is
+ * the cost of formatValueForWrite and the grouping of rows with equal values.
+ * All rows are held in memory, run the 100000 row cases with a heap of a few
+ * GB.
+ *
+ * Writing marks the changes of the rows as applied, so every field is marked
+ * as changed again before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriteBenchmark {
+
+	@Param({ "50", "300" })
+	public int fieldCount;
+
+	@Param({ "10000", "100000" })
+	public int rowCount;
+
+	private ObjectAdapter adapter;
+	private RowCollection rows;
+
+	@Setup
+	public void setUp() throws Exception {
+		SyntheticModel model = new SyntheticModel(fieldCount);
+		adapter = model.adapter;
+		FieldCollection fields = adapter.getFields();
+		rows = new RowCollection();
+		for (int i = 0; i < rowCount; i++) {
+			Row row = new Row(model.serverRecord(i + 1), fields);
+			// Every value changes so every field is formatted
+			model.fillRow(row, i + 7, false);
+			rows.add(row);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void markChanged() {
+		for (Row row : rows) {
+			FieldCollection changed = row.getChangedFields();
+			changed.clear();
+			changed.addAll(row.getFields());
+		}
+	}
+
+	@Benchmark
+	public Boolean[] writeChangedValues() throws Exception {
+		return adapter.writeObjectGrouped(rows, true);
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Write-behind buffer for row changes. Rows tracked by the buffer don't have to
+ * be written one by one: changes are collected and written with
+ * ObjectAdapter.writeObjectGrouped(RowCollection, true), which sends rows that
+ * change the same values in a single call. Pending rows are not written in the
+ * order they were changed.
+ *
+ * Repeated edits of a row are coalesced, the row is written once with all its
+ * changed fields. Pending rows are written when:
+ *  - the number of changed rows reaches maxPendingRows,
+ *  - commit() or close() is called.
+ *
+ * There is no time based write. Rows are not thread safe, so a timer thread
+ * could read a row while the caller changes it. Call commit() where the
+ * changes have to be on the server, for example at the end of a request or
+ * before waiting for input.
+ *
+ * Flushes run on the thread that changes the rows. A flush that is triggered
+ * by a row change can not throw, its error is kept and thrown by the next
+ * commit(). Rows that failed stay pending.
+ *
+ * Typical usage:
+ *
+ *     try (ChangeBuffer buffer = new ChangeBuffer(adapter, 500)) {
+ *         buffer.track(rows);
+ *         for (Row row : rows)
+ *             row.put("state", "done");
+ *     }
+ */
+public class ChangeBuffer implements Row.RowChangedListener, AutoCloseable {
+
+	private final ObjectAdapter adapter;
+	private final int maxPendingRows;
+
+	private final Set<Row> trackedRows = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<Row> pendingRows = Collections.newSetFromMap(new IdentityHashMap<>());
+	private Exception flushError;
+	private boolean closed = false;
+
+	/**
+	 * Creates a buffer that writes changed rows in batches of 100, or when
+	 * committed.
+	 * @param adapter Adapter for the model the rows belong to
+	 */
+	public ChangeBuffer(ObjectAdapter adapter) {
+		this(adapter, 100);
+	}
+
+	/**
+	 * @param adapter Adapter for the model the rows belong to
+	 * @param maxPendingRows Number of changed rows that triggers a write
+	 */
+	public ChangeBuffer(ObjectAdapter adapter, int maxPendingRows) {
+		if (maxPendingRows < 1)
+			throw new IllegalArgumentException("maxPendingRows must be at least 1");
+		this.adapter = adapter;
+		this.maxPendingRows = maxPendingRows;
+	}
+
+	/**
+	 * Starts tracking changes on a row. Changes made before the row was tracked
+	 * are included in the next write.
+	 * @param row Row with a database ID
+	 * @throws OdooApiException if the row wasn't saved yet
+	 */
+	public synchronized void track(Row row) throws OdooApiException {
+		if (closed)
+			throw new OdooApiException("Change buffer is closed");
+		if (row.getID() <= 0)
+			throw new OdooApiException("Only rows that exist in the database can be tracked. Use createObject or importData for new rows.");
+
+		if (trackedRows.add(row)) {
+			row.addRowChangedLisener(this);
+			if (!row.getChangedFields().isEmpty())
+				addPending(row);
+		}
+	}
+
+	/**
+	 * Starts tracking changes on all rows in a collection
+	 * @param rows Rows with database IDs
+	 * @throws OdooApiException if a row wasn't saved yet
+	 */
+	public synchronized void track(RowCollection rows) throws OdooApiException {
+		for (Row row : rows)
+			track(row);
+	}
+
+	/**
+	 * Stops tracking a row. Its pending changes are not written.
+	 * @param row
+	 */
+	public synchronized void untrack(Row row) {
+		if (trackedRows.remove(row)) {
+			row.removeRowChangedListener(this);
+			pendingRows.remove(row);
+		}
+	}
+
+	@Override
+	public synchronized void rowChanged(Field fld, Row row) {
+		if (closed || !trackedRows.contains(row))
+			return;
+
+		addPending(row);
+	}
+
+	private void addPending(Row row) {
+		pendingRows.add(row);
+
+		if (pendingRows.size() >= maxPendingRows) {
+			try {
+				flush();
+			} catch (OdooApiException | XmlRpcException e) {
+				flushError = e;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of rows with changes that were not written yet
+	 * @return
+	 */
+	public synchronized int getPendingCount() {
+		return pendingRows.size();
+	}
+
+	/**
+	 * Writes all pending changes to the server
+	 * @throws OdooApiException if this or an earlier automatic write failed
+	 * @throws XmlRpcException
+	 */
+	public synchronized void commit() throws OdooApiException, XmlRpcException {
+		Exception earlierError = flushError;
+		flushError = null;
+
+		flush();
+
+		if (earlierError instanceof XmlRpcException)
+			throw (XmlRpcException) earlierError;
+		if (earlierError != null)
+			throw (OdooApiException) earlierError;
+	}
+
+	/**
+	 * Discards pending changes without writing them. The rows keep their
+	 * changed values.
+	 */
+	public synchronized void clear() {
+		pendingRows.clear();
+		flushError = null;
+	}
+
+	/**
+	 * Commits pending changes and stops tracking all rows
+	 */
+	@Override
+	public synchronized void close() throws OdooApiException, XmlRpcException {
+		if (closed)
+			return;
+		try {
+			commit();
+		} finally {
+			closed = true;
+			for (Row row : trackedRows)
+				row.removeRowChangedListener(this);
+			trackedRows.clear();
+		}
+	}
+
+	private void flush() throws OdooApiException, XmlRpcException {
+		if (pendingRows.isEmpty())
+			return;
+
+		RowCollection rows = new RowCollection();
+		rows.addAll(pendingRows);
+		pendingRows.clear();
+
+		try {
+			adapter.writeObjectGrouped(rows, true);
+		} finally {
+			// Rows that weren't written still have changed fields
+			for (Row row : rows) {
+				if (!row.getChangedFields().isEmpty())
+					pendingRows.add(row);
+			}
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Reads the records of a model that changed since the last read, in pages
+ * ordered by write_date and ID:
+ *
+ *		ChangeFeed feed = new ChangeFeed(adapter, new String[] {"name", "list_price"},
+ *				new FileWatermarkStore(new File("sync.properties")), "product.product");
+ *		RowCollection rows;
+ *		while (!(rows = feed.nextPage()).isEmpty()) {
+ *			process(rows);
+ *			feed.commit();
+ *		}
+ *
+ * The watermark is the second of the write_date of the last record read, with
+ * the IDs of the records read in that second. The server returns write_date to
+ * the second while it may store it more precisely, so the next page searches
+ * whole seconds: write_date from the next second on, or write_date within the
+ * watermark second for the IDs that were not read yet. A sync then only reads
+ * the records that changed, also records read in the watermark second that
+ * changed again later. The IDs are kept across pages until the second changes,
+ * so any number of records changed in one second are paged through.
+ *
+ * The watermark is only stored by commit(), so records of a page that was not
+ * committed are read again by the next sync. Records that are changed by a
+ * transaction that commits after a later change was read are missed, just like
+ * records without a write_date.
+ *
+ * Deleted records don't show up in the feed. findDeleted() looks them up by
+ * comparing the IDs the caller knows with the IDs on the server.
+ */
+public class ChangeFeed {
+
+	/**
+	 * Stores watermarks between syncs
+	 */
+	public interface WatermarkStore {
+		/**
+		 * @param key
+		 * @return The stored watermark, null if there is none
+		 */
+		String load(String key) throws IOException;
+
+		void save(String key, String watermark) throws IOException;
+	}
+
+	private static final String WRITE_DATE = "write_date";
+
+	private final ObjectAdapter adapter;
+	private final String[] fields;
+	private final WatermarkStore store;
+	private final String key;
+	private FilterCollection filter = new FilterCollection();
+	private int pageSize = 1000;
+
+	private String writeDate;
+	private final Set<Object> writeDateIds = new LinkedHashSet<Object>();
+	private boolean loaded = false;
+
+	/**
+	 * @param adapter Adapter for the model to read
+	 * @param fields Fields to read, write_date is always read
+	 * @param store Store for the watermark, null to keep it in memory only
+	 * @param key Key of the watermark in the store
+	 * @throws OdooApiException if the model has no write_date field
+	 */
+	public ChangeFeed(ObjectAdapter adapter, String[] fields, WatermarkStore store, String key) throws OdooApiException {
+		if (!adapter.hasField(WRITE_DATE))
+			throw new OdooApiException("Model has no write_date field");
+
+		LinkedHashSet<String> fieldSet = new LinkedHashSet<String>(Arrays.asList(fields == null ? new String[0] : fields));
+		fieldSet.add(WRITE_DATE);
+		this.adapter = adapter;
+		this.fields = fieldSet.toArray(new String[fieldSet.size()]);
+		this.store = store;
+		this.key = key;
+	}
+
+	/**
+	 * Only reads changed records that satisfy a filter
+	 * @param filter
+	 */
+	public void setFilter(FilterCollection filter) {
+		this.filter = filter == null ? new FilterCollection() : filter;
+	}
+
+	/**
+	 * @param pageSize Maximum number of records returned by nextPage()
+	 */
+	public void setPageSize(int pageSize) {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("pageSize must be greater than 0");
+		this.pageSize = pageSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Reads the next page of changed records and moves the watermark past them
+	 * @return The changed records, empty when all changes were read
+	 * @throws XmlRpcException
+	 * @throws OdooApiException
+	 * @throws IOException if the watermark can't be loaded
+	 */
+	public RowCollection nextPage() throws XmlRpcException, OdooApiException, IOException {
+		load();
+
+		FilterCollection pageFilter = new FilterCollection();
+		for (Object element : filter.getFilters())
+			pageFilter.addElement(element);
+		if (writeDate != null && writeDateIds.isEmpty()) {
+			pageFilter.add(WRITE_DATE, ">=", writeDate);
+		} else if (writeDate != null) {
+			// Records still in the watermark second that were read already are
+			// skipped, records changed again after it are not
+			String nextSecond = nextSecond(writeDate);
+			pageFilter.addElement("|");
+			pageFilter.add(WRITE_DATE, ">=", nextSecond);
+			pageFilter.addElement("&");
+			pageFilter.addElement("&");
+			pageFilter.add(WRITE_DATE, ">=", writeDate);
+			pageFilter.add(WRITE_DATE, "<", nextSecond);
+			pageFilter.add("id", "not in", writeDateIds.toArray());
+		} else {
+			pageFilter.add(WRITE_DATE, "!=", false);
+		}
+
+		RowCollection rows = adapter.searchAndReadUncached(pageFilter, fields, pageSize, "write_date, id");
+		Collections.sort(rows, (a, b) -> {
+			int compare = writeDate(a).compareTo(writeDate(b));
+			return compare != 0 ? compare : Integer.compare(a.getID(), b.getID());
+		});
+
+		for (Row row : rows) {
+			String rowWriteDate = writeDate(row);
+			if (!rowWriteDate.equals(writeDate)) {
+				writeDate = rowWriteDate;
+				writeDateIds.clear();
+			}
+			writeDateIds.add(row.getID());
+		}
+		return rows;
+	}
+
+	/**
+	 * Stores the watermark, so that the records read so far are not read
+	 * again by the next sync
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+		if (store != null && writeDate != null)
+			store.save(key, getWatermark());
+	}
+
+	/**
+	 * Returns the watermark as it is stored
+	 * @return null if nothing was read yet
+	 * @throws IOException if the watermark can't be loaded
+	 */
+	public String getWatermark() throws IOException {
+		load();
+		if (writeDate == null)
+			return null;
+		StringBuilder watermark = new StringBuilder(writeDate).append('|');
+		String separator = "";
+		for (Object id : writeDateIds) {
+			watermark.append(separator).append(id);
+			separator = ",";
+		}
+		return watermark.toString();
+	}
+
+	/**
+	 * Starts reading from a watermark, or from the start with null
+	 * @param watermark Watermark returned by getWatermark()
+	 */
+	public void setWatermark(String watermark) {
+		writeDate = null;
+		writeDateIds.clear();
+		loaded = true;
+		if (watermark == null || watermark.isEmpty())
+			return;
+
+		int separator = watermark.indexOf('|');
+		writeDate = separator < 0 ? watermark : watermark.substring(0, separator);
+		if (separator >= 0) {
+			for (String id : watermark.substring(separator + 1).split(","))
+				if (!id.isEmpty())
+					writeDateIds.add(Integer.parseInt(id));
+		}
+	}
+
+	/**
+	 * Returns the IDs of records that no longer exist on the server. The IDs
+	 * are looked up in chunks of the filter split size of the adapter,
+	 * archived records are not reported as deleted.
+	 * @param knownIds IDs the caller has
+	 * @return The IDs that were deleted, in the order of knownIds
+	 * @throws XmlRpcException
+	 * @throws OdooApiException
+	 */
+	public Object[] findDeleted(Object[] knownIds) throws XmlRpcException, OdooApiException {
+		int chunkSize = adapter.getFilterSplitSize() > 0 ? adapter.getFilterSplitSize() : ObjectAdapter.DEFAULT_FILTER_SPLIT_SIZE;
+		List<Object> deleted = new ArrayList<Object>();
+
+		for (int start = 0; start < knownIds.length; start += chunkSize) {
+			Object[] chunk = Arrays.copyOfRange(knownIds, start, Math.min(knownIds.length, start + chunkSize));
+
+			FilterCollection chunkFilter = new FilterCollection();
+			if (adapter.hasField("active")) {
+				chunkFilter.add(FilterCollection.FilterOperator.OR);
+				chunkFilter.add("active", "=", true);
+				chunkFilter.add("active", "=", false);
+			}
+			chunkFilter.add("id", "in", chunk);
+
+			Set<Integer> found = new HashSet<Integer>();
+			for (Object id : adapter.searchIds(chunkFilter))
+				found.add(Integer.parseInt(id.toString()));
+			for (Object id : chunk)
+				if (!found.contains(Integer.parseInt(id.toString())))
+					deleted.add(id);
+		}
+		return deleted.toArray();
+	}
+
+	private void load() throws IOException {
+		if (!loaded) {
+			setWatermark(store == null ? null : store.load(key));
+		}
+	}
+
+	private static SimpleDateFormat dateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format;
+	}
+
+	/**
+	 * Returns the second of the write_date of a row
+	 */
+	private static String writeDate(Row row) {
+		Object value = row.get(WRITE_DATE);
+		if (value instanceof Date)
+			return dateFormat().format((Date) value);
+		String writeDate = value == null ? "" : value.toString();
+		// Fractions of a second, in case the server returns them
+		return writeDate.length() > 19 ? writeDate.substring(0, 19) : writeDate;
+	}
+
+	private static String nextSecond(String writeDate) throws OdooApiException {
+		SimpleDateFormat format = dateFormat();
+		try {
+			return format.format(new Date(format.parse(writeDate).getTime() + 1000));
+		} catch (ParseException e) {
+			throw new OdooApiException("Invalid watermark write_date " + writeDate, e);
+		}
+	}
+}
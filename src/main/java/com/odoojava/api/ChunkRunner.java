@@ -0,0 +1,152 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Runs a number of independent server calls (chunks) over a bounded number of
+ * threads and returns their results in submission order.
+ *
+ * Chunks are only created by the factory once a slot is free, so at most
+ * maxConcurrent chunks are materialised at any time. The caller blocks while
+ * all slots are busy, which keeps memory bounded for very large jobs.
+ *
+ * The Deadline of the caller applies to every chunk. No new chunk is started
+ * once it has passed.
+ */
+final class ChunkRunner {
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private ChunkRunner() {
+	}
+
+	/**
+	 * Runs chunkCount chunks, at most maxConcurrent at a time.
+	 *
+	 * @param name
+	 *            Name used for the worker threads
+	 * @param chunkCount
+	 *            Number of chunks to run
+	 * @param maxConcurrent
+	 *            Maximum number of chunks in flight. 1 or less runs every chunk
+	 *            on the calling thread.
+	 * @param chunkFactory
+	 *            Creates the call for a chunk index
+	 * @return The chunk results, in chunk index order
+	 * @throws XmlRpcException
+	 * @throws OdooApiException
+	 */
+	static <T> List<T> run(String name, int chunkCount, int maxConcurrent, IntFunction<Callable<T>> chunkFactory)
+			throws XmlRpcException, OdooApiException {
+		List<T> results = new ArrayList<>(chunkCount);
+
+		if (maxConcurrent <= 1 || chunkCount <= 1) {
+			for (int i = 0; i < chunkCount; i++) {
+				Deadline.check(name + " chunk " + (i + 1) + " of " + chunkCount);
+				try {
+					results.add(chunkFactory.apply(i).call());
+				} catch (Exception e) {
+					throw rethrow(e);
+				}
+			}
+			return results;
+		}
+
+		int threads = Math.min(maxConcurrent, chunkCount);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "odoo-" + name + "-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Deadline deadline = Deadline.current();
+		Semaphore slots = new Semaphore(maxConcurrent);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		List<Future<T>> futures = new ArrayList<>(chunkCount);
+		try {
+			// Stop handing out new chunks as soon as one failed
+			for (int i = 0; i < chunkCount && !failed.get(); i++) {
+				String chunkName = name + " chunk " + (i + 1) + " of " + chunkCount;
+				if (deadline == null)
+					slots.acquire();
+				else if (!slots.tryAcquire(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS))
+					throw new DeadlineExceededException("Deadline exceeded before " + chunkName);
+				Deadline.check(chunkName);
+				Callable<T> chunk = chunkFactory.apply(i);
+				futures.add(executor.submit(() -> {
+					try {
+						return Deadline.callWith(deadline, chunk);
+					} catch (Exception e) {
+						failed.set(true);
+						throw e;
+					} finally {
+						slots.release();
+					}
+				}));
+			}
+
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OdooApiException("Interrupted while waiting for " + name + " chunks", e);
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		} finally {
+			// Let chunks that are already on the wire finish before returning
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static OdooApiException rethrow(Throwable cause) throws XmlRpcException {
+		if (cause instanceof XmlRpcException) {
+			throw (XmlRpcException) cause;
+		} else if (cause instanceof OdooApiException) {
+			return (OdooApiException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new OdooApiException(cause);
+	}
+}
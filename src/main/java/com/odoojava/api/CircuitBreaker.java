@@ -0,0 +1,104 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+/**
+ * Tracks the health of one server and stops calls to it while it fails.
+ *
+ * The circuit opens after a number of transient failures in a row. While it is
+ * open every call fails straight away with a CircuitOpenException, so threads
+ * don't pile up waiting on a server that can't answer. Once the open time has
+ * passed one trial call is let through: the circuit closes again when it
+ * succeeds and opens for another period when it fails.
+ */
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String host;
+	private final int failureThreshold;
+	private final long openNanos;
+
+	private State state = State.CLOSED;
+	private int failures;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	/**
+	 * @param host Server the breaker is for, used in messages
+	 * @param failureThreshold Transient failures in a row that open the circuit
+	 * @param openMillis Time the circuit stays open before a trial call is let through
+	 */
+	public CircuitBreaker(String host, int failureThreshold, long openMillis) {
+		this.host = host;
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openNanos = openMillis * 1000000L;
+	}
+
+	/**
+	 * Asks permission to make a call. Every call that is allowed must report
+	 * its outcome with onSuccess or onFailure.
+	 * @throws CircuitOpenException If the circuit is open
+	 */
+	synchronized void acquire() throws CircuitOpenException {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+			state = State.HALF_OPEN;
+			trialInFlight = false;
+		}
+		if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight))
+			throw new CircuitOpenException("Circuit for " + host + " is open after " + failures + " failures");
+		if (state == State.HALF_OPEN)
+			trialInFlight = true;
+	}
+
+	/**
+	 * Reports that the server answered, with a result or a fault
+	 */
+	synchronized void onSuccess() {
+		state = State.CLOSED;
+		failures = 0;
+		trialInFlight = false;
+	}
+
+	/**
+	 * Reports that the server could not be reached or was unavailable
+	 */
+	synchronized void onFailure() {
+		failures++;
+		trialInFlight = false;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+		}
+	}
+
+	public synchronized State getState() {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos)
+			return State.HALF_OPEN;
+		return state;
+	}
+
+	public String getHost() {
+		return host;
+	}
+}
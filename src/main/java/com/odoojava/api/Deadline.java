@@ -0,0 +1,146 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget for all server calls an operation makes:
+ *
+ *		try (Deadline deadline = Deadline.start(30, TimeUnit.SECONDS)) {
+ *			RowCollection rows = adapter.searchAndReadObject(filter, fields);
+ *			adapter.importData(rows, options);
+ *		}
+ *
+ * The deadline applies to the calls made by the thread that started it, and
+ * to the chunks that ObjectAdapter runs on other threads for it, like
+ * parallel imports and split searches. A call that starts after the deadline
+ * fails straight away with a DeadlineExceededException, and the read and
+ * connect timeouts of a call are shortened to the time that is left. Calls
+ * that wait for an identical call of another thread stop waiting when the
+ * deadline passes.
+ *
+ * A deadline started within another one never ends later than the outer one.
+ * Closing a deadline restores the outer one.
+ */
+public final class Deadline implements AutoCloseable {
+
+	private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+	private final long expiresAt;
+	private final Deadline previous;
+
+	private Deadline(long expiresAt, Deadline previous) {
+		this.expiresAt = expiresAt;
+		this.previous = previous;
+	}
+
+	/**
+	 * Starts a deadline for the calls of the current thread
+	 * @param timeout Time the calls may take together
+	 * @param unit
+	 * @return The deadline, close it when the operation is done
+	 */
+	public static Deadline start(long timeout, TimeUnit unit) {
+		Deadline outer = current.get();
+		long expiresAt = System.nanoTime() + unit.toNanos(timeout);
+		if (outer != null && outer.expiresAt - expiresAt < 0)
+			expiresAt = outer.expiresAt;
+		Deadline deadline = new Deadline(expiresAt, outer);
+		current.set(deadline);
+		return deadline;
+	}
+
+	/**
+	 * Returns the deadline of the current thread
+	 * @return null if there is none
+	 */
+	public static Deadline current() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the time that is left
+	 * @param unit
+	 * @return 0 or less once the deadline has passed
+	 */
+	public long getRemaining(TimeUnit unit) {
+		return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return expiresAt - System.nanoTime() <= 0;
+	}
+
+	@Override
+	public void close() {
+		if (previous == null)
+			current.remove();
+		else current.set(previous);
+	}
+
+	/**
+	 * Throws if the deadline of the current thread has passed
+	 * @param what Description of what was about to start, for the message
+	 * @throws DeadlineExceededException
+	 */
+	static void check(String what) throws DeadlineExceededException {
+		Deadline deadline = current.get();
+		if (deadline != null && deadline.isExpired())
+			throw new DeadlineExceededException("Deadline exceeded before " + what);
+	}
+
+	/**
+	 * Returns the time left in milliseconds for a timeout, at least 1
+	 * @param timeoutMillis Configured timeout, 0 for none
+	 * @return The configured timeout if it ends before the deadline of the current thread
+	 */
+	static int limitTimeout(int timeoutMillis) {
+		Deadline deadline = current.get();
+		if (deadline == null)
+			return timeoutMillis;
+		long remaining = Math.max(1, deadline.getRemaining(TimeUnit.MILLISECONDS));
+		if (timeoutMillis > 0 && timeoutMillis <= remaining)
+			return timeoutMillis;
+		return (int) Math.min(Integer.MAX_VALUE, remaining);
+	}
+
+	/**
+	 * Runs a call on the current thread with a deadline of another thread
+	 * @param deadline Deadline to apply, can be null
+	 * @param call
+	 * @return The result of the call
+	 * @throws Exception
+	 */
+	static <T> T callWith(Deadline deadline, Callable<T> call) throws Exception {
+		Deadline saved = current.get();
+		if (deadline == null)
+			current.remove();
+		else current.set(deadline);
+		try {
+			return call.call();
+		} finally {
+			if (saved == null)
+				current.remove();
+			else current.set(saved);
+		}
+	}
+}
@@ -0,0 +1,513 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tree representation of a search domain. A FilterCollection or Object[]
+ * domain is a list in prefix notation:
+ *
+ *		['|', ('state', '=', 'draft'), ('state', '=', 'sent'), ('partner_id', '=', 7)]
+ *
+ * which is parsed to
+ *
+ *		And(Or(state = draft, state = sent), partner_id = 7)
+ *
+ * normalize() returns an equivalent domain in a canonical form, so that two
+ * searches that select the same records in a different notation can be
+ * recognised:
+ *  - nested AND and OR nodes are flattened, duplicate terms removed and
+ *    children sorted,
+ *  - NOT is pushed down to the terms and replaced by the inverse comparison
+ *    where there is one, the same way the Odoo server does it,
+ *  - '=' and 'in' terms on one field under an OR are merged into one 'in'
+ *    term, '!=' and 'not in' terms on one field under an AND into one 'not in'
+ *    term.
+ *
+ * getKey() returns a SHA-256 hash of the normalized domain that can be used as
+ * a cache key. Values are hashed with their type, so 7 and "7" don't collide.
+ *
+ * Domains can't be changed after they are created.
+ */
+public abstract class Domain {
+
+	private static final Map<String, String> NEGATIONS = new HashMap<String, String>();
+
+	static {
+		String[][] pairs = { { "=", "!=" }, { "<", ">=" }, { ">", "<=" }, { "in", "not in" },
+				{ "like", "not like" }, { "ilike", "not ilike" }, { "=like", "not =like" }, { "=ilike", "not =ilike" } };
+		for (String[] pair : pairs) {
+			NEGATIONS.put(pair[0], pair[1]);
+			NEGATIONS.put(pair[1], pair[0]);
+		}
+		NEGATIONS.put("<>", "=");
+	}
+
+	private String canonical;
+
+	Domain() {
+	}
+
+	/**
+	 * Parses a domain in prefix notation, as returned by
+	 * FilterCollection.getFilters() or ObjectAdapter.validateFilters()
+	 * @param domain Domain to parse. An empty domain matches all records.
+	 * @return
+	 * @throws OdooApiException if the operators don't have enough operands
+	 */
+	public static Domain parse(Object[] domain) throws OdooApiException {
+		if (domain == null || domain.length == 0)
+			return new And(Collections.<Domain> emptyList());
+
+		List<Domain> items = new ArrayList<Domain>();
+		int[] position = new int[] { 0 };
+		while (position[0] < domain.length)
+			items.add(parseNext(domain, position));
+
+		return items.size() == 1 ? items.get(0) : new And(items);
+	}
+
+	/**
+	 * Parses the filters in a FilterCollection
+	 * @param filters
+	 * @return
+	 * @throws OdooApiException if the operators don't have enough operands
+	 */
+	public static Domain parse(FilterCollection filters) throws OdooApiException {
+		return parse(filters == null ? null : filters.getFilters());
+	}
+
+	private static Domain parseNext(Object[] domain, int[] position) throws OdooApiException {
+		if (position[0] >= domain.length)
+			throw new OdooApiException("Domain operator is missing an operand.  Please read the Odoo help.");
+
+		Object element = domain[position[0]++];
+		if ("&".equals(element) || "|".equals(element)) {
+			List<Domain> operands = Arrays.asList(parseNext(domain, position), parseNext(domain, position));
+			return "&".equals(element) ? new And(operands) : new Or(operands);
+		} else if ("!".equals(element)) {
+			return new Not(parseNext(domain, position));
+		} else if (element instanceof Object[] && ((Object[]) element).length == 3) {
+			Object[] term = (Object[]) element;
+			return new Term(term[0].toString(), term[1].toString(), term[2]);
+		}
+		throw new OdooApiException("Filters aren't in the correct format.  Please read the Odoo help.");
+	}
+
+	/**
+	 * Returns the domain in the prefix notation used by the Odoo search functions
+	 * @return
+	 */
+	public Object[] toArray() {
+		List<Object> domain = new ArrayList<Object>();
+		// Top level terms are implicitly AND-ed
+		if (this instanceof And) {
+			for (Domain child : ((And) this).children)
+				child.appendTo(domain);
+		} else {
+			appendTo(domain);
+		}
+		return domain.toArray();
+	}
+
+	/**
+	 * Returns the domain as a FilterCollection
+	 * @return
+	 */
+	public FilterCollection toFilterCollection() {
+		FilterCollection filters = new FilterCollection();
+		for (Object element : toArray())
+			filters.addElement(element);
+		return filters;
+	}
+
+	/**
+	 * Returns an equivalent domain in canonical form
+	 * @return
+	 */
+	public abstract Domain normalize();
+
+	/**
+	 * Returns a stable hash of the normalized domain, as a hex string
+	 * @return
+	 */
+	public String getKey() {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(normalize().canonical().getBytes(StandardCharsets.UTF_8));
+			StringBuilder key = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				key.append(String.format("%02x", b));
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	abstract void appendTo(List<Object> domain);
+
+	abstract String buildCanonical();
+
+	/**
+	 * Returns a string that identifies this domain as it is, without
+	 * normalizing it first
+	 */
+	final String canonical() {
+		if (canonical == null)
+			canonical = buildCanonical();
+		return canonical;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Domain && canonical().equals(((Domain) obj).canonical());
+	}
+
+	@Override
+	public int hashCode() {
+		return canonical().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return canonical();
+	}
+
+	/**
+	 * A single comparison like ('state', '=', 'done')
+	 */
+	public static final class Term extends Domain {
+		private final String field;
+		private final String comparison;
+		private final Object value;
+
+		public Term(String field, String comparison, Object value) {
+			this.field = field;
+			this.comparison = comparison;
+			this.value = value;
+		}
+
+		public String getField() {
+			return field;
+		}
+
+		public String getComparison() {
+			return comparison;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		@Override
+		public Domain normalize() {
+			String normalizedComparison = comparison.toLowerCase();
+			if ("<>".equals(normalizedComparison))
+				normalizedComparison = "!=";
+			Object normalizedValue = value;
+			if (value instanceof Object[]
+					&& ("in".equals(normalizedComparison) || "not in".equals(normalizedComparison))) {
+				Object[] values = sortedUnique(Arrays.asList((Object[]) value));
+				// A list with one value is the same as a single comparison
+				if (values.length == 1 && isScalar(values[0]))
+					return new Term(field, "in".equals(normalizedComparison) ? "=" : "!=", values[0]);
+				normalizedValue = values;
+			}
+			return new Term(field, normalizedComparison, normalizedValue);
+		}
+
+		Term negate() {
+			String negated = NEGATIONS.get(comparison);
+			return negated == null ? null : new Term(field, negated, value);
+		}
+
+		@Override
+		void appendTo(List<Object> domain) {
+			domain.add(new Object[] { field, comparison, value });
+		}
+
+		@Override
+		String buildCanonical() {
+			return "(" + encode(field) + "," + encode(comparison) + "," + encode(value) + ")";
+		}
+	}
+
+	/**
+	 * Matches records that match all children. An AND without children matches
+	 * all records.
+	 */
+	public static final class And extends Domain {
+		private final List<Domain> children;
+
+		public And(List<Domain> children) {
+			this.children = Collections.unmodifiableList(new ArrayList<Domain>(children));
+		}
+
+		public List<Domain> getChildren() {
+			return children;
+		}
+
+		@Override
+		public Domain normalize() {
+			return normalizeJunction(true, children);
+		}
+
+		@Override
+		void appendTo(List<Object> domain) {
+			appendJunction(domain, "&", children);
+		}
+
+		@Override
+		String buildCanonical() {
+			return canonicalJunction("AND", children);
+		}
+	}
+
+	/**
+	 * Matches records that match at least one child
+	 */
+	public static final class Or extends Domain {
+		private final List<Domain> children;
+
+		public Or(List<Domain> children) {
+			if (children.isEmpty())
+				throw new IllegalArgumentException("An OR needs at least one operand");
+			this.children = Collections.unmodifiableList(new ArrayList<Domain>(children));
+		}
+
+		public List<Domain> getChildren() {
+			return children;
+		}
+
+		@Override
+		public Domain normalize() {
+			return normalizeJunction(false, children);
+		}
+
+		@Override
+		void appendTo(List<Object> domain) {
+			appendJunction(domain, "|", children);
+		}
+
+		@Override
+		String buildCanonical() {
+			return canonicalJunction("OR", children);
+		}
+	}
+
+	/**
+	 * Matches records that don't match the child
+	 */
+	public static final class Not extends Domain {
+		private final Domain child;
+
+		public Not(Domain child) {
+			this.child = child;
+		}
+
+		public Domain getChild() {
+			return child;
+		}
+
+		@Override
+		public Domain normalize() {
+			if (child instanceof Not)
+				return ((Not) child).child.normalize();
+
+			if (child instanceof Term) {
+				Term term = (Term) child.normalize();
+				Term negated = term.negate();
+				return negated == null ? new Not(term) : negated;
+			}
+
+			// De Morgan
+			boolean isAnd = child instanceof And;
+			List<Domain> operands = isAnd ? ((And) child).children : ((Or) child).children;
+			List<Domain> negated = new ArrayList<Domain>(operands.size());
+			for (Domain operand : operands)
+				negated.add(new Not(operand));
+			if (negated.isEmpty())
+				return new Not(new And(negated));
+			return isAnd ? new Or(negated).normalize() : new And(negated).normalize();
+		}
+
+		@Override
+		void appendTo(List<Object> domain) {
+			domain.add("!");
+			child.appendTo(domain);
+		}
+
+		@Override
+		String buildCanonical() {
+			return "NOT(" + child.canonical() + ")";
+		}
+	}
+
+	private static void appendJunction(List<Object> domain, String operator, List<Domain> children) {
+		if (children.isEmpty()) {
+			// Odoo's representation of an always true term
+			domain.add(new Object[] { 1, "=", 1 });
+			return;
+		}
+		for (int i = 1; i < children.size(); i++)
+			domain.add(operator);
+		for (Domain child : children)
+			child.appendTo(domain);
+	}
+
+	private static String canonicalJunction(String name, List<Domain> children) {
+		StringBuilder builder = new StringBuilder(name).append('(');
+		for (int i = 0; i < children.size(); i++) {
+			if (i > 0)
+				builder.append(',');
+			builder.append(children.get(i).canonical());
+		}
+		return builder.append(')').toString();
+	}
+
+	private static Domain normalizeJunction(boolean isAnd, List<Domain> children) {
+		// Flatten
+		List<Domain> flat = new ArrayList<Domain>();
+		for (Domain child : children) {
+			Domain normalized = child.normalize();
+			if (isAnd && normalized instanceof And)
+				flat.addAll(((And) normalized).children);
+			else if (!isAnd && normalized instanceof Or)
+				flat.addAll(((Or) normalized).children);
+			else flat.add(normalized);
+		}
+
+		// Merge equality terms on the same field
+		String single = isAnd ? "!=" : "=";
+		String list = isAnd ? "not in" : "in";
+		Map<String, List<Object>> mergedValues = new LinkedHashMap<String, List<Object>>();
+		Map<String, Integer> termCounts = new HashMap<String, Integer>();
+		List<Domain> others = new ArrayList<Domain>();
+		for (Domain child : flat) {
+			Term term = child instanceof Term ? (Term) child : null;
+			if (term != null && isMergeable(term, single, list)) {
+				List<Object> values = mergedValues.get(term.field);
+				if (values == null) {
+					values = new ArrayList<Object>();
+					mergedValues.put(term.field, values);
+				}
+				if (term.comparison.equals(single))
+					values.add(term.value);
+				else values.addAll(Arrays.asList((Object[]) term.value));
+				Integer count = termCounts.get(term.field);
+				termCounts.put(term.field, count == null ? 1 : count + 1);
+			} else {
+				others.add(child);
+			}
+		}
+		for (Map.Entry<String, List<Object>> entry : mergedValues.entrySet()) {
+			Object[] values = sortedUnique(entry.getValue());
+			if (values.length == 1)
+				others.add(new Term(entry.getKey(), single, values[0]));
+			else others.add(new Term(entry.getKey(), list, values));
+		}
+
+		// Remove duplicates and sort
+		TreeMap<String, Domain> sorted = new TreeMap<String, Domain>();
+		for (Domain child : others)
+			sorted.put(child.canonical(), child);
+		List<Domain> result = new ArrayList<Domain>(sorted.values());
+
+		if (result.size() == 1)
+			return result.get(0);
+		return isAnd ? new And(result) : new Or(result);
+	}
+
+	private static boolean isMergeable(Term term, String single, String list) {
+		if (term.comparison.equals(single))
+			return isScalar(term.value);
+		if (term.comparison.equals(list) && term.value instanceof Object[]) {
+			for (Object value : (Object[]) term.value) {
+				if (!isScalar(value))
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * False means 'not set' for Odoo and is handled differently in lists, so
+	 * only numbers and strings are merged
+	 */
+	private static boolean isScalar(Object value) {
+		return value instanceof Number || value instanceof String;
+	}
+
+	private static Object[] sortedUnique(Collection<Object> values) {
+		TreeMap<String, Object> sorted = new TreeMap<String, Object>();
+		for (Object value : values)
+			sorted.put(encode(value), value);
+		return sorted.values().toArray();
+	}
+
+	/**
+	 * Encodes a value with its type so that different values never encode the same
+	 */
+	@SuppressWarnings("unchecked")
+	static String encode(Object value) {
+		if (value == null)
+			return "n";
+		if (value instanceof Boolean)
+			return "b:" + value;
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			return "i:" + value;
+		if (value instanceof Number)
+			return "f:" + value;
+		if (value instanceof Object[]) {
+			StringBuilder builder = new StringBuilder("[");
+			Object[] values = (Object[]) value;
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0)
+					builder.append(',');
+				builder.append(encode(values[i]));
+			}
+			return builder.append(']').toString();
+		}
+		if (value instanceof Collection)
+			return encode(((Collection<?>) value).toArray());
+		if (value instanceof Map) {
+			StringBuilder builder = new StringBuilder("{");
+			for (Map.Entry<String, Object> entry : new TreeMap<String, Object>((Map<String, Object>) value).entrySet())
+				builder.append(encode(entry.getKey())).append('=').append(encode(entry.getValue())).append(',');
+			return builder.append('}').toString();
+		}
+		String text = value.toString();
+		return "s" + text.length() + ":" + text;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers to split a search domain with a very long 'in' or 'not in' list into
+ * smaller domains, and to combine the IDs the smaller searches return.
+ *
+ * Only domains that are a plain conjunction of terms are split. A record
+ * matches "field in [a, b]" if it matches "field in [a]" or "field in [b]", so
+ * the results of the chunks are unioned. For 'not in' the record must match
+ * every chunk and the results are intersected.
+ */
+final class DomainSplitter {
+
+	private DomainSplitter() {
+	}
+
+	/**
+	 * Finds the 'in' or 'not in' term with the longest value list
+	 * @param domain Validated search domain
+	 * @param maxValues Longest list that is sent as is. 0 or less never splits.
+	 * @return Index of the term in the domain, or -1 if the domain should be sent as is
+	 */
+	static int findOversizedTerm(Object[] domain, int maxValues) {
+		if (maxValues <= 0 || domain == null)
+			return -1;
+
+		int found = -1;
+		int foundSize = maxValues;
+		for (int i = 0; i < domain.length; i++) {
+			Object element = domain[i];
+			if (element instanceof String) {
+				// Only '&' keeps the domain a conjunction
+				if (!"&".equals(element))
+					return -1;
+				continue;
+			}
+
+			Object[] term = (Object[]) element;
+			String comparison = term[1].toString();
+			if (("in".equalsIgnoreCase(comparison) || "not in".equalsIgnoreCase(comparison))
+					&& term[2] instanceof Object[] && ((Object[]) term[2]).length > foundSize) {
+				found = i;
+				foundSize = ((Object[]) term[2]).length;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the number of domains the term at termIndex is split into
+	 */
+	static int chunkCount(Object[] domain, int termIndex, int maxValues) {
+		int size = ((Object[]) ((Object[]) domain[termIndex])[2]).length;
+		return (size + maxValues - 1) / maxValues;
+	}
+
+	/**
+	 * Builds the domain for one chunk of the values of the term at termIndex
+	 */
+	static Object[] chunk(Object[] domain, int termIndex, int maxValues, int chunkIndex) {
+		Object[] term = (Object[]) domain[termIndex];
+		Object[] values = (Object[]) term[2];
+		int from = chunkIndex * maxValues;
+		int to = Math.min(values.length, from + maxValues);
+
+		Object[] chunkDomain = domain.clone();
+		chunkDomain[termIndex] = new Object[] { term[0], term[1], Arrays.copyOfRange(values, from, to) };
+		return chunkDomain;
+	}
+
+	static boolean isNegated(Object[] domain, int termIndex) {
+		return "not in".equalsIgnoreCase(((Object[]) domain[termIndex])[1].toString());
+	}
+
+	/**
+	 * Combines the IDs found for each chunk
+	 * @param chunkIds IDs returned by each chunk search
+	 * @param negated true to intersect ('not in'), false to union ('in')
+	 * @return The combined IDs, in the order they were first returned
+	 */
+	static List<Object> combine(List<Object[]> chunkIds, boolean negated) {
+		Set<Object> ids = new LinkedHashSet<>();
+		if (chunkIds.isEmpty())
+			return new ArrayList<>(ids);
+
+		if (!negated) {
+			for (Object[] chunk : chunkIds)
+				ids.addAll(Arrays.asList(chunk));
+		} else {
+			ids.addAll(Arrays.asList(chunkIds.get(0)));
+			for (int i = 1; i < chunkIds.size() && !ids.isEmpty(); i++)
+				ids.retainAll(new HashSet<>(Arrays.asList(chunkIds.get(i))));
+		}
+		return new ArrayList<>(ids);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records which fields of the rows read by an ObjectAdapter are read and which
+ * are used, to find the smallest field list for a query:
+ *
+ *		FieldAccessProfiler profiler = new FieldAccessProfiler();
+ *		adapter.setFieldAccessProfiler(profiler);
+ *		... run the job ...
+ *		String[] fields = profiler.getSuggestedFields("res.partner");
+ *
+ * The suggested fields are the fields that were used, including fields that
+ * were loaded lazily. Fields that were read but never used are returned by
+ * getUnusedFields.
+ */
+public class FieldAccessProfiler {
+
+	private final Map<String, Set<String>> readFields = new ConcurrentHashMap<String, Set<String>>();
+	private final Map<String, Set<String>> usedFields = new ConcurrentHashMap<String, Set<String>>();
+	private final Map<String, Set<String>> loadedFields = new ConcurrentHashMap<String, Set<String>>();
+	private final Map<String, LongAdder> loadCounts = new ConcurrentHashMap<String, LongAdder>();
+
+	void fieldsRead(String model, FieldCollection fields) {
+		Set<String> modelFields = fieldSet(readFields, model);
+		for (Field field : fields)
+			modelFields.add(field.getName());
+	}
+
+	void fieldAccessed(String model, String fieldName) {
+		fieldSet(usedFields, model).add(fieldName);
+	}
+
+	void fieldLoaded(String model, String fieldName) {
+		fieldSet(loadedFields, model).add(fieldName);
+		loadCounts.computeIfAbsent(model, key -> new LongAdder()).increment();
+	}
+
+	private static Set<String> fieldSet(Map<String, Set<String>> fields, String model) {
+		return fields.computeIfAbsent(model, key -> ConcurrentHashMap.newKeySet());
+	}
+
+	/**
+	 * Returns the fields of a model that were used, sorted by name
+	 * @param model
+	 * @return
+	 */
+	public String[] getSuggestedFields(String model) {
+		return sorted(usedFields.get(model), null);
+	}
+
+	/**
+	 * Returns the fields of a model that were read but never used
+	 * @param model
+	 * @return
+	 */
+	public String[] getUnusedFields(String model) {
+		return sorted(readFields.get(model), usedFields.get(model));
+	}
+
+	/**
+	 * Returns the fields of a model that were loaded lazily because they were
+	 * not read
+	 * @param model
+	 * @return
+	 */
+	public String[] getLazilyLoadedFields(String model) {
+		return sorted(loadedFields.get(model), null);
+	}
+
+	/**
+	 * Returns the number of extra read calls made to load fields lazily
+	 * @param model
+	 * @return
+	 */
+	public long getLazyLoadCount(String model) {
+		LongAdder count = loadCounts.get(model);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * Forgets everything that was recorded
+	 */
+	public void reset() {
+		readFields.clear();
+		usedFields.clear();
+		loadedFields.clear();
+		loadCounts.clear();
+	}
+
+	private static String[] sorted(Set<String> fields, Set<String> excluded) {
+		TreeSet<String> result = new TreeSet<String>();
+		if (fields != null)
+			result.addAll(fields);
+		if (excluded != null)
+			result.removeAll(excluded);
+		return result.toArray(new String[result.size()]);
+	}
+}
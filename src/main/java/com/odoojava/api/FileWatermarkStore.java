@@ -0,0 +1,80 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Keeps ChangeFeed watermarks in a properties file. The file is written to a
+ * temporary file first and then moved over the old one, so a crash during a
+ * save leaves the previous watermarks.
+ */
+public class FileWatermarkStore implements ChangeFeed.WatermarkStore {
+
+	private final File file;
+
+	/**
+	 * @param file Properties file, created on the first save
+	 */
+	public FileWatermarkStore(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public synchronized String load(String key) throws IOException {
+		return read().getProperty(key);
+	}
+
+	@Override
+	public synchronized void save(String key, String watermark) throws IOException {
+		Properties properties = read();
+		properties.setProperty(key, watermark);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			try (OutputStream out = new FileOutputStream(temp)) {
+				properties.store(out, "Change feed watermarks");
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private Properties read() throws IOException {
+		Properties properties = new Properties();
+		if (file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+}
@@ -135,6 +135,15 @@ public class FilterCollection {
 		}
 	}
 	
+	/**
+	 * Adds an operator string or filter array as is, used to rebuild a
+	 * collection from a Domain
+	 * @param element
+	 */
+	void addElement(Object element){
+		filters.add(element);
+	}
+	
 	/**
 	 * Clears the filter from previous filter values
 	 */
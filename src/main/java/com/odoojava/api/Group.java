@@ -0,0 +1,183 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Map;
+
+/**
+ * One group returned by ObjectAdapter.readGroup, with the values it was grouped
+ * on, the number of records in the group and the aggregated field values.
+ */
+public class Group {
+
+	private final Map<String, Object> groupResult;
+	private GroupCollection subGroups;
+
+	/**
+	 * @param groupResult The map returned by read_group for this group
+	 */
+	public Group(Map<String, Object> groupResult) {
+		this.groupResult = groupResult;
+	}
+
+	/**
+	 * Returns the value of a group by field for this group. Many2one values are
+	 * returned as an Object[] {id, name}, empty values as false.
+	 * @param groupBy Group by specification as passed to readGroup, for example "partner_id" or "date:month"
+	 * @return
+	 */
+	public Object getGroupValue(String groupBy) {
+		if (groupResult.containsKey(groupBy))
+			return groupResult.get(groupBy);
+		// Before Odoo 11 date groups are returned under the field name
+		return groupResult.get(fieldName(groupBy));
+	}
+
+	/**
+	 * Returns the ID of the record a many2one group by field points to
+	 * @param groupBy
+	 * @return The ID, or 0 for the group of records without a value
+	 */
+	public int getGroupId(String groupBy) {
+		Object value = getGroupValue(groupBy);
+		if (value instanceof Object[])
+			return Integer.parseInt(((Object[]) value)[0].toString());
+		return 0;
+	}
+
+	/**
+	 * Returns the number of records in the group
+	 * @return
+	 */
+	public int getCount() {
+		Object count = groupResult.get("__count");
+		if (count == null) {
+			// Lazy grouping returns the count as <first group by field>_count
+			for (String key : groupResult.keySet()) {
+				Object lazyCount = groupResult.get(fieldName(key) + "_count");
+				if (!key.endsWith("_count") && lazyCount != null) {
+					count = lazyCount;
+					break;
+				}
+			}
+		}
+		return count == null ? 0 : Integer.parseInt(count.toString());
+	}
+
+	/**
+	 * Returns an aggregated value
+	 * @param aggregate Aggregate as passed to readGroup, for example "balance", "balance:sum" or "total:sum(balance)"
+	 * @return
+	 */
+	public Object getAggregate(String aggregate) {
+		return groupResult.get(fieldName(aggregate));
+	}
+
+	/**
+	 * Returns an aggregated value as a double
+	 * @param aggregate
+	 * @return 0 if the group has no value
+	 */
+	public double getAggregateAsDouble(String aggregate) {
+		Object value = getAggregate(aggregate);
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		return 0;
+	}
+
+	/**
+	 * Returns the domain that selects the records of this group, to read or
+	 * group them further
+	 * @return
+	 */
+	public Object[] getDomain() {
+		Object domain = groupResult.get("__domain");
+		return domain instanceof Object[] ? (Object[]) domain : new Object[0];
+	}
+
+	/**
+	 * Returns the group by fields that are still to be applied to this group
+	 * when it was read lazily
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public String[] getRemainingGroupBy() {
+		Object context = groupResult.get("__context");
+		if (context instanceof Map) {
+			Object groupBy = ((Map<String, Object>) context).get("group_by");
+			if (groupBy instanceof Object[]) {
+				Object[] values = (Object[]) groupBy;
+				String[] remaining = new String[values.length];
+				for (int i = 0; i < values.length; i++)
+					remaining[i] = values[i].toString();
+				return remaining;
+			}
+		}
+		return new String[0];
+	}
+
+	/**
+	 * Returns the sub groups of a lazily read group if readGroup was asked to
+	 * expand them
+	 * @return null if the sub groups were not read
+	 */
+	public GroupCollection getSubGroups() {
+		return subGroups;
+	}
+
+	void setSubGroups(GroupCollection subGroups) {
+		this.subGroups = subGroups;
+	}
+
+	/**
+	 * Returns the raw map returned by the server for this group
+	 * @return
+	 */
+	public Map<String, Object> getGroupResult() {
+		return groupResult;
+	}
+
+	/**
+	 * Strips the aggregate function or date granularity from a specification
+	 */
+	static String fieldName(String specification) {
+		String name = specification;
+		int colon = name.indexOf(':');
+		if (colon >= 0)
+			name = name.substring(0, colon);
+		return name.trim();
+	}
+
+	/**
+	 * Returns the model field a specification reads, for "total:sum(balance)" that is balance
+	 */
+	static String sourceField(String specification) {
+		int open = specification.indexOf('(');
+		int close = specification.indexOf(')');
+		if (open >= 0 && close > open)
+			return specification.substring(open + 1, close).trim();
+		return fieldName(specification);
+	}
+
+	@Override
+	public String toString() {
+		return groupResult.toString();
+	}
+}
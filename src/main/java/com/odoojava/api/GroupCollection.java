@@ -0,0 +1,40 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/***
+ * Collection of groups returned by ObjectAdapter.readGroup
+ */
+public class GroupCollection extends ArrayList<Group> {
+
+	private static final long serialVersionUID = 3416583402867526019L;
+
+	public GroupCollection() {
+	}
+
+	@SuppressWarnings("unchecked")
+	public GroupCollection(Object[] readGroupResult) {
+		for (Object groupResult : readGroupResult)
+			add(new Group((Map<String, Object>) groupResult));
+	}
+}
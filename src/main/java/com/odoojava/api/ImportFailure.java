@@ -0,0 +1,55 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+/**
+ * A row that could not be imported when ImportOptions.setIsolateFailures is used
+ */
+public class ImportFailure {
+
+	private final Row row;
+	private final String message;
+
+	ImportFailure(Row row, String message) {
+		this.row = row;
+		this.message = message;
+	}
+
+	/**
+	 * Returns the row that was rejected.  The row is left unchanged, so new rows keep ID 0.
+	 * @return
+	 */
+	public Row getRow() {
+		return row;
+	}
+
+	/**
+	 * Returns the messages the server (or the row validation) gave for the row
+	 * @return
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return "Row " + row.get("id") + ": " + message;
+	}
+}
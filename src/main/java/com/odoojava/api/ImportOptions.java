@@ -0,0 +1,131 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+/**
+ * Settings for ObjectAdapter.importData when loading large row collections.
+ *
+ * For example, to send 500 rows per load call over 4 connections:
+ * 		ImportOptions options = new ImportOptions();
+ *		options.setChunkSize(500);
+ *		options.setMaxConcurrentChunks(4);
+ *		adapter.importData(rows, options);
+ *
+ * The default settings send all rows in a single call, which is how
+ * importData(RowCollection) has always behaved.
+ */
+public class ImportOptions {
+
+	private int chunkSize = 0;
+	private int maxConcurrentChunks = 1;
+	private boolean isolateFailures = false;
+	private ChunkImportedListener chunkImportedListener;
+
+	/**
+	 * Gets the maximum number of rows sent to the server in one call.
+	 * @return The chunk size. 0 means all rows are sent in one call.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the maximum number of rows sent to the server in one call.  Rows are
+	 * only converted to the import format when their chunk is sent.
+	 * @param chunkSize Number of rows per call. 0 sends all rows in one call.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 0)
+			throw new IllegalArgumentException("Chunk size can not be negative");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Gets the maximum number of chunks that are sent to the server at the same time.
+	 * @return Number of concurrent connections used for the import
+	 */
+	public int getMaxConcurrentChunks() {
+		return maxConcurrentChunks;
+	}
+
+	/**
+	 * Sets the maximum number of chunks that are sent to the server at the same time.
+	 * The import blocks while this many chunks are in flight.
+	 * @param maxConcurrentChunks Number of concurrent connections. 1 imports chunks one after the other.
+	 */
+	public void setMaxConcurrentChunks(int maxConcurrentChunks) {
+		if (maxConcurrentChunks < 1)
+			throw new IllegalArgumentException("At least one concurrent chunk is required");
+		this.maxConcurrentChunks = maxConcurrentChunks;
+	}
+
+	/**
+	 * Gets if failed chunks are split up to import all valid rows
+	 * @return
+	 */
+	public boolean isIsolateFailures() {
+		return isolateFailures;
+	}
+
+	/**
+	 * When set, a chunk that is rejected by the server is not thrown as an error.
+	 * Rows the server reported on are set aside and the rest of the chunk is sent
+	 * again. If the server doesn't say which rows are wrong, the chunk is split
+	 * in half until the bad rows are found.  All valid rows are committed and the
+	 * rejected ones are returned by ImportResult.getFailures.
+	 * @param isolateFailures
+	 */
+	public void setIsolateFailures(boolean isolateFailures) {
+		this.isolateFailures = isolateFailures;
+	}
+
+	/**
+	 * Gets the listener that is notified after every imported chunk
+	 * @return The listener or null if none was set
+	 */
+	public ChunkImportedListener getChunkImportedListener() {
+		return chunkImportedListener;
+	}
+
+	/**
+	 * Sets a listener to be notified after every imported chunk, for example to report
+	 * progress of long ETL runs.
+	 * @param chunkImportedListener
+	 */
+	public void setChunkImportedListener(ChunkImportedListener chunkImportedListener) {
+		this.chunkImportedListener = chunkImportedListener;
+	}
+
+	/***
+	 * Event handler to notify listeners when a chunk was imported.
+	 * With more than one concurrent chunk, it is called from the import threads
+	 * and chunks may complete out of order.
+	 *
+	 */
+	public static interface ChunkImportedListener {
+		/**
+		 * @param chunkIndex Zero based index of the chunk that was imported
+		 * @param chunkCount Total number of chunks in the import
+		 * @param rowsImported Number of rows imported so far, including this chunk
+		 * @param totalRows Total number of rows in the import
+		 */
+		void chunkImported(int chunkIndex, int chunkCount, int rowsImported, int totalRows);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of an ObjectAdapter.importData call made with ImportOptions.
+ */
+public class ImportResult {
+
+	private final Object[] ids;
+	private final int chunkCount;
+	private final List<ImportFailure> failures;
+
+	ImportResult(RowCollection rows, int chunkCount, List<ImportFailure> failures) {
+		this.ids = new Object[rows.size()];
+		Map<Row, Integer> rowIndexes = new IdentityHashMap<>();
+		for (int i = 0; i < rows.size(); i++) {
+			this.ids[i] = rows.get(i).get("id");
+			rowIndexes.put(rows.get(i), i);
+		}
+		this.chunkCount = chunkCount;
+
+		// Chunks can fail in any order, report failures in row order
+		List<ImportFailure> sorted = new ArrayList<>(failures);
+		sorted.sort((f1, f2) -> Integer.compare(rowIndexes.get(f1.getRow()), rowIndexes.get(f2.getRow())));
+		this.failures = Collections.unmodifiableList(sorted);
+	}
+
+	/**
+	 * Returns if all rows were imported
+	 * @return
+	 */
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * Returns the rows that were rejected, in row order.  Only filled when
+	 * ImportOptions.setIsolateFailures is used, otherwise the first failure
+	 * is thrown.
+	 * @return
+	 */
+	public List<ImportFailure> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns the database IDs of the imported rows, in the same order as the rows
+	 * that were passed in. IDs are only returned by servers from V7 onwards.
+	 * Rows that failed keep the ID they had before the import.
+	 * @return
+	 */
+	public Object[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * Returns the number of rows that were imported
+	 * @return
+	 */
+	public int getRowCount() {
+		return ids.length - failures.size();
+	}
+
+	/**
+	 * Returns the number of calls the rows were split into
+	 * @return
+	 */
+	public int getChunkCount() {
+		return chunkCount;
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * RpcMetrics that keeps counters and latency histograms in memory, in total
+ * and per operation (service, model and method). Recording doesn't lock.
+ */
+public class InProcessRpcMetrics implements RpcMetrics, RpcMetricsMXBean {
+
+	/**
+	 * Counters of a single operation, or of all calls
+	 */
+	public static final class Stats {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder requestBytes = new LongAdder();
+		private final LongAdder responseBytes = new LongAdder();
+		private final LongAdder rows = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		void record(RpcCallInfo call) {
+			calls.increment();
+			if (!call.isSuccessful())
+				errors.increment();
+			requestBytes.add(call.getRequestBytes());
+			responseBytes.add(call.getResponseBytes());
+			rows.add(call.getRowCount());
+			latency.record(call.getDurationNanos());
+		}
+
+		public long getCallCount() {
+			return calls.sum();
+		}
+
+		public long getErrorCount() {
+			return errors.sum();
+		}
+
+		public long getRequestBytes() {
+			return requestBytes.sum();
+		}
+
+		public long getResponseBytes() {
+			return responseBytes.sum();
+		}
+
+		public long getRowCount() {
+			return rows.sum();
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+	}
+
+	private volatile Stats total = new Stats();
+	private volatile ConcurrentHashMap<String, Stats> operations = new ConcurrentHashMap<String, Stats>();
+	private volatile ConcurrentHashMap<Integer, LongAdder> faultCodes = new ConcurrentHashMap<Integer, LongAdder>();
+	private ObjectName registeredName;
+
+	@Override
+	public void callCompleted(RpcCallInfo call) {
+		total.record(call);
+		String operation = call.getService() + ":" + call.getModel() + "." + call.getMethod();
+		Stats stats = operations.get(operation);
+		if (stats == null)
+			stats = operations.computeIfAbsent(operation, key -> new Stats());
+		stats.record(call);
+		if (!call.isSuccessful())
+			faultCodes.computeIfAbsent(call.getFaultCode(), key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Returns the counters of all calls
+	 * @return
+	 */
+	public Stats getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the counters of an operation
+	 * @param operation For example "RPC_OBJECT:res.partner.read"
+	 * @return null if the operation wasn't called
+	 */
+	public Stats getOperation(String operation) {
+		return operations.get(operation);
+	}
+
+	@Override
+	public long getCallCount() {
+		return total.getCallCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return total.getErrorCount();
+	}
+
+	@Override
+	public long getRequestBytes() {
+		return total.getRequestBytes();
+	}
+
+	@Override
+	public long getResponseBytes() {
+		return total.getResponseBytes();
+	}
+
+	@Override
+	public long getRowCount() {
+		return total.getRowCount();
+	}
+
+	@Override
+	public double getMeanLatencyMillis() {
+		return total.getLatency().getMeanMillis();
+	}
+
+	@Override
+	public double getMaxLatencyMillis() {
+		return total.getLatency().getMaxMillis();
+	}
+
+	@Override
+	public double getLatencyMillis(double percentile) {
+		return total.getLatency().getPercentileMillis(percentile);
+	}
+
+	@Override
+	public String[] getOperations() {
+		return new TreeMap<String, Stats>(operations).keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public Map<String, Long> getCallCountByOperation() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, Stats> entry : operations.entrySet())
+			counts.put(entry.getKey(), entry.getValue().getCallCount());
+		return counts;
+	}
+
+	@Override
+	public Map<String, Long> getErrorCountByFaultCode() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<Integer, LongAdder> entry : faultCodes.entrySet())
+			counts.put(entry.getKey().toString(), entry.getValue().sum());
+		return counts;
+	}
+
+	@Override
+	public double getOperationLatencyMillis(String operation, double percentile) {
+		Stats stats = operations.get(operation);
+		return stats == null ? 0 : stats.getLatency().getPercentileMillis(percentile);
+	}
+
+	/**
+	 * Starts counting from 0. Calls that complete while resetting may be lost.
+	 */
+	@Override
+	public void reset() {
+		total = new Stats();
+		operations = new ConcurrentHashMap<String, Stats>();
+		faultCodes = new ConcurrentHashMap<Integer, LongAdder>();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server
+	 * @param name Object name, for example "com.odoojava.api:type=RpcMetrics,name=erp"
+	 * @throws JMException
+	 */
+	public synchronized void registerMBean(String name) throws JMException {
+		unregisterMBean();
+		ObjectName objectName = new ObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		registeredName = objectName;
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server if they were registered
+	 * @throws JMException
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		if (registeredName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(registeredName))
+				server.unregisterMBean(registeredName);
+			registeredName = null;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Runs the interceptors of a Session one after the other and ends with the
+ * call to the server
+ */
+final class InterceptorChain implements RpcInterceptor.Chain {
+
+	interface Terminal {
+		Object call(RpcRequest request) throws XmlRpcException;
+	}
+
+	private final RpcInterceptor[] interceptors;
+	private final int index;
+	private final Terminal terminal;
+
+	InterceptorChain(RpcInterceptor[] interceptors, Terminal terminal) {
+		this(interceptors, 0, terminal);
+	}
+
+	private InterceptorChain(RpcInterceptor[] interceptors, int index, Terminal terminal) {
+		this.interceptors = interceptors;
+		this.index = index;
+		this.terminal = terminal;
+	}
+
+	@Override
+	public Object proceed(RpcRequest request) throws XmlRpcException {
+		if (index >= interceptors.length)
+			return terminal.call(request);
+		return interceptors[index].intercept(request, new InterceptorChain(interceptors, index + 1, terminal));
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.URLConnection;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.apache.xmlrpc.client.XmlRpcSun15HttpTransport;
+import org.apache.xmlrpc.client.XmlRpcSun15HttpTransportFactory;
+import org.apache.xmlrpc.client.XmlRpcTransport;
+import org.apache.xmlrpc.common.XmlRpcStreamRequestConfig;
+import org.xml.sax.SAXException;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+/**
+ * Transport factory that counts the bytes sent and received by a call, keeps
+ * copies of the request and response for a TrafficRecorder or answers the
+ * call from a TrafficReplay, when the calling thread asked for it with
+ * startTap(). Other calls use the streams of the default transport as they
+ * are.
+ *
+ * The connect and read timeouts of every call are shortened to the time left
+ * until the Deadline of the calling thread.
+ */
+class MeteredTransportFactory extends XmlRpcSun15HttpTransportFactory {
+
+	private static final ThreadLocal<CallTap> taps = new ThreadLocal<CallTap>();
+
+	private Proxy proxy;
+
+	/**
+	 * What the transport does with the calls of a thread
+	 */
+	static final class CallTap {
+		final RPCServices service;
+		final String password;
+		final ByteArrayOutputStream request;
+		final ByteArrayOutputStream response;
+		final TrafficReplay replay;
+		long requestBytes;
+		long responseBytes;
+		boolean gzipped;
+		long sentAt;
+		long waitNanos;
+
+		CallTap(RPCServices service, String password, boolean capture, TrafficReplay replay) {
+			this.service = service;
+			this.password = password;
+			this.request = capture || replay != null ? new ByteArrayOutputStream() : null;
+			this.response = capture ? new ByteArrayOutputStream() : null;
+			this.replay = replay;
+		}
+	}
+
+	MeteredTransportFactory(XmlRpcClient client) {
+		super(client);
+	}
+
+	/**
+	 * Taps the calls made by the current thread
+	 * @param service Service the calls are made to
+	 * @param password Password of the session, masked in captured requests
+	 * @param capture Keep copies of the request and response
+	 * @param replay Answer calls from this replay instead of the server, null to call the server
+	 * @return The tap, updated while calls are made
+	 */
+	static CallTap startTap(RPCServices service, String password, boolean capture, TrafficReplay replay) {
+		CallTap tap = new CallTap(service, password, capture, replay);
+		taps.set(tap);
+		return tap;
+	}
+
+	static void stopTap() {
+		taps.remove();
+	}
+
+	@Override
+	public void setProxy(Proxy proxy) {
+		this.proxy = proxy;
+		super.setProxy(proxy);
+	}
+
+	@Override
+	public XmlRpcTransport getTransport() {
+		MeteredTransport transport = new MeteredTransport(getClient());
+		transport.setProxy(proxy);
+		return transport;
+	}
+
+	private static class MeteredTransport extends XmlRpcSun15HttpTransport {
+
+		MeteredTransport(XmlRpcClient client) {
+			super(client);
+		}
+
+		@Override
+		protected void initHttpHeaders(XmlRpcRequest request) throws XmlRpcClientException {
+			super.initHttpHeaders(request);
+			if (Deadline.current() != null) {
+				URLConnection connection = getURLConnection();
+				connection.setConnectTimeout(Deadline.limitTimeout(connection.getConnectTimeout()));
+				connection.setReadTimeout(Deadline.limitTimeout(connection.getReadTimeout()));
+			}
+		}
+
+		@Override
+		protected void writeRequest(final ReqWriter writer) throws IOException, XmlRpcException, SAXException {
+			final CallTap tap = taps.get();
+			if (tap == null) {
+				super.writeRequest(writer);
+				return;
+			}
+			if (tap.replay != null) {
+				// Don't connect, the response comes from the replay
+				writer.write(tap.request);
+				tap.requestBytes = tap.request.size();
+				return;
+			}
+			super.writeRequest(stream -> writer.write(new FilterOutputStream(stream) {
+				@Override
+				public void write(int b) throws IOException {
+					out.write(b);
+					tap.requestBytes++;
+					if (tap.request != null)
+						tap.request.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+					tap.requestBytes += len;
+					if (tap.request != null)
+						tap.request.write(b, off, len);
+				}
+			}));
+			tap.sentAt = System.nanoTime();
+		}
+
+		@Override
+		protected boolean isResponseGzipCompressed(XmlRpcStreamRequestConfig config) {
+			CallTap tap = taps.get();
+			if (tap != null && tap.replay != null)
+				return tap.gzipped;
+			boolean gzipped = super.isResponseGzipCompressed(config);
+			if (tap != null)
+				tap.gzipped = gzipped;
+			return gzipped;
+		}
+
+		@Override
+		protected InputStream getInputStream() throws XmlRpcException {
+			final CallTap tap = taps.get();
+			if (tap == null)
+				return super.getInputStream();
+
+			InputStream stream;
+			if (tap.replay != null) {
+				TrafficReplay.Exchange exchange = tap.replay.replay(tap.service, tap.request.toByteArray(),
+						tap.password);
+				tap.gzipped = exchange.gzipped;
+				stream = new ByteArrayInputStream(exchange.response);
+			} else {
+				stream = super.getInputStream();
+				tap.waitNanos = System.nanoTime() - tap.sentAt;
+			}
+
+			return new FilterInputStream(stream) {
+				@Override
+				public int read() throws IOException {
+					int b = in.read();
+					if (b >= 0) {
+						tap.responseBytes++;
+						if (tap.response != null)
+							tap.response.write(b);
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int read = in.read(b, off, len);
+					if (read > 0) {
+						tap.responseBytes += read;
+						if (tap.response != null)
+							tap.response.write(b, off, read);
+					}
+					return read;
+				}
+
+				@Override
+				public long skip(long n) throws IOException {
+					byte[] skipped = new byte[(int) Math.min(n, 8192)];
+					int read = read(skipped, 0, skipped.length);
+					return Math.max(0, read);
+				}
+			};
+		}
+	}
+}
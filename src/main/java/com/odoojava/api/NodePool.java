@@ -0,0 +1,185 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.odoojava.api.Session.LoadBalancing;
+
+/**
+ * The Odoo servers a Session spreads its object calls over.
+ *
+ * Every node counts the calls that are in flight to it. A node is picked
+ * either as the one with the fewest calls in flight, or as the better of two
+ * random nodes. A node that fails a number of times in a row is ejected for a
+ * while and gets calls again afterwards; if it fails again it is ejected
+ * straight away. When every node is ejected the one that comes back first is
+ * used.
+ */
+final class NodePool {
+
+	static final class Node {
+		final String endpoint;
+		final String host;
+		final int port;
+		final boolean primary;
+		final OdooXmlRpcProxy client;
+		final AtomicInteger outstanding = new AtomicInteger();
+		volatile int userID;
+		private int failures;
+		private volatile boolean ejected;
+		private volatile long ejectedUntil;
+
+		Node(String host, int port, boolean primary, OdooXmlRpcProxy client) {
+			this.endpoint = host + ":" + port;
+			this.host = host;
+			this.port = port;
+			this.primary = primary;
+			this.client = client;
+		}
+
+		boolean isEjected(long now) {
+			return ejected && now - ejectedUntil < 0;
+		}
+	}
+
+	private final List<Node> nodes = new CopyOnWriteArrayList<Node>();
+	private final AtomicInteger rotation = new AtomicInteger();
+	private volatile LoadBalancing loadBalancing = LoadBalancing.LEAST_OUTSTANDING;
+	private volatile int ejectAfterFailures = 3;
+	private volatile long ejectMillis = 30000;
+
+	void add(Node node) {
+		nodes.add(node);
+	}
+
+	List<Node> getNodes() {
+		return nodes;
+	}
+
+	int size() {
+		return nodes.size();
+	}
+
+	LoadBalancing getLoadBalancing() {
+		return loadBalancing;
+	}
+
+	void setLoadBalancing(LoadBalancing loadBalancing) {
+		this.loadBalancing = loadBalancing;
+	}
+
+	int getEjectAfterFailures() {
+		return ejectAfterFailures;
+	}
+
+	long getEjectMillis() {
+		return ejectMillis;
+	}
+
+	void setEjection(int failures, long millis) {
+		this.ejectAfterFailures = Math.max(1, failures);
+		this.ejectMillis = millis;
+	}
+
+	/**
+	 * Picks the node for the next call
+	 * @param exclude Nodes that already failed the call, can be null
+	 * @return null if every node is excluded
+	 */
+	Node select(Set<Node> exclude) {
+		long now = System.nanoTime();
+		List<Node> candidates = new ArrayList<Node>(nodes.size());
+		Node returnsFirst = null;
+		for (Node node : nodes) {
+			if (exclude != null && exclude.contains(node))
+				continue;
+			if (!node.isEjected(now))
+				candidates.add(node);
+			else if (returnsFirst == null || node.ejectedUntil - returnsFirst.ejectedUntil < 0)
+				returnsFirst = node;
+		}
+		if (candidates.isEmpty())
+			return returnsFirst;
+		if (candidates.size() == 1)
+			return candidates.get(0);
+
+		if (loadBalancing == LoadBalancing.POWER_OF_TWO_CHOICES) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(candidates.size());
+			int second = random.nextInt(candidates.size() - 1);
+			if (second >= first)
+				second++;
+			Node a = candidates.get(first);
+			Node b = candidates.get(second);
+			return b.outstanding.get() < a.outstanding.get() ? b : a;
+		}
+
+		// Start at a rotating offset so that ties are spread over the nodes
+		int start = (rotation.getAndIncrement() & Integer.MAX_VALUE) % candidates.size();
+		Node best = null;
+		for (int i = 0; i < candidates.size(); i++) {
+			Node node = candidates.get((start + i) % candidates.size());
+			if (best == null || node.outstanding.get() < best.outstanding.get())
+				best = node;
+		}
+		return best;
+	}
+
+	/**
+	 * Reports that a node answered, with a result or a fault
+	 */
+	void succeeded(Node node) {
+		synchronized (node) {
+			node.failures = 0;
+		}
+	}
+
+	/**
+	 * Reports that a node could not be reached or was unavailable
+	 */
+	void failed(Node node) {
+		synchronized (node) {
+			node.failures++;
+			if (node.failures >= ejectAfterFailures) {
+				node.ejectedUntil = System.nanoTime() + ejectMillis * 1000000L;
+				node.ejected = true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the nodes that are ejected at the moment, as host:port
+	 */
+	List<String> getEjectedEndpoints() {
+		long now = System.nanoTime();
+		List<String> ejected = new ArrayList<String>();
+		for (Node node : nodes)
+			if (node.isEjected(now))
+				ejected.add(node.endpoint);
+		return ejected;
+	}
+}
@@ -21,20 +21,29 @@ package com.odoojava.api;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.xmlrpc.XmlRpcException;
 
 import com.odoojava.api.Field.FieldType;
-import com.odoojava.api.helpers.FilterHelper;
 
 /**
  * Main class for communicating with the server. It provides extra validation
@@ -49,6 +58,7 @@ public class ObjectAdapter {
     private final String modelName;
     private final OdooCommand command;
     private final FieldCollection allFields;
+    private final Map<String, Field> fieldsByName = new HashMap<>();
     private final Version serverVersion;
 
     // Object name cache so the adapter doesn't have to reread model names from
@@ -67,6 +77,30 @@ public class ObjectAdapter {
     // object
     private final Map<String, Map<String, String>> modelNameCache = new ConcurrentHashMap<>();
 
+    // External ID (module.name) to database ID cache used by upsert so that
+    // repeated syncs don't have to look up ir.model.data again
+    private final Map<String, Integer> externalIdCache = new ConcurrentHashMap<>();
+
+    /**
+     * Suggested longest 'in' / 'not in' value list for
+     * {@link #setFilterSplitSize(int)}. Splitting itself is off by default.
+     */
+    public static final int DEFAULT_FILTER_SPLIT_SIZE = 5000;
+
+    private int filterSplitSize = 0;
+    private int filterSplitConcurrency = 4;
+    private boolean queryCacheEnabled = false;
+    private boolean recordCacheEnabled = false;
+    private ReadBatcher readBatcher;
+    private boolean lazyLoading = false;
+    private FieldAccessProfiler fieldAccessProfiler;
+
+    /**
+     * Module name used for external IDs that are passed without one. This is
+     * the module the Odoo import screen uses.
+     */
+    public static final String DEFAULT_EXTERNAL_ID_MODULE = "__import__";
+
     /**
      * Default constructor
      *
@@ -88,6 +122,11 @@ public class ObjectAdapter {
         validateModelExists();
 
         allFields = getFields();
+        if (allFields != null) {
+            for (Field fld : allFields) {
+                fieldsByName.put(fld.getName(), fld);
+            }
+        }
     }
 
     /**
@@ -218,17 +257,9 @@ public class ObjectAdapter {
      */
     public RowCollection readObject(Object[] ids, String[] fields) throws XmlRpcException, OdooApiException {
 
-        // Faster to do read existing fields that to do a server call again
-        FieldCollection fieldCol = new FieldCollection();
-        for (String fieldName : fields) {
-            for (Field fld : allFields) {
-                if (fld.getName().equals(fieldName)) {
-                    fieldCol.add(fld);
-                }
-            }
-        }
+        FieldCollection fieldCol = getFieldsByName(fields);
 
-        Object[] results = command.readObject(modelName, ids, fields);
+        Object[] results = readValues(ids, fields);
 
         /**
          * **
@@ -246,7 +277,136 @@ public class ObjectAdapter {
 		 * Object>)result).get("id").toString());
          * sortedResults[idList.indexOf(id)] = result; } **
          */
-        return new RowCollection(results, fieldCol);
+        return toRows(results, fieldCol);
+    }
+
+    /**
+     * Reads the values of records through the read batcher and record cache
+     */
+    Object[] readValues(Object[] ids, String[] fields) throws XmlRpcException, OdooApiException {
+        ReadBatcher batcher = readBatcher;
+        return batcher != null && ids != null ? batcher.read(ids, fields) : readCached(ids, fields);
+    }
+
+    /**
+     * Creates the rows for read results. With lazy loading or a field access
+     * profiler the rows get a loader that is shared by the collection.
+     */
+    private RowCollection toRows(Object[] results, FieldCollection fieldCol) throws OdooApiException {
+        RowCollection rows = new RowCollection(results, fieldCol);
+        FieldAccessProfiler profiler = fieldAccessProfiler;
+        if (lazyLoading || profiler != null) {
+            RowLoader loader = new RowLoader(this, modelName, rows, lazyLoading, profiler);
+            for (Row row : rows) {
+                row.setLoader(loader);
+            }
+            if (profiler != null) {
+                profiler.fieldsRead(modelName, fieldCol);
+            }
+        }
+        return rows;
+    }
+
+    Field getField(String fieldName) {
+        return fieldsByName.get(fieldName);
+    }
+
+    private FieldCollection getFieldsByName(String[] fields) {
+        // Faster to do read existing fields that to do a server call again
+        FieldCollection fieldCol = new FieldCollection();
+        for (String fieldName : fields) {
+            Field fld = fieldsByName.get(fieldName);
+            if (fld != null) {
+                fieldCol.add(fld);
+            }
+        }
+        return fieldCol;
+    }
+
+    /**
+     * Reads records through the RecordCache of the session. Only records and
+     * fields that aren't cached are read from the server, records that miss
+     * the same fields are read together.
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] readCached(final Object[] ids, final String[] fields) throws XmlRpcException, OdooApiException {
+        RecordCache cache = getRecordCache();
+        // Without a field list the server returns all fields
+        if (cache == null || ids == null || fields.length == 0) {
+            return readChunked(ids, fields);
+        }
+
+        String contextKey = new TreeMap<String, Object>(command.getSession().getContext()).toString();
+        long generation = cache.getGeneration(modelName);
+
+        Map<Integer, HashMap<String, Object>> records = new HashMap<>();
+        Map<List<String>, List<Object>> missing = new LinkedHashMap<>();
+        for (Object id : ids) {
+            int intId = Integer.parseInt(id.toString());
+            if (records.containsKey(intId)) {
+                continue;
+            }
+            HashMap<String, Object> cached = cache.get(modelName, intId, fields, contextKey);
+            List<String> missingFields = new ArrayList<>();
+            for (String field : fields) {
+                if (cached == null || !cached.containsKey(field)) {
+                    missingFields.add(field);
+                }
+            }
+            records.put(intId, cached);
+            if (!missingFields.isEmpty()) {
+                missing.computeIfAbsent(missingFields, key -> new ArrayList<>()).add(id);
+            }
+        }
+
+        for (Entry<List<String>, List<Object>> group : missing.entrySet()) {
+            Object[] read = readChunked(group.getValue().toArray(), group.getKey().toArray(new String[0]));
+            cache.put(modelName, read, contextKey, generation);
+            for (Object result : read) {
+                HashMap<String, Object> values = (HashMap<String, Object>) result;
+                int intId = Integer.parseInt(values.get("id").toString());
+                HashMap<String, Object> cached = records.get(intId);
+                if (cached == null) {
+                    records.put(intId, values);
+                } else {
+                    cached.putAll(values);
+                }
+            }
+        }
+
+        // Keep the requested order, records that weren't found are left out
+        List<Object> results = new ArrayList<>(ids.length);
+        Set<Integer> added = new HashSet<>();
+        for (Object id : ids) {
+            int intId = Integer.parseInt(id.toString());
+            HashMap<String, Object> values = records.get(intId);
+            if (values != null && values.keySet().containsAll(Arrays.asList(fields)) && added.add(intId)) {
+                results.add(values);
+            }
+        }
+        return results.toArray();
+    }
+
+    /**
+     * Reads ids in chunks of filterSplitSize so that very long id lists don't
+     * end up in a single request
+     */
+    private Object[] readChunked(final Object[] ids, final String[] fields) throws XmlRpcException, OdooApiException {
+        if (ids == null || filterSplitSize <= 0 || ids.length <= filterSplitSize) {
+            return command.readObject(modelName, ids, fields);
+        }
+
+        final int chunkSize = filterSplitSize;
+        int chunkCount = (ids.length + chunkSize - 1) / chunkSize;
+        List<Object[]> chunks = ChunkRunner.run("read", chunkCount, filterSplitConcurrency,
+                chunkIndex -> () -> command.readObject(modelName, Arrays.copyOfRange(ids, chunkIndex * chunkSize,
+                        Math.min(ids.length, (chunkIndex + 1) * chunkSize)), fields));
+
+        List<Object> results = new ArrayList<>(ids.length);
+        for (Object[] chunk : chunks) {
+            results.addAll(Arrays.asList(chunk));
+        }
+        return results.toArray();
     }
 
     /**
@@ -311,142 +471,40 @@ public class ObjectAdapter {
      * @throws OdooApiException
      */
     public Object[] validateFilters(final FilterCollection filters) throws OdooApiException {
-
-        if (filters == null) {
-            return new Object[0];
-        }
-
-        ArrayList<Object> processedFilters = new ArrayList<>();
-
-        for (int i = 0; i < filters.getFilters().length; i++) {
-            Object filter = filters.getFilters()[i];
-
-            if (filter == null) {
-                throw new IllegalArgumentException("null filter parameter is not allowed");
-            }
-
-            // Is a logical operator
-            if (filter instanceof String) {
-                processedFilters.add(filter);
-                continue;
-            }
-
-            // Is a comparison filter
-            Object[] filterObjects = (Object[]) filter;
-            if (!(filter instanceof Object[]) || filterObjects.length != 3) {
-                throw new OdooApiException("Filters aren't in the correct format.  Please read the Odoo help.");
-            }
-
-            String fieldName = filterObjects[0].toString();
-            String comparison = filterObjects[1].toString();
-            Object value = filterObjects[2];
-
-            Field fld = findFieldByName(fieldName);
-
-            // Can't search on calculated fields
-            if (fld != null && fld.getFunc_method()) {
-                throw new OdooApiException("Can not search on function field " + fieldName);
-            }
-
-            // Fix the value type if required for the Odoo server
-            if (!"id".equals(fieldName) && fld == null) {
-                throw new OdooApiException("Unknow filter field " + fieldName);
-            } else if ("is null".equals(comparison)) {
-                comparison = "=";
-                value = false;
-            } else if ("is not null".equals(comparison)) {
-                comparison = "!=";
-                value = false;
-            } else if (fld != null && fld.getType() == FieldType.BOOLEAN && !(value instanceof Boolean)) {
-                value = convertToBoolean(value);
-            } else if (fld != null && fld.getType() == FieldType.FLOAT && !(value instanceof Double)) {
-                value = Double.parseDouble(value.toString());
-            } else if (fld != null && fld.getType() == FieldType.DATE && value instanceof Date) {
-                value = new SimpleDateFormat("yyyy-MM-dd").format((Date) value);
-            } else if (fld != null && fld.getType() == FieldType.DATETIME && value instanceof Date) {
-                value = new SimpleDateFormat("yyyy-MM-dd HH:mm").format((Date) value);
-            } else if ("=".equals(comparison)) {
-
-                // If a integer field is not an integer in a '=' comparison,
-                // parse it as an int
-                if (!(value instanceof Integer)) {
-                    if ("id".equals(fieldName)
-                            || (fld != null && fld.getType() == FieldType.INTEGER && !(value instanceof Integer))
-                            || (fld != null && fld.getType() == FieldType.MANY2ONE && !(value instanceof Integer))) {
-                        value = Integer.parseInt(value.toString());
-                    }
-                }
-            } else if ("in".equalsIgnoreCase(comparison)) {
-                if (value instanceof String) {
-                    // Split by , where the , isn't preceded by a \
-                    String[] entries = value.toString().split("(?<!\\\\),");
-                    Object[] valueArr = new Object[entries.length];
-                    for (int entrIdx = 0; entrIdx < entries.length; entrIdx++) {
-                        String entry = FilterHelper.csvDecodeString(entries[entrIdx]);
-
-                        // For relation fields or integer fields we build an
-                        // array of integers
-                        if (fld != null
-                                && (fld.getType() == FieldType.INTEGER || fld.getType() == FieldType.ONE2MANY
-                                || fld.getType() == FieldType.MANY2MANY || fld.getType() == FieldType.MANY2ONE)
-                                || "id".equals(fieldName)) {
-                            valueArr[entrIdx] = Integer.parseInt(entry);
-                        } else {
-                            valueArr[entrIdx] = entry;
-                        }
-                    }
-                    value = valueArr;
-                } // If it is a single value, just put it in an array
-                else if (!(value instanceof Object[])) {
-                    value = new Object[]{value};
-                }
-            }
-
-            processedFilters.add(new Object[]{fieldName, comparison, value});
-
-        }
-
-        return processedFilters.toArray(new Object[processedFilters.size()]);
-    }
-
-    private Object convertToBoolean(Object value) throws OdooApiException {
-        if (value instanceof String) {
-            char firstchar = value.toString().toLowerCase().charAt(0);
-            if (firstchar == '1' || firstchar == 'y' || firstchar == 't') {
-                return true;
-            } else if (firstchar == '0' || firstchar == 'n' || firstchar == 'f') {
-                return false;
-            } else {
-                throw new OdooApiException("Unknown boolean " + value.toString());
-            }
-        }
-        return value;
+        return prepareDomain(filters).bind(null);
     }
 
-    private Field findFieldByName(String fieldName) {
-        for (Field field : allFields) {
-            if (field.getName().equals(fieldName)) {
-                return field;
-            }
-        }
-        return null;
+    /**
+     * Validates filters against the fields of this model once so that they can
+     * be executed repeatedly. Filter values can be left open with
+     * PreparedDomain.parameter(name) and bound when the domain is executed.
+     *
+     * @param filters FilterCollection containing the specified filters
+     * @return A prepared domain that can be shared between threads
+     * @throws OdooApiException if a filter is not valid for this model
+     */
+    public PreparedDomain prepareDomain(final FilterCollection filters) throws OdooApiException {
+        return new PreparedDomain(filters, fieldsByName);
     }
 
-    private Object[] fixImportData(Row inputRow) throws OdooApiException, XmlRpcException {
+    private Object[] fixImportData(Row inputRow, boolean includeId) throws OdooApiException, XmlRpcException {
 
-        // +1 because we need to include the ID field
-        Object[] outputRow = new Object[inputRow.getFields().size() + 1];
+        // +1 if we need to include the ID field
+        int firstColumn = includeId ? 1 : 0;
+        Object[] outputRow = new Object[inputRow.getFields().size() + firstColumn];
 
-        // ID must be an integer
-        outputRow[0] = inputRow.get("id");
-        if (outputRow[0] == null) {
-            outputRow[0] = 0;
-        } else {
-            outputRow[0] = Integer.parseInt(inputRow.get("id").toString());
+        if (includeId) {
+            // ID must be an integer
+            outputRow[0] = inputRow.get("id");
+            if (outputRow[0] == null) {
+                outputRow[0] = 0;
+            } else {
+                outputRow[0] = Integer.parseInt(inputRow.get("id").toString());
+            }
         }
 
         for (int i = 0; i < inputRow.getFields().size(); i++) {
-            int columnIndex = i + 1;
+            int columnIndex = i + firstColumn;
 
             Field fld = inputRow.getFields().get(i);
             String fieldName = fld.getName();
@@ -587,8 +645,48 @@ public class ObjectAdapter {
      * @throws OdooApiException
      */
     public boolean importData(RowCollection rows) throws OdooApiException, XmlRpcException {
+        importData(rows, new ImportOptions());
+        return true;
+    }
+
+    /**
+     * Calls the import_data or load function on the server to bulk
+     * create/update records, splitting the rows into chunks that are sent over
+     * a bounded number of concurrent connections. Rows are only converted to
+     * the import format when their chunk is sent, so the client doesn't hold a
+     * second full copy of the data.
+     *
+     * IDs are set on the imported rows the same way as importData(RowCollection).
+     * If a chunk fails, no further chunks are started and the error is thrown
+     * once the chunks already in flight have finished. Chunks that completed
+     * before the failure stay committed.
+     *
+     * @param rows Rows to import.
+     * @param options Chunk size, concurrency and progress listener to use
+     * @return The imported IDs in the same order as the rows
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public ImportResult importData(RowCollection rows, ImportOptions options)
+            throws OdooApiException, XmlRpcException {
+        return importData(rows, options, null);
+    }
+
+    /**
+     * Imports rows, sending the external IDs of new rows in the id column of
+     * the load call, so that the server creates the records and their
+     * external IDs in the same transaction
+     *
+     * @param externalIds External ID by row, null to import without external
+     * IDs. From V7 on only those of new rows are sent.
+     */
+    private ImportResult importData(RowCollection rows, ImportOptions options, Map<Row, String> externalIds)
+            throws OdooApiException, XmlRpcException {
+        modelNameCache.clear();
+
         // Workaround: old and new rows can't be sent together
         // together using the import_data or load function
+        List<RowCollection> chunks = new ArrayList<>();
         if (this.serverVersion.getMajor() >= 7) {
             RowCollection newRows = new RowCollection();
             RowCollection oldRows = new RowCollection();
@@ -601,38 +699,138 @@ public class ObjectAdapter {
                 }
             }
 
-            // If mixed rows, import old and new rows separately
-            if (!newRows.isEmpty() && !oldRows.isEmpty()) {
-                return this.importData(oldRows) && this.importData(newRows);
+            addImportChunks(chunks, oldRows, options.getChunkSize());
+            addImportChunks(chunks, newRows, options.getChunkSize());
+        } else {
+            addImportChunks(chunks, rows, options.getChunkSize());
+        }
+
+        final int chunkCount = chunks.size();
+        final int totalRows = rows.size();
+        final AtomicInteger rowsImported = new AtomicInteger();
+        final ImportOptions.ChunkImportedListener listener = options.getChunkImportedListener();
+        final List<ImportFailure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        ChunkRunner.run("import", chunkCount, options.getMaxConcurrentChunks(), index -> () -> {
+            RowCollection chunk = chunks.get(index);
+            if (options.isIsolateFailures()) {
+                importChunkIsolated(chunk, externalIds, failures);
+            } else {
+                importChunk(chunk, externalIds);
             }
+            int done = rowsImported.addAndGet(chunk.size());
+            if (listener != null) {
+                listener.chunkImported(index, chunkCount, done, totalRows);
+            }
+            return null;
+        });
+
+        return new ImportResult(rows, chunkCount, failures);
+    }
+
+    private static void addImportChunks(List<RowCollection> chunks, RowCollection rows, int chunkSize) {
+        int size = chunkSize <= 0 ? rows.size() : chunkSize;
+        for (int start = 0; start < rows.size(); start += size) {
+            RowCollection chunk = new RowCollection();
+            chunk.addAll(rows.subList(start, Math.min(start + size, rows.size())));
+            chunks.add(chunk);
         }
+    }
 
-        modelNameCache.clear();
+    private void importChunk(RowCollection rows, Map<Row, String> externalIds)
+            throws OdooApiException, XmlRpcException {
+        // New rows are sent with their external ID in the id column. Before V7
+        // old and new rows share chunks and import_data matches rows by
+        // external ID, so all rows are.
+        boolean withExternalIds = externalIds != null
+                && (this.serverVersion.getMajor() < 7 || rows.get(0).getID() == 0);
+
+        // New rows are loaded without the .id field from V7 onwards
+        boolean includeId = withExternalIds || this.serverVersion.getMajor() < 7 || rows.get(0).getID() != 0;
 
         Object[][] importRows = new Object[rows.size()][];
 
         for (int i = 0; i < rows.size(); i++) {
             Row row = rows.get(i);
-            importRows[i] = fixImportData(row);
+            importRows[i] = fixImportData(row, includeId);
+            if (withExternalIds) {
+                importRows[i][0] = externalIds.get(row);
+            }
+        }
+
+        String[] targetFieldList = getFieldListForImport(rows.get(0).getFields());
+        if (withExternalIds) {
+            targetFieldList[0] = "id";
+        } else if (!includeId) {
+            // Remove the .id field for new rows.
+            targetFieldList = Arrays.copyOfRange(targetFieldList, 1, targetFieldList.length);
         }
 
         if (this.serverVersion.getMajor() >= 7) {
             // The load function was introduced in V7 and the import function
             // deprecated
-            importDataV7(rows, importRows);
+            importDataV7(rows, importRows, targetFieldList);
         } else {
             // Use older import rows function
-            importDataLegacy(rows, importRows);
+            importDataLegacy(importRows, targetFieldList);
         }
+    }
 
-        return true;
+    /**
+     * Imports a chunk and sets aside the rows that are rejected. The load
+     * function rolls back the whole call if one row fails, but it reports
+     * which rows were wrong. Those are removed and the rest is sent again.
+     * Only if the server doesn't say which rows failed is the chunk split in half,
+     * so a handful of bad rows only costs a few extra calls.
+     */
+    private void importChunkIsolated(RowCollection rows, Map<Row, String> externalIds, List<ImportFailure> failures)
+            throws XmlRpcException {
+        try {
+            importChunk(rows, externalIds);
+            return;
+        } catch (LoadFailedException e) {
+            Map<Integer, String> rejected = e.getRejectedRecords(rows.size());
+            if (!rejected.isEmpty()) {
+                // The server already said which rows are wrong, also when it
+                // is all of them
+                RowCollection remaining = new RowCollection();
+                for (int i = 0; i < rows.size(); i++) {
+                    if (rejected.containsKey(i)) {
+                        failures.add(new ImportFailure(rows.get(i), rejected.get(i)));
+                    } else {
+                        remaining.add(rows.get(i));
+                    }
+                }
+                if (!remaining.isEmpty()) {
+                    importChunkIsolated(remaining, externalIds, failures);
+                }
+                return;
+            }
+            if (rows.size() == 1) {
+                failures.add(new ImportFailure(rows.get(0), e.getMessage()));
+                return;
+            }
+        } catch (OdooApiException e) {
+            // Conversion errors, for example an unknown selection value
+            if (rows.size() == 1) {
+                failures.add(new ImportFailure(rows.get(0), e.getMessage()));
+                return;
+            }
+        }
+
+        int middle = rows.size() / 2;
+        RowCollection firstHalf = new RowCollection();
+        firstHalf.addAll(rows.subList(0, middle));
+        RowCollection secondHalf = new RowCollection();
+        secondHalf.addAll(rows.subList(middle, rows.size()));
+
+        importChunkIsolated(firstHalf, externalIds, failures);
+        importChunkIsolated(secondHalf, externalIds, failures);
     }
 
-    private void importDataLegacy(RowCollection rows, Object[][] importRows)
+    private void importDataLegacy(Object[][] importRows, String[] targetFieldList)
             throws XmlRpcException, OdooApiException {
 
-        String[] targetFieldList = getFieldListForImport(rows.get(0).getFields());
-
         Object[] result = command.importData(modelName, targetFieldList, importRows);
 
         // Should return the number of rows committed. If there was an
@@ -643,39 +841,18 @@ public class ObjectAdapter {
     }
 
     @SuppressWarnings("unchecked")
-    private void importDataV7(RowCollection rows, Object[][] importRows) throws XmlRpcException, OdooApiException {
-
-        String[] targetFieldList = getFieldListForImport(rows.get(0).getFields());
-
-        // Remove the .id field for new rows.
-        if (this.serverVersion.getMajor() >= 7 && !rows.isEmpty() && rows.get(0).getID() == 0) {
-            String[] newTargetFieldList = new String[targetFieldList.length - 1];
-            for (int i = 1; i < targetFieldList.length; i++) {
-                newTargetFieldList[i - 1] = targetFieldList[i];
-            }
-            targetFieldList = newTargetFieldList;
-
-            Object[][] newImportRows = new Object[rows.size()][];
-            for (int i = 0; i < importRows.length; i++) {
-                Object[] newRow = new Object[importRows[i].length - 1];
-                for (int j = 1; j < importRows[i].length; j++) {
-                    newRow[j - 1] = importRows[i][j];
-                }
-                newImportRows[i] = newRow;
-            }
-            importRows = newImportRows;
-        }
+    private void importDataV7(RowCollection rows, Object[][] importRows, String[] targetFieldList)
+            throws XmlRpcException, OdooApiException {
 
         Map<String, Object> results = command.load(modelName, targetFieldList, importRows);
 
         if (results.get("ids") instanceof Boolean) {
             // There was an error. ids is false and not an Object[]
-            Map<String, Object>[] messages = (Map<String, Object>[]) results.get("messages");
-            String errorString = Arrays.stream(messages) // NOSONAR
-                    .flatMap(m -> m.entrySet().stream())
-                    .map(e -> String.join(":", e.getKey(), e.getValue().toString()))
-                    .collect(Collectors.joining("\n"));
-            throw new OdooApiException(errorString);
+            // XML-RPC arrays are returned as Object[] of maps
+            Object[] messages = (Object[]) results.get("messages");
+            throw new LoadFailedException(Arrays.stream(messages)
+                    .map(m -> (Map<String, Object>) m)
+                    .collect(Collectors.toList()));
         }
 
         // Should be in the same order as it was passed in
@@ -686,6 +863,205 @@ public class ObjectAdapter {
         }
     }
 
+    /**
+     * Creates or updates rows by their external ID (XML ID). The row field
+     * externalIdField holds the external ID, either as "module.name" or only a
+     * name, in which case the DEFAULT_EXTERNAL_ID_MODULE is used. The field is
+     * only used as a key and is not sent to the server, so it doesn't have to
+     * exist on the model. For example:
+     *
+     *     FieldCollection fields = adapter.getFields(new String[]{"name", "ref"});
+     *     HashMap<String, Object> xmlIdType = new HashMap<>();
+     *     xmlIdType.put("type", "char");
+     *     fields.add(new Field("xml_id", xmlIdType));
+     *     Row row = adapter.getNewRow(fields);
+     *     row.put("xml_id", "crm_sync.customer_1234");
+     *     ...
+     *     adapter.upsert(rows, "xml_id");
+     *
+     * All external IDs that are not cached yet are resolved with a single read
+     * on ir.model.data. Rows that were found are updated and the others are
+     * created, both as bulk imports, and the database IDs are set on the rows.
+     * New rows are sent with their external ID in the id column of the load
+     * call, so every chunk creates its records and their external IDs in one
+     * server transaction.
+     *
+     * If the upsert fails, the chunks that completed before the failure stay
+     * committed with their external IDs. Calling upsert again with the same
+     * rows updates those records instead of creating them twice.
+     *
+     * Before V7 import_data matches every row by its external ID, so existing
+     * rows are sent with theirs too. import_data doesn't return database IDs,
+     * those of new records are read from ir.model.data after the import.
+     *
+     * Resolved IDs are cached by the adapter. Call clearExternalIdCache if
+     * records may have been deleted by other clients.
+     *
+     * @param rows Rows to create or update
+     * @param externalIdField Name of the row field that holds the external ID
+     * @return The import result with database IDs in the same order as the rows
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public ImportResult upsert(RowCollection rows, String externalIdField) throws OdooApiException, XmlRpcException {
+        return upsert(rows, externalIdField, new ImportOptions());
+    }
+
+    /**
+     * Creates or updates rows by their external ID (XML ID). See
+     * upsert(RowCollection, String).
+     *
+     * @param rows Rows to create or update
+     * @param externalIdField Name of the row field that holds the external ID
+     * @param options Chunk and failure settings for the imports
+     * @return The import result with database IDs in the same order as the rows
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public ImportResult upsert(RowCollection rows, String externalIdField, ImportOptions options)
+            throws OdooApiException, XmlRpcException {
+        if (rows.isEmpty()) {
+            return new ImportResult(rows, 0, Collections.emptyList());
+        }
+
+        String[] externalIds = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object value = rows.get(i).get(externalIdField);
+            if (value == null || value.toString().isEmpty()) {
+                throw new OdooApiException("Row " + i + " doesn't have an external ID in field '" + externalIdField + "'");
+            }
+            externalIds[i] = qualifyExternalId(value.toString());
+        }
+
+        Map<String, Integer> resolvedIds = resolveExternalIds(externalIds);
+
+        // The external ID field is not a model field, leave it out of the import
+        FieldCollection importFields = new FieldCollection();
+        for (Field fld : rows.get(0).getFields()) {
+            if (!fld.getName().equals(externalIdField)) {
+                importFields.add(fld);
+            }
+        }
+
+        RowCollection importRows = new RowCollection();
+        Map<Row, Row> originalRows = new IdentityHashMap<>();
+        Map<Row, String> rowExternalIds = new IdentityHashMap<>();
+        Map<Row, String> newExternalIds = new IdentityHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            HashMap<String, Object> values = new HashMap<>();
+            for (Field fld : importFields) {
+                values.put(fld.getName(), rows.get(i).get(fld));
+            }
+            Integer id = resolvedIds.get(externalIds[i]);
+            values.put("id", id == null ? 0 : id);
+
+            Row importRow = new Row(values, importFields);
+            importRows.add(importRow);
+            originalRows.put(importRow, rows.get(i));
+            rowExternalIds.put(importRow, externalIds[i]);
+            if (id == null) {
+                newExternalIds.put(importRow, externalIds[i]);
+            }
+        }
+
+        ImportResult importResult;
+        try {
+            importResult = importData(importRows, options, rowExternalIds);
+        } finally {
+            // Also after a failure, for the chunks that were committed
+            for (Map.Entry<Row, String> entry : newExternalIds.entrySet()) {
+                int id = entry.getKey().getID();
+                if (id != 0) {
+                    externalIdCache.put(entry.getValue(), id);
+                }
+            }
+        }
+
+        Set<Row> failedRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ImportFailure> failures = new ArrayList<>();
+        for (ImportFailure failure : importResult.getFailures()) {
+            failedRows.add(failure.getRow());
+            failures.add(new ImportFailure(originalRows.get(failure.getRow()), failure.getMessage()));
+        }
+
+        if (this.serverVersion.getMajor() < 7 && !newExternalIds.isEmpty()) {
+            Map<String, Integer> createdIds = resolveExternalIds(
+                    newExternalIds.values().toArray(new String[newExternalIds.size()]));
+            for (Map.Entry<Row, String> entry : newExternalIds.entrySet()) {
+                Integer id = createdIds.get(entry.getValue());
+                if (id != null) {
+                    entry.getKey().put("id", id);
+                }
+            }
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            Row importRow = importRows.get(i);
+            if (!failedRows.contains(importRow)) {
+                rows.get(i).put("id", importRow.get("id"));
+            }
+        }
+
+        return new ImportResult(rows, importResult.getChunkCount(), failures);
+    }
+
+    /**
+     * Clears the external ID cache used by upsert
+     */
+    public void clearExternalIdCache() {
+        externalIdCache.clear();
+    }
+
+    private static String qualifyExternalId(String externalId) {
+        return externalId.indexOf('.') > 0 ? externalId : DEFAULT_EXTERNAL_ID_MODULE + "." + externalId;
+    }
+
+    /**
+     * Returns the database IDs for the external IDs that exist. External IDs
+     * that are not in the cache are fetched with one search_read call.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> resolveExternalIds(String[] externalIds) throws XmlRpcException {
+        Map<String, Integer> resolved = new HashMap<>();
+        Set<String> modules = new HashSet<>();
+        Set<String> names = new HashSet<>();
+
+        for (String externalId : externalIds) {
+            Integer id = externalIdCache.get(externalId);
+            if (id != null) {
+                resolved.put(externalId, id);
+            } else {
+                int dot = externalId.indexOf('.');
+                modules.add(externalId.substring(0, dot));
+                names.add(externalId.substring(dot + 1));
+            }
+        }
+
+        if (names.isEmpty()) {
+            return resolved;
+        }
+
+        Object[] filter = new Object[]{
+            new Object[]{"model", "=", modelName},
+            new Object[]{"module", "in", modules.toArray()},
+            new Object[]{"name", "in", names.toArray()}};
+        Object[] results = command.searchReadObject("ir.model.data", filter, new String[]{"module", "name", "res_id"},
+                -1, -1, null);
+
+        Set<String> wanted = new HashSet<>(Arrays.asList(externalIds));
+        for (Object result : results) {
+            Map<String, Object> data = (Map<String, Object>) result;
+            // module in (...) and name in (...) can match combinations that weren't asked for
+            String externalId = data.get("module") + "." + data.get("name");
+            if (wanted.contains(externalId)) {
+                int id = Integer.parseInt(data.get("res_id").toString());
+                resolved.put(externalId, id);
+                externalIdCache.put(externalId, id);
+            }
+        }
+        return resolved;
+    }
+
     /**
      * Gets the number of records that satisfies the filter
      *
@@ -696,9 +1072,29 @@ public class ObjectAdapter {
      * @throws OdooApiException
      */
     public int getObjectCount(FilterCollection filter) throws XmlRpcException, OdooApiException {
-        Integer count =0 ;
-        Object[] preparedFilters = validateFilters(filter);
-        
+        return getObjectCount(validateFilters(filter));
+    }
+
+    /**
+     * Gets the number of records that satisfies a prepared domain
+     *
+     * @param domain Domain returned by prepareDomain
+     * @param parameters Values for the parameters of the domain, by name
+     * @return The number of record count.
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public int getObjectCount(PreparedDomain domain, Map<String, Object> parameters)
+            throws XmlRpcException, OdooApiException {
+        return getObjectCount(domain.bind(parameters));
+    }
+
+    private int getObjectCount(Object[] preparedFilters) throws XmlRpcException, OdooApiException {
+        if (DomainSplitter.findOversizedTerm(preparedFilters, filterSplitSize) >= 0) {
+            return splitSearch(preparedFilters, filterSplitConcurrency).size();
+        }
+
+        Integer count = 0;
         Response response = command.searchObject(modelName, preparedFilters, -1, -1, null, true);
         if (response.isSuccessful()) {
             count = Integer.parseInt(response.getResponseObject().toString());
@@ -739,16 +1135,425 @@ public class ObjectAdapter {
      */
     public RowCollection searchAndReadObject(final FilterCollection filter, final String[] fields, int offset,
             int limit, String order) throws XmlRpcException, OdooApiException {
+        return searchAndReadObject(validateFilters(filter), fields, offset, limit, order);
+    }
+
+    /**
+     * Combines the searchObject and readObject calls for a prepared domain.
+     * Only the parameter values are converted, the filters were validated when
+     * the domain was prepared.
+     *
+     * @param domain Domain returned by prepareDomain
+     * @param parameters Values for the parameters of the domain, by name
+     * @param fields List of fields to return data for
+     * @param offset Number of records to skip. -1 for no offset.
+     * @param limit Maximum number of rows to return. -1 for no limit.
+     * @param order Field name to order on
+     * @return A collection of rows for an Odoo object
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public RowCollection searchAndReadObject(final PreparedDomain domain, final Map<String, Object> parameters,
+            final String[] fields, int offset, int limit, String order) throws XmlRpcException, OdooApiException {
+        return searchAndReadObject(domain.bind(parameters), fields, offset, limit, order);
+    }
+
+    private RowCollection searchAndReadObject(final Object[] preparedFilters, final String[] fields, int offset,
+            int limit, String order) throws XmlRpcException, OdooApiException {
 
         String[] fieldArray = fields == null ? new String[]{} : fields;
-        Object[] preparedFilters = validateFilters(filter);
+
+        QueryCache cache = getQueryCache();
+        String cacheKey = null;
+        long cacheGeneration = 0;
+        if (cache != null) {
+            cacheKey = QueryCache.key(modelName, preparedFilters, fieldArray, offset, limit, order,
+                    command.getSession().getContext());
+            Object[] cached = cache.get(cacheKey);
+            if (cached != null) {
+                return toRows(cached, getFieldsByName(fieldArray));
+            }
+            cacheGeneration = cache.getGeneration(modelName);
+        }
+
         Object[] idList = null;
-        Response response = command.searchObject(modelName, preparedFilters, offset, limit, order, false);
-        if (response.isSuccessful()) {
-            idList = response.getResponseObjectAsArray();
+        // Only the server knows the order of many2one and text values, so
+        // ordered or paged searches are never split
+        boolean unordered = (order == null || order.isEmpty()) && offset <= 0 && limit <= 0;
+        if (unordered && DomainSplitter.findOversizedTerm(preparedFilters, filterSplitSize) >= 0) {
+            List<Object> ids = new ArrayList<>(splitSearch(preparedFilters, filterSplitConcurrency));
+            ids.sort(Comparator.comparingInt(id -> Integer.parseInt(id.toString())));
+            idList = ids.toArray();
+        } else {
+            Response response = command.searchObject(modelName, preparedFilters, offset, limit, order, false);
+            if (response.isSuccessful()) {
+                idList = response.getResponseObjectAsArray();
+            }
         }
-        return readObject(idList, fieldArray);
 
+        if (cache == null) {
+            return readObject(idList, fieldArray);
+        }
+        Object[] results = readChunked(idList, fieldArray);
+        if (results != null) {
+            cache.put(modelName, cacheKey, results, fieldArray.length, cacheGeneration);
+        }
+        return toRows(results, getFieldsByName(fieldArray));
+
+    }
+
+    /**
+     * Searches and reads records without the query and record caches, for
+     * readers that look for changes made by other clients
+     */
+    RowCollection searchAndReadUncached(FilterCollection filter, String[] fields, int limit, String order)
+            throws XmlRpcException, OdooApiException {
+        Response response = command.searchObject(modelName, validateFilters(filter), -1, limit, order, false);
+        if (!response.isSuccessful()) {
+            Throwable cause = response.getErrorCause();
+            if (cause instanceof XmlRpcException) {
+                throw (XmlRpcException) cause;
+            }
+            throw new OdooApiException(cause.getMessage(), cause);
+        }
+        return new RowCollection(readChunked(response.getResponseObjectAsArray(), fields), getFieldsByName(fields));
+    }
+
+    /**
+     * Refreshes rows that were changed on the server. Only the write_date of
+     * the records is read first; rows with a different write_date, or that
+     * were read without write_date, are read again with all their fields.
+     * Fields with pending changes keep their changed value.
+     *
+     * @param rows Rows read earlier from this model
+     * @return The rows that were refreshed and the rows of deleted records
+     * @throws XmlRpcException
+     * @throws OdooApiException if the model has no write_date field
+     */
+    @SuppressWarnings("unchecked")
+    public RevalidationResult revalidate(RowCollection rows) throws XmlRpcException, OdooApiException {
+        if (!fieldsByName.containsKey("write_date")) {
+            throw new OdooApiException("Model " + modelName + " has no write_date field");
+        }
+
+        final Object[] ids = rows.stream().filter(row -> row.getID() > 0).map(row -> (Object) row.getID())
+                .distinct().toArray();
+        final int chunkSize = filterSplitSize > 0 ? filterSplitSize : Math.max(1, ids.length);
+        final boolean hasActive = fieldsByName.containsKey("active");
+        List<Object[]> chunks = ChunkRunner.run("revalidate", (ids.length + chunkSize - 1) / chunkSize,
+                filterSplitConcurrency, chunkIndex -> () -> {
+                    Object[] idFilter = new Object[]{"id", "in", Arrays.copyOfRange(ids, chunkIndex * chunkSize,
+                            Math.min(ids.length, (chunkIndex + 1) * chunkSize))};
+                    // Archived records still exist
+                    Object[] domain = hasActive ? new Object[]{"|", new Object[]{"active", "=", true},
+                        new Object[]{"active", "=", false}, idFilter} : new Object[]{idFilter};
+                    return command.searchReadObject(modelName, domain, new String[]{"write_date"}, -1, -1, null);
+                });
+
+        Map<Integer, Object> writeDates = new HashMap<>();
+        for (Object[] chunk : chunks) {
+            for (Object result : chunk) {
+                Map<String, Object> values = (Map<String, Object>) result;
+                writeDates.put(Integer.parseInt(values.get("id").toString()), values.get("write_date"));
+            }
+        }
+
+        List<Row> deletedRows = new ArrayList<>();
+        Map<List<String>, List<Row>> changedRows = new LinkedHashMap<>();
+        for (Row row : rows) {
+            if (row.getID() <= 0) {
+                continue;
+            }
+            if (!writeDates.containsKey(row.getID())) {
+                deletedRows.add(row);
+            } else if (!Objects.equals(row.getRawValue("write_date"), writeDates.get(row.getID()))) {
+                Set<String> fields = new LinkedHashSet<>();
+                for (Field field : row.getFields()) {
+                    fields.add(field.getName());
+                }
+                fields.add("write_date");
+                changedRows.computeIfAbsent(new ArrayList<>(fields), key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        List<Row> refreshedRows = new ArrayList<>();
+        for (Entry<List<String>, List<Row>> changed : changedRows.entrySet()) {
+            Object[] changedIds = changed.getValue().stream().map(row -> (Object) row.getID()).distinct().toArray();
+            Map<Integer, Map<String, Object>> results = new HashMap<>();
+            for (Object result : readChunked(changedIds, changed.getKey().toArray(new String[0]))) {
+                Map<String, Object> values = (Map<String, Object>) result;
+                results.put(Integer.parseInt(values.get("id").toString()), values);
+            }
+            for (Row row : changed.getValue()) {
+                Map<String, Object> values = results.get(row.getID());
+                if (values == null) {
+                    // Deleted after its write_date was read
+                    deletedRows.add(row);
+                } else {
+                    row.refresh(values);
+                    refreshedRows.add(row);
+                }
+            }
+        }
+
+        if (command.getSession() != null && !(refreshedRows.isEmpty() && deletedRows.isEmpty())) {
+            // The caches hold the same stale values
+            if (command.getSession().getQueryCache() != null) {
+                command.getSession().getQueryCache().invalidate(modelName);
+            }
+            if (command.getSession().getRecordCache() != null) {
+                Object[] staleIds = Stream.concat(refreshedRows.stream(), deletedRows.stream())
+                        .map(row -> (Object) row.getID()).toArray();
+                command.getSession().getRecordCache().invalidate(modelName, staleIds);
+            }
+        }
+
+        return new RevalidationResult(refreshedRows, deletedRows, ids.length);
+    }
+
+    /**
+     * Returns the IDs of the records that satisfy a filter, unordered
+     */
+    Object[] searchIds(FilterCollection filter) throws XmlRpcException, OdooApiException {
+        return splitSearch(validateFilters(filter), filterSplitConcurrency).toArray();
+    }
+
+    boolean hasField(String fieldName) {
+        return fieldsByName.containsKey(fieldName);
+    }
+
+    /**
+     * Searches a domain with an oversized 'in' or 'not in' list by splitting
+     * the list into chunks that are searched concurrently. Other oversized
+     * lists in the chunk domains are split again on the calling thread.
+     *
+     * @return The IDs that match the domain, unordered
+     */
+    private List<Object> splitSearch(final Object[] preparedFilters, int concurrency)
+            throws XmlRpcException, OdooApiException {
+        final int termIndex = DomainSplitter.findOversizedTerm(preparedFilters, filterSplitSize);
+        if (termIndex < 0) {
+            Response response = command.searchObject(modelName, preparedFilters, -1, -1, null, false);
+            if (!response.isSuccessful()) {
+                Throwable cause = response.getErrorCause();
+                if (cause instanceof XmlRpcException) {
+                    throw (XmlRpcException) cause;
+                }
+                throw new OdooApiException(cause.getMessage(), cause);
+            }
+            return Arrays.asList(response.getResponseObjectAsArray());
+        }
+
+        final int chunkSize = filterSplitSize;
+        List<Object[]> chunkIds = ChunkRunner.run("search",
+                DomainSplitter.chunkCount(preparedFilters, termIndex, chunkSize), concurrency,
+                chunkIndex -> () -> splitSearch(DomainSplitter.chunk(preparedFilters, termIndex, chunkSize, chunkIndex),
+                        1).toArray());
+        return DomainSplitter.combine(chunkIds, DomainSplitter.isNegated(preparedFilters, termIndex));
+    }
+
+    /**
+     * Sets the longest 'in' or 'not in' value list that is sent in one search.
+     * Searches, counts and reads with longer lists are split into chunks that
+     * run concurrently and the results are combined client side. Split search
+     * results come in ID order. Searches with an order, offset or limit are
+     * never split, the server orders many2one fields by the related model and
+     * text by its collation, which can't be done client side. 0, the default,
+     * disables splitting and sends every list in one request.
+     *
+     * @param filterSplitSize Maximum number of values per request
+     */
+    public void setFilterSplitSize(int filterSplitSize) {
+        this.filterSplitSize = filterSplitSize;
+    }
+
+    public int getFilterSplitSize() {
+        return filterSplitSize;
+    }
+
+    /**
+     * Sets the number of chunks of a split search or read that run at the same
+     * time
+     *
+     * @param filterSplitConcurrency Number of concurrent requests. 1 runs the
+     * chunks one after the other.
+     */
+    public void setFilterSplitConcurrency(int filterSplitConcurrency) {
+        this.filterSplitConcurrency = filterSplitConcurrency;
+    }
+
+    public int getFilterSplitConcurrency() {
+        return filterSplitConcurrency;
+    }
+
+    /**
+     * Enables caching of searchAndReadObject results in the QueryCache of the
+     * session. Without a QueryCache on the session nothing is cached.
+     *
+     * @param queryCacheEnabled
+     */
+    public void setQueryCacheEnabled(boolean queryCacheEnabled) {
+        this.queryCacheEnabled = queryCacheEnabled;
+    }
+
+    public boolean isQueryCacheEnabled() {
+        return queryCacheEnabled;
+    }
+
+    /**
+     * Enables reading records by ID through the RecordCache of the session.
+     * Without a RecordCache on the session nothing is cached.
+     *
+     * @param recordCacheEnabled
+     */
+    public void setRecordCacheEnabled(boolean recordCacheEnabled) {
+        this.recordCacheEnabled = recordCacheEnabled;
+    }
+
+    public boolean isRecordCacheEnabled() {
+        return recordCacheEnabled;
+    }
+
+    /**
+     * Combines readObject calls from different threads. Reads for the same
+     * fields that arrive within the window are sent as one read call, or
+     * straight away once maxBatchSize IDs are collected. Each caller waits at
+     * most the window before its read is sent.
+     *
+     * @param windowMillis Time to collect reads, 0 to disable batching
+     * @param maxBatchSize Number of IDs that are read in one call at most
+     */
+    public void setReadBatching(long windowMillis, int maxBatchSize) {
+        this.readBatcher = windowMillis > 0 ? new ReadBatcher(this::readCached, windowMillis, maxBatchSize) : null;
+    }
+
+    /**
+     * Loads fields on demand. Getting a field that was not read from a row
+     * reads that field for all rows of the collection the row was read in,
+     * with one call.
+     * <p>
+     * Row.get can't throw checked exceptions, so if that call fails it
+     * throws an unchecked IllegalStateException with the XmlRpcException or
+     * OdooApiException as its cause.
+     *
+     * @param lazyLoading
+     */
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Records which fields of the rows read by this adapter are used
+     *
+     * @param fieldAccessProfiler Profiler to record to, null to stop recording
+     */
+    public void setFieldAccessProfiler(FieldAccessProfiler fieldAccessProfiler) {
+        this.fieldAccessProfiler = fieldAccessProfiler;
+    }
+
+    public FieldAccessProfiler getFieldAccessProfiler() {
+        return fieldAccessProfiler;
+    }
+
+    private RecordCache getRecordCache() {
+        if (!recordCacheEnabled || command.getSession() == null) {
+            return null;
+        }
+        return command.getSession().getRecordCache();
+    }
+
+    private QueryCache getQueryCache() {
+        if (!queryCacheEnabled || command.getSession() == null) {
+            return null;
+        }
+        return command.getSession().getQueryCache();
+    }
+
+    /**
+     * Groups the records that satisfy the filter and aggregates their values
+     * on the server, in stead of reading all rows. All group by fields are
+     * applied at once.
+     *
+     * @param filter A filter collection that contains a list of filters to be
+     * applied
+     * @param aggregates Fields to aggregate, for example "balance:sum". A field
+     * without a function uses the aggregate defined on the field.
+     * @param groupBy Fields to group on, for example "partner_id" or
+     * "date:month"
+     * @return The groups
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public GroupCollection readGroup(FilterCollection filter, String[] aggregates, String[] groupBy)
+            throws XmlRpcException, OdooApiException {
+        return readGroup(filter, aggregates, groupBy, -1, -1, null, false, false);
+    }
+
+    /**
+     * Groups the records that satisfy the filter and aggregates their values
+     * on the server. Use offset and limit to page through a large number of
+     * groups; a page with less than limit groups is the last one.
+     *
+     * @param filter A filter collection that contains a list of filters to be
+     * applied
+     * @param aggregates Fields to aggregate, for example "balance:sum"
+     * @param groupBy Fields to group on, for example "partner_id" or
+     * "date:month"
+     * @param offset Number of groups to skip. -1 for no offset.
+     * @param limit Maximum number of groups to return. -1 for no limit.
+     * @param orderBy Order of the groups, for example "balance desc"
+     * @param lazy Only group on the first group by field. The other fields can
+     * be applied per group with Group.getDomain() and
+     * Group.getRemainingGroupBy().
+     * @param expand With lazy grouping, also read the sub groups of every group
+     * with one call per group. Sub groups are not paged.
+     * @return The groups
+     * @throws XmlRpcException
+     * @throws OdooApiException
+     */
+    public GroupCollection readGroup(FilterCollection filter, String[] aggregates, String[] groupBy, int offset,
+            int limit, String orderBy, boolean lazy, boolean expand) throws XmlRpcException, OdooApiException {
+        if (groupBy == null || groupBy.length == 0) {
+            throw new OdooApiException("At least one group by field is required");
+        }
+        String[] fields = aggregates == null ? new String[0] : aggregates;
+        for (String specification : fields) {
+            checkGroupField(Group.sourceField(specification));
+        }
+        for (String specification : groupBy) {
+            checkGroupField(Group.fieldName(specification));
+        }
+
+        return readGroup(validateFilters(filter), fields, groupBy, offset, limit, orderBy, lazy, expand);
+    }
+
+    private GroupCollection readGroup(Object[] preparedFilters, String[] aggregates, String[] groupBy, int offset,
+            int limit, String orderBy, boolean lazy, boolean expand) throws XmlRpcException, OdooApiException {
+        // Group by fields are returned anyway, asking for them keeps older servers happy
+        String[] fields = Stream.concat(Arrays.stream(aggregates), Arrays.stream(groupBy).map(Group::fieldName))
+                .distinct().toArray(String[]::new);
+        GroupCollection groups = new GroupCollection(
+                command.readGroup(modelName, preparedFilters, fields, groupBy, offset, limit, orderBy, lazy));
+
+        if (lazy && expand) {
+            for (Group group : groups) {
+                String[] remaining = group.getRemainingGroupBy();
+                if (remaining.length > 0) {
+                    group.setSubGroups(readGroup(group.getDomain(), aggregates, remaining, -1, -1, orderBy, true, true));
+                }
+            }
+        }
+        return groups;
+    }
+
+    private void checkGroupField(String fieldName) throws OdooApiException {
+        if (!"id".equals(fieldName) && !fieldsByName.containsKey(fieldName)) {
+            throw new OdooApiException("Unknown field " + fieldName + " on " + modelName);
+        }
     }
 
     private Object formatValueForWrite(Field fld, Object value) {
@@ -842,6 +1647,113 @@ public class ObjectAdapter {
         return returnValues;
     }
 
+    /**
+     * Writes a collection of rows like writeObject(RowCollection, boolean),
+     * but rows that write exactly the same values are updated together in one
+     * call. Use it when the rows don't depend on being written in order.
+     *
+     * Groups are written in the order of their first row, so rows are not
+     * written in the order of the collection. If the call for a group fails,
+     * the rows of the group are written one by one and the first row that
+     * fails throws an OdooApiException, as when every row is written by
+     * itself. Rows of groups written before the failure stay written, even if
+     * they come after the failing row in the collection. If a record appears
+     * twice, all rows are written one by one in order.
+     *
+     * @param rows Row collection to submit
+     * @param changesOnly Only changed values will be submitted to the database.
+     * @return An array of logicals. One for each row to indicate if the update
+     * was successful
+     * @throws OdooApiException
+     * @throws XmlRpcException
+     */
+    public Boolean[] writeObjectGrouped(final RowCollection rows, final boolean changesOnly)
+            throws OdooApiException, XmlRpcException {
+        Boolean[] returnValues = new Boolean[rows.size()];
+
+        // Group rows by the values they write, keeping the order groups were seen in
+        Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+        Map<List<Object>, Map<String, Object>> groupValues = new HashMap<>();
+        Set<Integer> ids = new HashSet<>();
+        boolean duplicateIds = false;
+
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            Object idObj = row.get("id");
+            if (idObj == null || Integer.parseInt(idObj.toString()) <= 0) {
+                throw new OdooApiException("Please set the id field with the database ID of the object");
+            }
+            duplicateIds |= !ids.add(Integer.parseInt(idObj.toString()));
+
+            Map<String, Object> valueList = collectValues(row, changesOnly);
+            if (valueList.isEmpty()) {
+                returnValues[i] = false;
+                continue;
+            }
+            List<Object> key = valuesKey(valueList);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            groupValues.putIfAbsent(key, valueList);
+        }
+
+        // The same record in different groups could be written out of order
+        if (duplicateIds) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (returnValues[i] == null) {
+                    returnValues[i] = writeObject(rows.get(i), changesOnly);
+                }
+            }
+            return returnValues;
+        }
+
+        for (Entry<List<Object>, List<Integer>> group : groups.entrySet()) {
+            List<Integer> rowIndexes = group.getValue();
+            Object[] groupIds = rowIndexes.stream().map(i -> rows.get(i).getID()).toArray();
+
+            boolean success;
+            try {
+                success = command.writeObject(modelName, groupIds, groupValues.get(group.getKey()));
+            } catch (XmlRpcException e) {
+                // Find the row that fails
+                for (int i : rowIndexes) {
+                    returnValues[i] = writeObject(rows.get(i), changesOnly);
+                }
+                continue;
+            }
+            for (int i : rowIndexes) {
+                if (success) {
+                    rows.get(i).changesApplied();
+                }
+                returnValues[i] = success;
+            }
+        }
+
+        return returnValues;
+    }
+
+    /**
+     * Builds a key that is equal for value maps with the same field names and
+     * values, including array values.
+     */
+    private static List<Object> valuesKey(Map<String, Object> valueList) {
+        List<Object> key = new ArrayList<>();
+        for (Entry<String, Object> entry : new TreeMap<>(valueList).entrySet()) {
+            key.add(entry.getKey());
+            key.add(arrayToList(entry.getValue()));
+        }
+        return key;
+    }
+
+    private static Object arrayToList(Object value) {
+        if (value instanceof Object[]) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (Object[]) value) {
+                list.add(arrayToList(element));
+            }
+            return list;
+        }
+        return value;
+    }
+
     /**
      * Writes a Row to the database by calling the write function on the object
      * the Row is holding data for
@@ -882,7 +1794,7 @@ public class ObjectAdapter {
 
     }
 
-    private Map<String, Object> collectValues(final Row row, boolean changesOnly) {
+    Map<String, Object> collectValues(final Row row, boolean changesOnly) {
         Map<String, Object> valueList = new HashMap<>();
         FieldCollection fields;
         if (changesOnly) {
@@ -1054,10 +1966,15 @@ public class ObjectAdapter {
     public boolean unlinkObject(RowCollection rows) throws XmlRpcException {
 
         Object[] ids = new Object[rows.size()];
+        Set<Integer> idSet = new HashSet<>();
         for (int i = 0; i < rows.size(); i++) {
             ids[i] = rows.get(i).getID();
+            idSet.add(rows.get(i).getID());
         }
 
+        // Odoo removes the external IDs of deleted records
+        externalIdCache.values().removeIf(idSet::contains);
+
         return this.command.unlinkObject(this.modelName, ids);
     }
 
@@ -1073,4 +1990,53 @@ public class ObjectAdapter {
         rows.add(row);
         return this.unlinkObject(rows);
     }
+
+    /**
+     * Thrown when the load function rejected a call. Keeps the messages so
+     * that the rows the server reported on can be identified.
+     */
+    private static class LoadFailedException extends OdooApiException {
+
+        private static final long serialVersionUID = -2760164407096434123L;
+
+        private final List<Map<String, Object>> messages;
+
+        LoadFailedException(List<Map<String, Object>> messages) {
+            super(formatMessages(messages.stream()));
+            this.messages = messages;
+        }
+
+        private static String formatMessages(Stream<Map<String, Object>> messages) {
+            return messages // NOSONAR
+                    .flatMap(m -> m.entrySet().stream())
+                    .map(e -> String.join(":", e.getKey(), e.getValue().toString()))
+                    .collect(Collectors.joining("\n"));
+        }
+
+        /**
+         * Returns the error messages per row index for the rows that were
+         * reported. Warnings don't cause the load to be rolled back and are
+         * ignored.
+         */
+        Map<Integer, String> getRejectedRecords(int rowCount) {
+            Map<Integer, List<Map<String, Object>>> byRecord = new HashMap<>();
+            for (Map<String, Object> message : messages) {
+                Object record = message.get("record");
+                Object type = message.get("type");
+                if (!(record instanceof Integer) || (type != null && !"error".equals(type))) {
+                    continue;
+                }
+                int index = (Integer) record;
+                if (index >= 0 && index < rowCount) {
+                    byRecord.computeIfAbsent(index, i -> new ArrayList<>()).add(message);
+                }
+            }
+
+            Map<Integer, String> rejected = new HashMap<>();
+            for (Entry<Integer, List<Map<String, Object>>> entry : byRecord.entrySet()) {
+                rejected.put(entry.getKey(), formatMessages(entry.getValue().stream()));
+            }
+            return rejected;
+        }
+    }
 }
@@ -43,6 +43,13 @@ public class OdooCommand {
         this.session = session;
     }
 
+    /**
+     * Returns the session the commands are sent through
+     */
+    Session getSession() {
+        return session;
+    }
+
     /**
      * Searches for objects that satisfies the filter. These IDs are typically
      * used in a following readObject call to the server to get the data
@@ -94,6 +101,67 @@ public class OdooCommand {
         }
     }
 
+    /**
+     * Searches for objects that satisfies the filter and reads their data in
+     * one call to the server (search_read).
+     *
+     * @param objectName The object name to do a search for
+     * @param filter A filter array that contains a list of filters to be
+     * applied.
+     * @param fields List of fields to return data for
+     * @param offset Number of records to skip. -1 for no offset.
+     * @param limit Maximum number of rows to return. -1 for no limit.
+     * @param order Field name to order on
+     * @return An array of field-value maps, one for each object found
+     * @throws XmlRpcException
+     */
+    public Object[] searchReadObject(String objectName, Object[] filter, String[] fields, int offset, int limit,
+            String order) throws XmlRpcException {
+        Object offsetParam = offset < 0 ? 0 : offset;
+        Object limitParam = limit < 0 ? false : limit;
+        Object orderParam = order == null || order.length() == 0 ? false : order;
+        if (this.session.getServerVersion().getMajor() < 10) {
+            return (Object[]) session.executeCommand(objectName, "search_read",
+                    new Object[]{filter, fields, offsetParam, limitParam, orderParam, session.getContext()});
+        } else {
+            return (Object[]) session.executeCommandWithContext(objectName, "search_read",
+                    new Object[]{filter, fields, offsetParam, limitParam, orderParam});
+        }
+    }
+
+    /**
+     * Groups objects that satisfy the filter and aggregates their values on
+     * the server (read_group).
+     *
+     * @param objectName The object name to group
+     * @param filter A filter array that contains a list of filters to be
+     * applied.
+     * @param fields Fields to aggregate, for example "amount:sum"
+     * @param groupBy Fields to group on, for example "partner_id" or
+     * "date:month"
+     * @param offset Number of groups to skip. -1 for no offset.
+     * @param limit Maximum number of groups to return. -1 for no limit.
+     * @param orderBy Order of the groups
+     * @param lazy Only group on the first group by field and leave the others
+     * for a next call
+     * @return An array of maps, one for each group
+     * @throws XmlRpcException
+     */
+    public Object[] readGroup(String objectName, Object[] filter, String[] fields, String[] groupBy, int offset,
+            int limit, String orderBy, boolean lazy) throws XmlRpcException {
+        Object offsetParam = offset < 0 ? 0 : offset;
+        Object limitParam = limit < 0 ? false : limit;
+        Object orderParam = orderBy == null || orderBy.length() == 0 ? false : orderBy;
+        // Before Odoo 10 there's a 'context' parameter between limit and orderby
+        if (this.session.getServerVersion().getMajor() < 10) {
+            return (Object[]) session.executeCommand(objectName, "read_group",
+                    new Object[]{filter, fields, groupBy, offsetParam, limitParam, session.getContext(), orderParam, lazy});
+        } else {
+            return (Object[]) session.executeCommandWithContext(objectName, "read_group",
+                    new Object[]{filter, fields, groupBy, offsetParam, limitParam, orderParam, lazy});
+        }
+    }
+
     /**
      * Fetches field information for an object n Odoo
      *
@@ -159,6 +227,23 @@ public class OdooCommand {
 
     }
 
+    /**
+     * Updates the same values on a number of objects in one call
+     *
+     * @param objectName Name of the object to update
+     * @param ids Database ID numbers of the objects to update
+     * @param valueList Field/Value pairs to update on the objects
+     * @return True if the update was successful
+     * @throws XmlRpcException
+     */
+    public boolean writeObject(String objectName, Object[] ids, Map<String, Object> valueList) throws XmlRpcException {
+        if (this.session.getServerVersion().getMajor() < 10) {
+            return (Boolean) session.executeCommand(objectName, "write", new Object[]{ids, valueList});
+        } else {
+            return (Boolean) session.executeCommandWithContext(objectName, "write", new Object[]{ids, valueList});
+        }
+    }
+
     /**
      * Calls the import function on the server to bulk create/update records
      *
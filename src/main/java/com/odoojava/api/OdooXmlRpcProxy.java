@@ -101,6 +101,8 @@ public class OdooXmlRpcProxy extends XmlRpcClient {
 			break;
 		}
 
+		// Same transport as the default, it can also count bytes for RpcMetrics
+		this.setTransportFactory(new MeteredTransportFactory(this));
 		useProxyIfAvailable(protocol);
 
 		XmlRpcClientConfigImpl xmlrpcConfigLogin = new XmlRpcClientConfigImpl();
@@ -119,6 +121,17 @@ public class OdooXmlRpcProxy extends XmlRpcClient {
 		this.setConfig(xmlrpcConfigLogin);
 	}
 
+	/**
+	 * Sets the timeouts of the calls made through this proxy
+	 * @param connectTimeoutMillis Time to wait for a connection, 0 to wait without limit
+	 * @param replyTimeoutMillis Time to wait for data of the reply, 0 to wait without limit
+	 */
+	void setTimeouts(int connectTimeoutMillis, int replyTimeoutMillis) {
+		XmlRpcClientConfigImpl config = (XmlRpcClientConfigImpl) getClientConfig();
+		config.setConnectionTimeout(connectTimeoutMillis);
+		config.setReplyTimeout(replyTimeoutMillis);
+	}
+
 	void useProxyIfAvailable(RPCProtocol protocol) {
 		// If a proxy is defined, use it:
 		XmlRpcTransportFactory factory = this.getTransportFactory();
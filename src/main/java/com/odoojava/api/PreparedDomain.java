@@ -0,0 +1,268 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.odoojava.api.Field.FieldType;
+import com.odoojava.api.helpers.FilterHelper;
+
+/**
+ * A filter collection that was validated against the fields of a model once,
+ * so that it can be executed many times with different values.
+ *
+ * Field lookups, function field checks and the type conversions that apply to
+ * each filter are worked out when the domain is prepared. Values can be left
+ * open with a parameter and supplied when the domain is executed:
+ *
+ * 		FilterCollection filters = new FilterCollection();
+ *		filters.add("state", "=", "done");
+ *		filters.add("partner_id", "in", PreparedDomain.parameter("partners"));
+ *		PreparedDomain domain = adapter.prepareDomain(filters);
+ *
+ *		Map<String, Object> values = new HashMap<String, Object>();
+ *		values.put("partners", new Object[] {7, 9});
+ *		RowCollection rows = adapter.searchAndReadObject(domain, values, fields, -1, -1, null);
+ *
+ * A PreparedDomain can't be changed after it was prepared and can be shared between threads.
+ */
+public class PreparedDomain {
+
+	// Split by , where the , isn't preceded by a \
+	private static final Pattern CSV_SEPARATOR = Pattern.compile("(?<!\\\\),");
+
+	private final Object[] elements;
+	private final Set<String> parameterNames;
+
+	/**
+	 * Placeholder for a filter value that is supplied when the domain is executed
+	 */
+	public static final class Parameter {
+		private final String name;
+
+		private Parameter(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return ":" + name;
+		}
+	}
+
+	/**
+	 * Creates a placeholder to use as a filter value in a FilterCollection
+	 * @param name Name the value will be bound with
+	 * @return
+	 */
+	public static Parameter parameter(String name) {
+		if (name == null)
+			throw new IllegalArgumentException("Parameter name is mandatory");
+		return new Parameter(name);
+	}
+
+	/**
+	 * Prepares a filter collection against the fields of a model
+	 * @param filters Filters to prepare
+	 * @param fieldsByName All fields of the model by name
+	 * @throws OdooApiException if a filter is not valid for the model
+	 */
+	PreparedDomain(FilterCollection filters, Map<String, Field> fieldsByName) throws OdooApiException {
+		Object[] filterArray = filters == null ? new Object[0] : filters.getFilters();
+		Set<String> names = new LinkedHashSet<String>();
+
+		elements = new Object[filterArray.length];
+		for (int i = 0; i < filterArray.length; i++) {
+			Object filter = filterArray[i];
+
+			if (filter == null)
+				throw new IllegalArgumentException("null filter parameter is not allowed");
+
+			// Is a logical operator
+			if (filter instanceof String) {
+				elements[i] = filter;
+				continue;
+			}
+
+			// Is a comparison filter
+			if (!(filter instanceof Object[]) || ((Object[]) filter).length != 3)
+				throw new OdooApiException("Filters aren't in the correct format.  Please read the Odoo help.");
+
+			Object[] filterObjects = (Object[]) filter;
+			Term term = new Term(filterObjects[0].toString(), filterObjects[1].toString(), filterObjects[2], fieldsByName);
+			if (term.parameter != null)
+				names.add(term.parameter.getName());
+			elements[i] = term;
+		}
+
+		this.parameterNames = Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * Returns the names of the parameters that must be bound
+	 * @return
+	 */
+	public Set<String> getParameterNames() {
+		return parameterNames;
+	}
+
+	/**
+	 * Builds the filter Object[] for the Odoo search function.
+	 * @param values Values for the parameters in the domain, by name. Can be null if there are no parameters.
+	 * @return A filter Object[] correctly formatted for use by the Odoo search function
+	 * @throws OdooApiException if a parameter value is missing or can't be converted
+	 */
+	public Object[] bind(Map<String, Object> values) throws OdooApiException {
+		Object[] domain = new Object[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] instanceof Term)
+				domain[i] = ((Term) elements[i]).bind(values);
+			else domain[i] = elements[i];
+		}
+		return domain;
+	}
+
+	/**
+	 * A single comparison with the conversion for its field worked out
+	 */
+	private static final class Term {
+		private final String fieldName;
+		private final String comparison;
+		private final FieldType type;
+		private final boolean equals;
+		private final boolean in;
+		private final boolean integerValue;
+		private final boolean integerList;
+		private final Parameter parameter;
+		private final Object value;
+
+		Term(String fieldName, String comparison, Object value, Map<String, Field> fieldsByName) throws OdooApiException {
+			Field fld = fieldsByName.get(fieldName);
+
+			// Can't search on calculated fields
+			if (fld != null && fld.getFunc_method())
+				throw new OdooApiException("Can not search on function field " + fieldName);
+
+			if (!"id".equals(fieldName) && fld == null)
+				throw new OdooApiException("Unknow filter field " + fieldName);
+
+			boolean isId = "id".equals(fieldName);
+			this.fieldName = fieldName;
+			this.type = fld == null ? null : fld.getType();
+			this.integerValue = isId || type == FieldType.INTEGER || type == FieldType.MANY2ONE;
+			this.integerList = isId || type == FieldType.INTEGER || type == FieldType.ONE2MANY
+					|| type == FieldType.MANY2MANY || type == FieldType.MANY2ONE;
+
+			if ("is null".equals(comparison)) {
+				this.comparison = "=";
+				this.equals = false;
+				this.in = false;
+				this.parameter = null;
+				this.value = false;
+			} else if ("is not null".equals(comparison)) {
+				this.comparison = "!=";
+				this.equals = false;
+				this.in = false;
+				this.parameter = null;
+				this.value = false;
+			} else {
+				this.comparison = comparison;
+				this.equals = "=".equals(comparison);
+				this.in = "in".equalsIgnoreCase(comparison);
+				this.parameter = value instanceof Parameter ? (Parameter) value : null;
+				// Constant values are converted once
+				this.value = parameter == null ? convert(value) : null;
+			}
+		}
+
+		Object[] bind(Map<String, Object> values) throws OdooApiException {
+			if (parameter == null)
+				return new Object[] { fieldName, comparison, value };
+
+			if (values == null || !values.containsKey(parameter.getName()))
+				throw new OdooApiException("No value was bound for parameter '" + parameter.getName() + "' of filter field " + fieldName);
+
+			return new Object[] { fieldName, comparison, convert(values.get(parameter.getName())) };
+		}
+
+		/**
+		 * Fix the value type if required for the Odoo server
+		 */
+		private Object convert(Object value) throws OdooApiException {
+			if (type == FieldType.BOOLEAN && !(value instanceof Boolean)) {
+				return convertToBoolean(value);
+			} else if (type == FieldType.FLOAT && !(value instanceof Double)) {
+				return Double.parseDouble(value.toString());
+			} else if (type == FieldType.DATE && value instanceof Date) {
+				return new SimpleDateFormat("yyyy-MM-dd").format((Date) value);
+			} else if (type == FieldType.DATETIME && value instanceof Date) {
+				return new SimpleDateFormat("yyyy-MM-dd HH:mm").format((Date) value);
+			} else if (equals) {
+				// If a integer field is not an integer in a '=' comparison,
+				// parse it as an int
+				if (!(value instanceof Integer) && integerValue)
+					return Integer.parseInt(value.toString());
+			} else if (in) {
+				if (value instanceof String) {
+					String[] entries = CSV_SEPARATOR.split(value.toString());
+					Object[] valueArr = new Object[entries.length];
+					for (int entrIdx = 0; entrIdx < entries.length; entrIdx++) {
+						String entry = FilterHelper.csvDecodeString(entries[entrIdx]);
+
+						// For relation fields or integer fields we build an
+						// array of integers
+						if (integerList)
+							valueArr[entrIdx] = Integer.parseInt(entry);
+						else valueArr[entrIdx] = entry;
+					}
+					return valueArr;
+				}
+				// If it is a single value, just put it in an array
+				else if (!(value instanceof Object[]))
+					return new Object[] { value };
+			}
+			return value;
+		}
+	}
+
+	private static Object convertToBoolean(Object value) throws OdooApiException {
+		if (value instanceof String) {
+			char firstchar = value.toString().toLowerCase().charAt(0);
+			if (firstchar == '1' || firstchar == 'y' || firstchar == 't') {
+				return true;
+			} else if (firstchar == '0' || firstchar == 'n' || firstchar == 'f') {
+				return false;
+			} else {
+				throw new OdooApiException("Unknown boolean " + value.toString());
+			}
+		}
+		return value;
+	}
+}
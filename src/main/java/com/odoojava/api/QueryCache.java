@@ -0,0 +1,242 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Cache for search results, shared by the adapters of a Session:
+ *
+ *		session.setQueryCache(new QueryCache(60000, 100000));
+ *		ObjectAdapter adapter = session.getObjectAdapter("res.partner");
+ *		adapter.setQueryCacheEnabled(true);
+ *
+ * Entries expire after a fixed time and the least recently used entries are
+ * evicted when the total weight of the cache exceeds the maximum. The weight of
+ * an entry is the number of values it holds (rows times fields).
+ *
+ * Every command that can change data on a model (anything but the search, read
+ * and metadata calls) that is sent through the Session drops the cached results
+ * for that model. Changes made by other clients, or to other models through
+ * computed fields, are only picked up when entries expire.
+ *
+ * Cached rows are copied when they are stored and when they are returned, so
+ * changing a Row doesn't change the cache.
+ */
+public class QueryCache {
+
+	private final long ttlMillis;
+	private final long maxWeight;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<String, Long> generations = new HashMap<String, Long>();
+	private long weight = 0;
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+
+	private static final class Entry {
+		final String model;
+		final Object[] rows;
+		final long weight;
+		final long expires;
+
+		Entry(String model, Object[] rows, long weight, long expires) {
+			this.model = model;
+			this.rows = rows;
+			this.weight = weight;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * @param ttlMillis Time in milliseconds an entry stays valid
+	 * @param maxWeight Maximum number of values (rows times fields) to hold
+	 */
+	public QueryCache(long ttlMillis, long maxWeight) {
+		if (ttlMillis <= 0)
+			throw new IllegalArgumentException("ttlMillis must be greater than 0");
+		if (maxWeight <= 0)
+			throw new IllegalArgumentException("maxWeight must be greater than 0");
+		this.ttlMillis = ttlMillis;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Builds the key of a search
+	 * @param model Model name
+	 * @param domain Validated search domain
+	 * @param fields Fields read
+	 * @param offset
+	 * @param limit
+	 * @param order
+	 * @param context Session context
+	 * @return
+	 * @throws OdooApiException if the domain can't be parsed
+	 */
+	static String key(String model, Object[] domain, String[] fields, int offset, int limit, String order,
+			Context context) throws OdooApiException {
+		StringBuilder key = new StringBuilder(model).append('|').append(Domain.parse(domain).getKey());
+		key.append('|').append(Arrays.toString(fields));
+		key.append('|').append(offset < 0 ? -1 : offset).append('|').append(limit < 0 ? -1 : limit);
+		key.append('|').append(order == null ? "" : order);
+		// Language, time zone and flags like active_test change the result
+		if (context != null)
+			key.append('|').append(new TreeMap<String, Object>(context));
+		return key.toString();
+	}
+
+	/**
+	 * Returns a copy of the cached rows for a key
+	 * @param key
+	 * @return null if there is no valid entry
+	 */
+	synchronized Object[] get(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expires <= System.currentTimeMillis()) {
+			remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return copy(entry.rows);
+	}
+
+	/**
+	 * Returns the current generation of a model. Pass it to put() so that rows
+	 * read before the model was changed are not stored.
+	 * @param model
+	 * @return
+	 */
+	synchronized long getGeneration(String model) {
+		Long generation = generations.get(model);
+		return generation == null ? 0 : generation;
+	}
+
+	/**
+	 * Stores a copy of the rows read for a key
+	 * @param model Model the rows belong to
+	 * @param key Key from key()
+	 * @param rows Rows as returned by the read call
+	 * @param fieldCount Number of fields in each row
+	 * @param generation Generation of the model from before the rows were read
+	 */
+	synchronized void put(String model, String key, Object[] rows, int fieldCount, long generation) {
+		if (generation != getGeneration(model))
+			return;
+
+		long entryWeight = Math.max(1, (long) rows.length * Math.max(1, fieldCount));
+		if (entryWeight > maxWeight)
+			return;
+
+		remove(key);
+		entries.put(key, new Entry(model, copy(rows), entryWeight, System.currentTimeMillis() + ttlMillis));
+		weight += entryWeight;
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (weight > maxWeight && iterator.hasNext()) {
+			Entry eldest = iterator.next();
+			iterator.remove();
+			weight -= eldest.weight;
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Removes all entries of a model
+	 * @param model
+	 */
+	public synchronized void invalidate(String model) {
+		generations.put(model, getGeneration(model) + 1);
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.model.equals(model)) {
+				iterator.remove();
+				weight -= entry.weight;
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries
+	 */
+	public synchronized void clear() {
+		Set<String> models = new HashSet<String>(generations.keySet());
+		for (Entry entry : entries.values())
+			models.add(entry.model);
+		for (String model : models)
+			generations.put(model, getGeneration(model) + 1);
+		entries.clear();
+		weight = 0;
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null)
+			weight -= entry.weight;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object[] copy(Object[] rows) {
+		Object[] copy = new Object[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			copy[i] = ((HashMap<String, Object>) rows[i]).clone();
+		return copy;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the number of cached searches
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total weight of the cached searches
+	 * @return
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Combines read-by-ID calls from different threads into one read call.
+ *
+ * Reads for the same fields that arrive within the batch window are collected.
+ * The first caller of a batch waits for the window to pass and then reads the
+ * IDs of all callers at once; a caller that fills the batch up to the maximum
+ * size reads it straight away. IDs that don't fit in the batch any more start
+ * a new one. Every caller gets its own rows, in the order of the IDs it asked
+ * for. No background threads are used.
+ *
+ * Callers wait for a batch until their own Deadline. If the caller that sent
+ * the batch ran out of time, the others read their IDs themselves.
+ */
+final class ReadBatcher {
+
+	interface Reader {
+		Object[] read(Object[] ids, String[] fields) throws XmlRpcException, OdooApiException;
+	}
+
+	private final Reader reader;
+	private final long windowMillis;
+	private final int maxBatchSize;
+
+	private final Map<List<String>, Batch> pending = new HashMap<List<String>, Batch>();
+
+	private static final class Batch {
+		final String[] fields;
+		final Set<Object> ids = new LinkedHashSet<Object>();
+		final CountDownLatch done = new CountDownLatch(1);
+		// Guarded by the batcher
+		boolean dispatched;
+		// Set before done counts down
+		Thread executor;
+		Map<Object, Map<String, Object>> rows;
+		Throwable error;
+
+		Batch(String[] fields) {
+			this.fields = fields;
+		}
+	}
+
+	ReadBatcher(Reader reader, long windowMillis, int maxBatchSize) {
+		this.reader = reader;
+		this.windowMillis = windowMillis;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	/**
+	 * Reads records as part of a batch. Callers wait for the batch at most
+	 * until their Deadline.
+	 * @param ids IDs to read
+	 * @param fields Fields to read
+	 * @return The rows that were found, in the order of ids
+	 * @throws DeadlineExceededException if the deadline of the caller passes first
+	 */
+	Object[] read(Object[] ids, String[] fields) throws XmlRpcException, OdooApiException {
+		List<String> key = Arrays.asList(fields);
+		Batch batch;
+		boolean leader;
+		boolean full;
+		synchronized (this) {
+			batch = pending.get(key);
+			if (batch != null && !fits(batch, ids)) {
+				// The batch is sent by its leader, these IDs start a new one
+				pending.remove(key);
+				batch = null;
+			}
+			leader = batch == null;
+			if (leader) {
+				batch = new Batch(fields);
+				pending.put(key, batch);
+			}
+			for (Object id : ids)
+				batch.ids.add(normalizeId(id));
+			full = batch.ids.size() >= maxBatchSize;
+			if (full) {
+				batch.dispatched = true;
+				pending.remove(key);
+			}
+		}
+
+		if (full) {
+			execute(batch);
+		} else if (leader) {
+			try {
+				batch.done.await(windowMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			boolean dispatch;
+			synchronized (this) {
+				dispatch = !batch.dispatched;
+				batch.dispatched = true;
+				if (pending.get(key) == batch)
+					pending.remove(key);
+			}
+			if (dispatch)
+				execute(batch);
+		}
+
+		await(batch.done);
+		if (batch.error instanceof DeadlineExceededException && batch.executor != Thread.currentThread()) {
+			// The deadline of the caller that sent the batch passed, not ours
+			return inOrder(ids, rowsById(reader.read(ids, fields)));
+		}
+		if (batch.error instanceof XmlRpcException)
+			throw (XmlRpcException) batch.error;
+		if (batch.error instanceof OdooApiException)
+			throw (OdooApiException) batch.error;
+		if (batch.error instanceof Error)
+			throw (Error) batch.error;
+		if (batch.error != null)
+			throw (RuntimeException) batch.error;
+
+		return inOrder(ids, batch.rows);
+	}
+
+	/**
+	 * Returns if the IDs can be added without going over the maximum batch size
+	 */
+	private boolean fits(Batch batch, Object[] ids) {
+		int added = 0;
+		for (Object id : ids)
+			if (!batch.ids.contains(normalizeId(id)))
+				added++;
+		return batch.ids.size() + added <= maxBatchSize;
+	}
+
+	private static Object[] inOrder(Object[] ids, Map<Object, Map<String, Object>> rows) {
+		List<Object> result = new ArrayList<Object>(ids.length);
+		for (Object id : ids) {
+			Map<String, Object> row = rows.get(normalizeId(id));
+			if (row != null)
+				result.add(SingleFlight.copy(row));
+		}
+		return result.toArray();
+	}
+
+	private void execute(Batch batch) {
+		batch.executor = Thread.currentThread();
+		try {
+			batch.rows = rowsById(reader.read(batch.ids.toArray(), batch.fields));
+		} catch (XmlRpcException | OdooApiException | RuntimeException | Error e) {
+			batch.error = e;
+		} finally {
+			batch.done.countDown();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Object, Map<String, Object>> rowsById(Object[] results) {
+		Map<Object, Map<String, Object>> rows = new HashMap<Object, Map<String, Object>>();
+		for (Object result : results) {
+			Map<String, Object> row = (Map<String, Object>) result;
+			rows.put(normalizeId(row.get("id")), row);
+		}
+		return rows;
+	}
+
+	private static Object normalizeId(Object id) {
+		return Integer.parseInt(id.toString());
+	}
+
+	/**
+	 * Waits for a batch until the deadline of the current thread
+	 */
+	private static void await(CountDownLatch latch) throws XmlRpcException {
+		Deadline deadline = Deadline.current();
+		try {
+			if (deadline == null)
+				latch.await();
+			else if (!latch.await(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS))
+				throw new DeadlineExceededException("Deadline exceeded while waiting for a batched read");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlRpcException("Interrupted while waiting for a batched read", e);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-through cache of records by ID, shared by the adapters of a Session:
+ *
+ *		session.setRecordCache(new RecordCache(50000, 0));
+ *		ObjectAdapter adapter = session.getObjectAdapter("product.product");
+ *		adapter.setRecordCacheEnabled(true);
+ *
+ * ObjectAdapter.readObject returns the fields that are cached and only reads
+ * missing records, or missing fields of cached records, from the server. Field
+ * values read later are added to the cached record.
+ *
+ * Records written or deleted through the Session are removed from the cache.
+ * Other commands that can change data on a model, like workflow signals or
+ * object functions, remove all records of that model. Changes made by other
+ * clients, or to computed fields of other models, are only picked up when
+ * records expire.
+ *
+ * Records are kept per context, so a change of language doesn't return values
+ * in the previous language.
+ */
+public class RecordCache {
+
+	private final int maxRecords;
+	private final long ttlMillis;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<String, Long> generations = new HashMap<String, Long>();
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+
+	private static final class Entry {
+		final String model;
+		final int id;
+		final HashMap<String, Object> values = new HashMap<String, Object>();
+		final long expires;
+
+		Entry(String model, int id, long expires) {
+			this.model = model;
+			this.id = id;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * @param maxRecords Maximum number of records to hold. The least recently used records are evicted first.
+	 * @param ttlMillis Time in milliseconds a record stays valid after it was first read, 0 to keep records until they are evicted or invalidated
+	 */
+	public RecordCache(int maxRecords, long ttlMillis) {
+		if (maxRecords <= 0)
+			throw new IllegalArgumentException("maxRecords must be greater than 0");
+		this.maxRecords = maxRecords;
+		this.ttlMillis = ttlMillis;
+	}
+
+	private static String key(String model, int id, String contextKey) {
+		return model + "|" + id + "|" + contextKey;
+	}
+
+	/**
+	 * Returns a copy of the cached values of a record. Fields that aren't
+	 * cached are left out, only records with all requested fields count as a hit.
+	 * @param model
+	 * @param id
+	 * @param fields Fields that are needed
+	 * @param contextKey Key of the context the values were read with
+	 * @return null if the record isn't cached
+	 */
+	synchronized HashMap<String, Object> get(String model, int id, String[] fields, String contextKey) {
+		Entry entry = entries.get(key(model, id, contextKey));
+		if (entry != null && ttlMillis > 0 && entry.expires <= System.currentTimeMillis()) {
+			entries.remove(key(model, id, contextKey));
+			entry = null;
+		}
+
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+
+		HashMap<String, Object> values = new HashMap<String, Object>();
+		values.put("id", entry.id);
+		boolean complete = true;
+		for (String field : fields) {
+			if (entry.values.containsKey(field))
+				values.put(field, entry.values.get(field));
+			else complete = false;
+		}
+
+		if (complete)
+			hitCount++;
+		else missCount++;
+		return values;
+	}
+
+	/**
+	 * Returns the current generation of a model. Pass it to put() so that
+	 * records read before the model was changed are not stored.
+	 * @param model
+	 * @return
+	 */
+	synchronized long getGeneration(String model) {
+		Long generation = generations.get(model);
+		return generation == null ? 0 : generation;
+	}
+
+	/**
+	 * Adds the values of records read from the server
+	 * @param model
+	 * @param rows Rows as returned by the read call, each with an "id"
+	 * @param contextKey Key of the context the values were read with
+	 * @param generation Generation of the model from before the rows were read
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized void put(String model, Object[] rows, String contextKey, long generation) {
+		if (generation != getGeneration(model))
+			return;
+
+		for (Object row : rows) {
+			Map<String, Object> values = (Map<String, Object>) row;
+			int id = Integer.parseInt(values.get("id").toString());
+			String key = key(model, id, contextKey);
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				entry = new Entry(model, id, System.currentTimeMillis() + ttlMillis);
+				entries.put(key, entry);
+			}
+			entry.values.putAll(values);
+		}
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > maxRecords && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Removes records of a model
+	 * @param model
+	 * @param ids IDs of the records to remove
+	 */
+	public synchronized void invalidate(String model, Object[] ids) {
+		generations.put(model, getGeneration(model) + 1);
+		Set<Integer> idSet = new HashSet<Integer>();
+		for (Object id : ids)
+			idSet.add(Integer.parseInt(id.toString()));
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.model.equals(model) && idSet.contains(entry.id))
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes all records of a model
+	 * @param model
+	 */
+	public synchronized void invalidate(String model) {
+		generations.put(model, getGeneration(model) + 1);
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().model.equals(model))
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes all records
+	 */
+	public synchronized void clear() {
+		Set<String> models = new HashSet<String>(generations.keySet());
+		for (Entry entry : entries.values())
+			models.add(entry.model);
+		for (String model : models)
+			generations.put(model, getGeneration(model) + 1);
+		entries.clear();
+	}
+
+	/**
+	 * Removes the records a command sent through the Session may have changed
+	 * @param model Model the command was executed on
+	 * @param commandName
+	 * @param parameters Command parameters
+	 * @param result Result of the command, null if it failed
+	 */
+	@SuppressWarnings("unchecked")
+	void commandExecuted(String model, String commandName, Object[] parameters, Object result) {
+		if ("create".equals(commandName))
+			return;
+
+		if (("write".equals(commandName) || "unlink".equals(commandName)) && parameters != null
+				&& parameters.length > 0) {
+			Object ids = parameters[0];
+			if (ids instanceof Object[]) {
+				invalidate(model, (Object[]) ids);
+				return;
+			} else if (ids instanceof Integer) {
+				invalidate(model, new Object[] { ids });
+				return;
+			}
+		}
+
+		if ("load".equals(commandName) && result instanceof Map
+				&& ((Map<String, Object>) result).get("ids") instanceof Object[]) {
+			invalidate(model, (Object[]) ((Map<String, Object>) result).get("ids"));
+			return;
+		}
+
+		invalidate(model);
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the number of cached records
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+
+/**
+ * Retries read-only calls that failed for a transient reason and stops calls
+ * to servers that keep failing:
+ *
+ *		session.addInterceptor(new RetryInterceptor());
+ *
+ * Transient failures are 429, 502, 503 and 504 responses, for example from a
+ * proxy in front of Odoo, and connections that could not be made or were
+ * reset. Faults returned by Odoo are never retried. Calls that change data are
+ * not retried either, because the server may have applied them before the
+ * connection broke.
+ *
+ * Retries wait an exponential backoff with full jitter and stop at the
+ * Deadline of the thread. A retry budget keeps retries to a fraction of the
+ * calls that succeed, so a struggling server isn't flooded with retries.
+ *
+ * Every host gets a CircuitBreaker that all calls pass through. Share one
+ * interceptor between sessions to share the breakers between them.
+ */
+public class RetryInterceptor implements RpcInterceptor {
+
+	private volatile int maxAttempts = 3;
+	private volatile long initialBackoffMillis = 100;
+	private volatile long maxBackoffMillis = 2000;
+	private volatile int failureThreshold = 5;
+	private volatile long openMillis = 10000;
+	private volatile double maxRetryTokens = 10;
+	private volatile double retryTokenRatio = 0.1;
+
+	private double retryTokens = maxRetryTokens;
+	private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	@Override
+	public Object intercept(RpcRequest request, Chain chain) throws XmlRpcException {
+		CircuitBreaker breaker = getCircuitBreaker(request.getHost());
+		boolean retryable = request.isReadOnly();
+		for (int attempt = 1;; attempt++) {
+			try {
+				breaker.acquire();
+			} catch (CircuitOpenException e) {
+				rejectedCount.incrementAndGet();
+				throw e;
+			}
+
+			XmlRpcException failure;
+			try {
+				Object result = chain.proceed(request);
+				breaker.onSuccess();
+				depositRetryToken();
+				return result;
+			} catch (XmlRpcException e) {
+				if (!isTransient(e)) {
+					breaker.onSuccess();
+					throw e;
+				}
+				breaker.onFailure();
+				failure = e;
+			} catch (RuntimeException | Error e) {
+				breaker.onSuccess();
+				throw e;
+			}
+
+			if (!retryable || attempt >= maxAttempts || !withdrawRetryToken() || !backOff(attempt))
+				throw failure;
+			retryCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns if a failure is worth retrying and counts towards opening the circuit
+	 * @param e
+	 * @return
+	 */
+	protected boolean isTransient(XmlRpcException e) {
+		return isUnavailable(e);
+	}
+
+	/**
+	 * Returns if a call failed because the server could not be reached or was unavailable
+	 */
+	static boolean isUnavailable(XmlRpcException e) {
+		if (e instanceof DeadlineExceededException || e instanceof CircuitOpenException)
+			return false;
+		if (e instanceof XmlRpcHttpTransportException) {
+			int status = ((XmlRpcHttpTransportException) e).getStatusCode();
+			return status == 429 || status == 502 || status == 503 || status == 504;
+		}
+		return e.getCause() instanceof IOException;
+	}
+
+	/**
+	 * Waits before the next attempt
+	 * @return false if the deadline would pass or the thread was interrupted
+	 */
+	private boolean backOff(int attempt) {
+		long cap = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+		long sleepMillis = ThreadLocalRandom.current().nextLong(Math.max(cap, 0) + 1);
+		Deadline deadline = Deadline.current();
+		if (deadline != null && deadline.getRemaining(TimeUnit.MILLISECONDS) <= sleepMillis)
+			return false;
+		try {
+			Thread.sleep(sleepMillis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private synchronized void depositRetryToken() {
+		retryTokens = Math.min(maxRetryTokens, retryTokens + retryTokenRatio);
+	}
+
+	private synchronized boolean withdrawRetryToken() {
+		if (retryTokens < 1)
+			return false;
+		retryTokens--;
+		return true;
+	}
+
+	/**
+	 * Returns the circuit breaker for a host, as returned by RpcRequest.getHost
+	 * @param host
+	 * @return
+	 */
+	public CircuitBreaker getCircuitBreaker(String host) {
+		return breakers.computeIfAbsent(host, key -> new CircuitBreaker(key, failureThreshold, openMillis));
+	}
+
+	/**
+	 * Sets the number of attempts for a read-only call, including the first. Default 3.
+	 * @param maxAttempts
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Sets the backoff before the first retry and the most a backoff can grow to.
+	 * The wait before a retry is random between 0 and the backoff. Defaults 100 and 2000 ms.
+	 * @param initialBackoffMillis
+	 * @param maxBackoffMillis
+	 */
+	public void setBackoff(long initialBackoffMillis, long maxBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	/**
+	 * Sets the retry budget. Every retry takes a token, every successful call
+	 * adds tokenRatio tokens up to maxTokens. Defaults 10 and 0.1, which
+	 * allows about one retry for every ten successful calls.
+	 * @param maxTokens
+	 * @param tokenRatio
+	 */
+	public synchronized void setRetryBudget(double maxTokens, double tokenRatio) {
+		this.maxRetryTokens = maxTokens;
+		this.retryTokenRatio = tokenRatio;
+		this.retryTokens = Math.min(retryTokens, maxTokens);
+	}
+
+	/**
+	 * Sets when the circuit breakers open, for hosts that are called for the
+	 * first time after this. Defaults 5 failures and 10 seconds.
+	 * @param failureThreshold Transient failures in a row that open the circuit
+	 * @param openMillis Time the circuit stays open before a trial call
+	 */
+	public void setCircuitBreaker(int failureThreshold, long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	/**
+	 * Returns the number of retries made
+	 * @return
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * Returns the number of calls that failed because a circuit was open
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+}
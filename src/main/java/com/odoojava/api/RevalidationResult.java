@@ -0,0 +1,72 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an ObjectAdapter.revalidate call.
+ */
+public class RevalidationResult {
+
+	private final List<Row> refreshedRows;
+	private final List<Row> deletedRows;
+	private final int checkedCount;
+
+	RevalidationResult(List<Row> refreshedRows, List<Row> deletedRows, int checkedCount) {
+		this.refreshedRows = Collections.unmodifiableList(refreshedRows);
+		this.deletedRows = Collections.unmodifiableList(deletedRows);
+		this.checkedCount = checkedCount;
+	}
+
+	/**
+	 * Returns the rows that changed on the server and were read again
+	 * @return
+	 */
+	public List<Row> getRefreshedRows() {
+		return refreshedRows;
+	}
+
+	/**
+	 * Returns the rows of records that no longer exist on the server. These
+	 * rows are left as they were.
+	 * @return
+	 */
+	public List<Row> getDeletedRows() {
+		return deletedRows;
+	}
+
+	/**
+	 * Returns the number of records whose write_date was checked
+	 * @return
+	 */
+	public int getCheckedCount() {
+		return checkedCount;
+	}
+
+	/**
+	 * Returns if all rows were still up to date
+	 * @return
+	 */
+	public boolean isUnchanged() {
+		return refreshedRows.isEmpty() && deletedRows.isEmpty();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which reads of a Session go to the replicas added with
+ * Session.addReplica:
+ *
+ *		RoutingPolicy policy = session.getRoutingPolicy();
+ *		policy.setRoute("stock.quant", null, Route.PRIMARY);
+ *		policy.setRoute(null, "read_group", Route.REPLICA);
+ *		policy.setReadYourWritesMillis(5000);
+ *
+ * Without rules every read goes to the replicas. A rule for a model and
+ * method takes precedence over a rule for the model, which takes precedence
+ * over a rule for the method. Calls that change data always go to the
+ * primary, whatever the rules say.
+ *
+ * After the session changes data, all its reads go to the primary for the
+ * read-your-writes window, so that they see the change before the replicas
+ * have caught up. The window covers every model, because a change to one
+ * model often changes others on the server.
+ */
+public class RoutingPolicy {
+
+	public enum Route {
+		PRIMARY, REPLICA
+	}
+
+	private static final String ANY = "*";
+
+	private final ConcurrentHashMap<String, Route> rules = new ConcurrentHashMap<String, Route>();
+	private volatile long readYourWritesMillis = 2000;
+
+	/**
+	 * Sets where reads of a model, a method or a method on a model go
+	 * @param model Model name, null for all models
+	 * @param method Method name, for example "read_group", null for all methods
+	 * @param route
+	 */
+	public void setRoute(String model, String method, Route route) {
+		rules.put(key(model, method), route);
+	}
+
+	/**
+	 * Removes a rule added with setRoute
+	 * @param model
+	 * @param method
+	 */
+	public void removeRoute(String model, String method) {
+		rules.remove(key(model, method));
+	}
+
+	/**
+	 * Returns where a read goes according to the rules
+	 * @param model
+	 * @param method
+	 * @return
+	 */
+	public Route getRoute(String model, String method) {
+		if (rules.isEmpty())
+			return Route.REPLICA;
+		Route route = rules.get(key(model, method));
+		if (route == null)
+			route = rules.get(key(model, null));
+		if (route == null)
+			route = rules.get(key(null, method));
+		return route == null ? Route.REPLICA : route;
+	}
+
+	/**
+	 * Sets the time after a change during which reads go to the primary.
+	 * Default 2000 ms, 0 to send reads to the replicas straight after a change.
+	 * @param readYourWritesMillis
+	 */
+	public void setReadYourWritesMillis(long readYourWritesMillis) {
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+
+	public long getReadYourWritesMillis() {
+		return readYourWritesMillis;
+	}
+
+	private static String key(String model, String method) {
+		return (model == null ? ANY : model) + "/" + (method == null ? ANY : method);
+	}
+}
@@ -25,6 +25,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.TimeZone;
 
 import com.odoojava.api.Field.FieldType;
@@ -40,6 +41,7 @@ public class Row {
 	private final FieldCollection fields;
 	private final ArrayList<RowChangedListener> rowChangedListeners = new ArrayList<Row.RowChangedListener>();
 	private final FieldCollection changedFields = new FieldCollection();
+	private RowLoader loader;
 	
 	/**
 	 * Default constructor
@@ -77,6 +79,14 @@ public class Row {
 			rowChangedListeners.add(listener);
 	}
 	
+	/**
+	 * Removes a listener that was added with addRowChangedLisener
+	 * @param listener
+	 */
+	public void removeRowChangedListener(RowChangedListener listener){
+		rowChangedListeners.remove(listener);
+	}
+	
 	/**
 	 * Copy constructor to create a new row from a template row
 	 */
@@ -116,7 +126,12 @@ public class Row {
 		if (fieldName != null && fieldName.equals("id"))
 			return openERPResult.get(fieldName);
 		
+		if (loader != null)
+			loader.accessed(fieldName);
+		
 		Field fieldMeta = getField(fieldName);
+		if (fieldMeta == null && loader != null && loader.load(this, fieldName))
+			fieldMeta = getField(fieldName);
 		if (fieldMeta == null)
 			return null;
 
@@ -234,6 +249,30 @@ public class Row {
 		put(fieldName, newValues.toArray(new Object[newValues.size()]));
 	}
 	
+	void setLoader(RowLoader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Replaces the values of the row with values read from the server. Fields
+	 * with pending changes keep their changed value.
+	 * @param values Values as returned by the read call
+	 */
+	void refresh(Map<String, Object> values) {
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			if (getChangedFields().stream().noneMatch(fld -> fld.getName().equals(entry.getKey())))
+				openERPResult.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns a value as it was read from the server, also for fields the row
+	 * doesn't hold field information for
+	 */
+	Object getRawValue(String fieldName) {
+		return openERPResult.get(fieldName);
+	}
+
 	/**
 	 * Notifies the row that pending changes have been applied for the row to do cleanup,
 	 * for example changed fields are cleared.
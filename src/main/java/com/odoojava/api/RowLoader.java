@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Shared by the rows of a RowCollection read by an ObjectAdapter. Loads fields
+ * that were not read for all rows of the collection at once and reports field
+ * access to a FieldAccessProfiler.
+ */
+final class RowLoader {
+
+	private final ObjectAdapter adapter;
+	private final String modelName;
+	private final RowCollection rows;
+	private final boolean lazy;
+	private final FieldAccessProfiler profiler;
+
+	RowLoader(ObjectAdapter adapter, String modelName, RowCollection rows, boolean lazy, FieldAccessProfiler profiler) {
+		this.adapter = adapter;
+		this.modelName = modelName;
+		this.rows = rows;
+		this.lazy = lazy;
+		this.profiler = profiler;
+	}
+
+	void accessed(String fieldName) {
+		if (profiler != null && adapter.getField(fieldName) != null)
+			profiler.fieldAccessed(modelName, fieldName);
+	}
+
+	/**
+	 * Reads a field for every row of the collection that doesn't have it
+	 * @param row Row the field was asked for
+	 * @param fieldName
+	 * @return false if the field can't be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized boolean load(Row row, String fieldName) {
+		Field field = adapter.getField(fieldName);
+		if (!lazy || field == null || row.getID() <= 0)
+			return false;
+
+		List<Row> candidates = new ArrayList<Row>(rows);
+		if (candidates.stream().noneMatch(candidate -> candidate == row))
+			candidates.add(row);
+
+		Map<Integer, List<Row>> missing = new LinkedHashMap<Integer, List<Row>>();
+		for (Row candidate : candidates) {
+			if (candidate.getID() > 0 && !hasField(candidate, fieldName))
+				missing.computeIfAbsent(candidate.getID(), id -> new ArrayList<Row>()).add(candidate);
+		}
+		if (missing.isEmpty())
+			return true;
+
+		Object[] results;
+		try {
+			results = adapter.readValues(missing.keySet().toArray(), new String[] { fieldName });
+		} catch (XmlRpcException | OdooApiException e) {
+			throw new IllegalStateException("Could not load field " + fieldName + " of " + modelName, e);
+		}
+
+		for (Object result : results) {
+			Map<String, Object> values = (Map<String, Object>) result;
+			List<Row> idRows = missing.get(Integer.parseInt(values.get("id").toString()));
+			if (idRows != null)
+				for (Row idRow : idRows)
+					idRow.refresh(values);
+		}
+		// refresh only stores values, the field itself is added here. Rows read
+		// together share one FieldCollection, so this normally adds it once for
+		// all of them. Rows of deleted records get no value and read as empty.
+		for (List<Row> idRows : missing.values())
+			for (Row idRow : idRows)
+				if (!hasField(idRow, fieldName))
+					idRow.getFields().add(field);
+
+		if (profiler != null)
+			profiler.fieldLoaded(modelName, fieldName);
+		return true;
+	}
+
+	private static boolean hasField(Row row, String fieldName) {
+		for (Field field : row.getFields())
+			if (field.getName().equals(fieldName))
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+/**
+ * Details of one call to the server, passed to RpcMetrics
+ */
+public final class RpcCallInfo {
+
+	private final RPCServices service;
+	private final String model;
+	private final String method;
+	private final long durationNanos;
+	private final long requestBytes;
+	private final long responseBytes;
+	private final int rowCount;
+	private final Throwable error;
+
+	RpcCallInfo(RPCServices service, String model, String method, long durationNanos, long requestBytes,
+			long responseBytes, Object result, Throwable error) {
+		this.service = service;
+		this.model = model;
+		this.method = method;
+		this.durationNanos = durationNanos;
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+		this.rowCount = rowCount(result);
+		this.error = error;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int rowCount(Object result) {
+		if (result instanceof Object[])
+			return ((Object[]) result).length;
+		// load returns the IDs of the imported rows
+		if (result instanceof Map && ((Map<String, Object>) result).get("ids") instanceof Object[])
+			return ((Object[]) ((Map<String, Object>) result).get("ids")).length;
+		return 0;
+	}
+
+	public RPCServices getService() {
+		return service;
+	}
+
+	/**
+	 * Returns the model, or the report name for report calls
+	 * @return
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the model method, workflow signal or report method that was called
+	 * @return
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	/**
+	 * Returns the number of bytes sent, 0 if the transport couldn't count them
+	 * @return
+	 */
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+
+	/**
+	 * Returns the number of bytes received, 0 if the transport couldn't count them
+	 * @return
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * Returns the number of values in the result when it is a list, like the
+	 * IDs of a search or the rows of a read
+	 * @return
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	/**
+	 * Returns the error the call failed with
+	 * @return null if the call succeeded
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the XML-RPC fault code of a failed call
+	 * @return 0 if the call succeeded or failed without a fault code
+	 */
+	public int getFaultCode() {
+		return error instanceof XmlRpcException ? ((XmlRpcException) error).code : 0;
+	}
+
+	@Override
+	public String toString() {
+		return service + " " + model + "." + method + " " + (durationNanos / 1000) + "us";
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Wraps the calls a Session makes to the server, for example to log, trace or
+ * retry them:
+ *
+ *		session.addInterceptor((request, chain) -> {
+ *			long start = System.nanoTime();
+ *			try {
+ *				return chain.proceed(request);
+ *			} finally {
+ *				log(request + " took " + (System.nanoTime() - start) + "ns");
+ *			}
+ *		});
+ *
+ * Interceptors run in the order they were added, the first one is the
+ * outermost. An interceptor can change the request before passing it on,
+ * change the result or fault, or return a result without calling the server
+ * by not calling the chain.
+ */
+public interface RpcInterceptor {
+
+	/**
+	 * Rest of the interceptor chain, ending with the call to the server
+	 */
+	interface Chain {
+		Object proceed(RpcRequest request) throws XmlRpcException;
+	}
+
+	/**
+	 * @param request The call that is made
+	 * @param chain Call chain.proceed to pass the call on
+	 * @return The result of the call
+	 * @throws XmlRpcException
+	 */
+	Object intercept(RpcRequest request, Chain chain) throws XmlRpcException;
+}
@@ -0,0 +1,39 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+/**
+ * Receives the details of every call a Session makes to the server:
+ *
+ *		InProcessRpcMetrics metrics = new InProcessRpcMetrics();
+ *		metrics.registerMBean("com.odoojava.api:type=RpcMetrics,name=erp");
+ *		session.setRpcMetrics(metrics);
+ *
+ * Without metrics on the Session calls are not timed or counted.
+ */
+public interface RpcMetrics {
+
+	/**
+	 * Called after a call to the server completed or failed, on the thread
+	 * that made the call. Implementations must be thread safe and fast.
+	 * @param call
+	 */
+	void callCompleted(RpcCallInfo call);
+}
@@ -0,0 +1,55 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Map;
+
+/**
+ * JMX view of InProcessRpcMetrics. Operations are named
+ * "service:model.method", for example "RPC_OBJECT:res.partner.read".
+ */
+public interface RpcMetricsMXBean {
+
+	long getCallCount();
+
+	long getErrorCount();
+
+	long getRequestBytes();
+
+	long getResponseBytes();
+
+	long getRowCount();
+
+	double getMeanLatencyMillis();
+
+	double getMaxLatencyMillis();
+
+	double getLatencyMillis(double percentile);
+
+	String[] getOperations();
+
+	Map<String, Long> getCallCountByOperation();
+
+	Map<String, Long> getErrorCountByFaultCode();
+
+	double getOperationLatencyMillis(String operation, double percentile);
+
+	void reset();
+}
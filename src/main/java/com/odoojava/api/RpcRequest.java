@@ -0,0 +1,117 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Arrays;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+/**
+ * A call a Session makes to the server, as seen by an RpcInterceptor
+ */
+public final class RpcRequest {
+
+	private final String host;
+	private final RPCServices service;
+	private final String model;
+	private final String method;
+	private final String rpcMethod;
+	private final Object[] parameters;
+
+	RpcRequest(String host, RPCServices service, String model, String method, String rpcMethod,
+			Object[] parameters) {
+		this.host = host;
+		this.service = service;
+		this.model = model;
+		this.method = method;
+		this.rpcMethod = rpcMethod;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Returns the server the call is made to, as host:port
+	 * @return
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	public RPCServices getService() {
+		return service;
+	}
+
+	/**
+	 * Returns the model, or the report name for report calls
+	 * @return null for calls that are not made on a model
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the model method, workflow signal or report method that is called
+	 * @return
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Returns the XML-RPC method of the service, for example "execute" or "exec_workflow"
+	 * @return
+	 */
+	public String getRpcMethod() {
+		return rpcMethod;
+	}
+
+	/**
+	 * Returns the XML-RPC parameters, starting with the database, user ID and
+	 * password. The array must not be changed, use withParameters.
+	 * @return
+	 */
+	public Object[] getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns a copy of this request with other XML-RPC parameters
+	 * @param parameters
+	 * @return
+	 */
+	public RpcRequest withParameters(Object[] parameters) {
+		return new RpcRequest(host, service, model, method, rpcMethod, parameters);
+	}
+
+	/**
+	 * Returns if the call doesn't change data on the server
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return Session.isReadOnly(service, rpcMethod, method);
+	}
+
+	@Override
+	public String toString() {
+		// Leave out the password
+		Object[] shown = parameters.length > 3 && service != RPCServices.RPC_COMMON
+				? Arrays.copyOfRange(parameters, 3, parameters.length) : new Object[0];
+		return service + " " + (model == null ? "" : model + ".") + method + Arrays.deepToString(shown);
+	}
+}
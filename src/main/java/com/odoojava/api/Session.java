@@ -18,10 +18,17 @@
  */
 package com.odoojava.api;
 
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import javax.xml.bind.DatatypeConverter;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.xmlrpc.XmlRpcException;
 
@@ -66,6 +73,34 @@ public class Session {
 
 	private OdooXmlRpcProxy objectClient;
 	private Version serverVersion;
+	private volatile QueryCache queryCache;
+	private volatile RecordCache recordCache;
+	private volatile SingleFlight singleFlight;
+	private volatile RpcMetrics rpcMetrics;
+	private volatile TrafficRecorder trafficRecorder;
+	private volatile TrafficReplay trafficReplay;
+	private volatile RpcInterceptor[] interceptors = new RpcInterceptor[0];
+	private final Map<RPCServices, int[]> timeouts = new EnumMap<RPCServices, int[]>(RPCServices.class);
+	private volatile NodePool nodePool;
+	private volatile NodePool replicaPool;
+	private volatile RoutingPolicy routingPolicy = new RoutingPolicy();
+	private volatile long lastWriteAt;
+	private volatile boolean written;
+
+	/**
+	 * How object calls are spread over the nodes added with addNode
+	 */
+	public enum LoadBalancing {
+		/** Node with the fewest calls in flight */
+		LEAST_OUTSTANDING,
+		/** Node with the fewest calls in flight out of two random ones */
+		POWER_OF_TWO_CHOICES
+	}
+
+	// Commands that don't change data and leave the query cache as is
+	private static final Set<String> READ_ONLY_COMMANDS = new HashSet<String>(Arrays.asList("search", "read",
+			"search_read", "search_count", "fields_get", "name_get", "name_search", "read_group", "default_get",
+			"context_get", "check_access_rights", "fields_view_get", "load_views", "export_data"));
 
 	/**
 	 * * Session constructor
@@ -181,9 +216,10 @@ public class Session {
 	}
 
 	int authenticate() throws XmlRpcException, Exception {
-		OdooXmlRpcProxy commonClient = new OdooXmlRpcProxy(protocol, host, port, RPCServices.RPC_COMMON);
+		OdooXmlRpcProxy commonClient = newClient(RPCServices.RPC_COMMON);
 
-		Object id = commonClient.execute("login", new Object[] { databaseName, userName, password });
+		Object id = execute(commonClient, RPCServices.RPC_COMMON, null, "login", "login",
+				new Object[] { databaseName, userName, password });
 
 		if (id instanceof Integer) {
 			userID = (Integer) id;
@@ -207,7 +243,12 @@ public class Session {
 	}
 
 	void checkDatabasePresence() throws XmlRpcException {
-		ArrayList<String> dbList = getDatabaseList(protocol, host, port);
+		OdooXmlRpcProxy client = newClient(RPCServices.RPC_DATABASE);
+		ArrayList<String> dbList = new ArrayList<String>();
+		for (Object database : (Object[]) execute(client, RPCServices.RPC_DATABASE, null, "list", "list",
+				new Object[] {})) {
+			dbList.add((String) database);
+		}
 		if (!dbList.contains(databaseName)) {
 			StringBuilder messageBuilder = new StringBuilder("Error while connecting to Odoo.  Database [")
 					.append(databaseName).append("]  was not found in the following list: ").append(LINE_SEPARATOR)
@@ -299,7 +340,30 @@ public class Session {
 		if (parameters != null && parameters.length > 0) {
 			System.arraycopy(parameters, 0, params, connectionParams.length, parameters.length);
 		}
-		return objectClient.execute("execute", params);
+		SingleFlight flight = singleFlight;
+		if (flight != null && READ_ONLY_COMMANDS.contains(commandName)) {
+			// The password isn't part of the key, the user ID already tells callers apart
+			Object[] request = new Object[] { host, port, databaseName, userID, objectName, commandName, parameters };
+			return flight.execute(request, () -> executeObject(objectName, commandName, "execute", params));
+		}
+
+		Object result = null;
+		try {
+			result = executeObject(objectName, commandName, "execute", params);
+			return result;
+		} finally {
+			// Also invalidate on failure, the server may have applied part of the change
+			if (!READ_ONLY_COMMANDS.contains(commandName)) {
+				QueryCache queries = queryCache;
+				if (queries != null) {
+					queries.invalidate(objectName);
+				}
+				RecordCache records = recordCache;
+				if (records != null) {
+					records.commandExecuted(objectName, commandName, parameters, result);
+				}
+			}
+		}
 	}
 
 	/**
@@ -330,6 +394,189 @@ public class Session {
 		return executeCommand(objectName, commandName, params);
 	}
 
+	/**
+	 * Makes a call to the server through the interceptors of the session
+	 */
+	private Object execute(OdooXmlRpcProxy client, RPCServices service, String model, String method,
+			String rpcMethod, Object[] params) throws XmlRpcException {
+		return execute(client, host + ":" + port, service, model, method, rpcMethod, params);
+	}
+
+	/**
+	 * Makes a call to a server through the interceptors of the session
+	 */
+	private Object execute(final OdooXmlRpcProxy client, String endpoint, RPCServices service, String model,
+			String method, String rpcMethod, Object[] params) throws XmlRpcException {
+		RpcInterceptor[] chain = interceptors;
+		if (chain.length == 0) {
+			return call(client, service, model, method, rpcMethod, params);
+		}
+		return new InterceptorChain(chain, request -> call(client, request.getService(), request.getModel(),
+				request.getMethod(), request.getRpcMethod(), request.getParameters()))
+						.proceed(new RpcRequest(endpoint, service, model, method, rpcMethod, params));
+	}
+
+	/**
+	 * Makes a call to the object service. Reads the routing policy sends to
+	 * the replicas go there, unless no replica can be reached. Other calls go
+	 * to the nodes.
+	 */
+	private Object executeObject(String model, String method, String rpcMethod, Object[] params)
+			throws XmlRpcException {
+		boolean readOnly = isReadOnly(RPCServices.RPC_OBJECT, rpcMethod, method);
+		NodePool replicas = replicaPool;
+		if (replicas != null && readOnly && routesToReplica(model, method)) {
+			try {
+				return executeObject(replicas, model, method, rpcMethod, params, true);
+			} catch (XmlRpcException e) {
+				if (!RetryInterceptor.isUnavailable(e)) {
+					throw e;
+				}
+				// None of the replicas answered, the primary can
+			}
+		}
+
+		try {
+			return executeObject(nodePool, model, method, rpcMethod, params, readOnly);
+		} finally {
+			if (!readOnly) {
+				lastWriteAt = System.nanoTime();
+				written = true;
+			}
+		}
+	}
+
+	private boolean routesToReplica(String model, String method) {
+		RoutingPolicy policy = routingPolicy;
+		if (policy.getRoute(model, method) != RoutingPolicy.Route.REPLICA) {
+			return false;
+		}
+		long window = policy.getReadYourWritesMillis();
+		return !written || window <= 0 || System.nanoTime() - lastWriteAt >= window * 1000000L;
+	}
+
+	/**
+	 * Makes a call to the object service on one of the nodes of a pool.
+	 * Read-only calls move on to the next node when a node can't be reached.
+	 */
+	private Object executeObject(NodePool pool, String model, String method, String rpcMethod, Object[] params,
+			boolean readOnly) throws XmlRpcException {
+		if (pool == null) {
+			return execute(objectClient, RPCServices.RPC_OBJECT, model, method, rpcMethod, params);
+		}
+
+		Set<NodePool.Node> failed = Collections.newSetFromMap(new IdentityHashMap<NodePool.Node, Boolean>());
+		while (true) {
+			NodePool.Node node = pool.select(failed);
+			node.outstanding.incrementAndGet();
+			try {
+				Object[] nodeParams = params;
+				if (!node.primary) {
+					nodeParams = params.clone();
+					nodeParams[1] = authenticate(node);
+				}
+				Object result = execute(node.client, node.endpoint, RPCServices.RPC_OBJECT, model, method,
+						rpcMethod, nodeParams);
+				pool.succeeded(node);
+				return result;
+			} catch (XmlRpcException e) {
+				if (!RetryInterceptor.isUnavailable(e)) {
+					pool.succeeded(node);
+					throw e;
+				}
+				pool.failed(node);
+				failed.add(node);
+				if (!readOnly || failed.size() >= pool.size()) {
+					throw e;
+				}
+			} finally {
+				node.outstanding.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Logs in on a node the first time it is used
+	 *
+	 * @return The user ID on the node
+	 */
+	private int authenticate(NodePool.Node node) throws XmlRpcException {
+		if (node.userID != 0) {
+			return node.userID;
+		}
+		synchronized (node) {
+			if (node.userID == 0) {
+				Object id = execute(newClient(node.host, node.port, RPCServices.RPC_COMMON), node.endpoint,
+						RPCServices.RPC_COMMON, null, "login", "login",
+						new Object[] { databaseName, userName, password });
+				if (!(id instanceof Integer)) {
+					throw new XmlRpcException("Login failed on " + node.endpoint);
+				}
+				node.userID = (Integer) id;
+			}
+			return node.userID;
+		}
+	}
+
+	/**
+	 * Makes a call to the server and reports it to the RpcMetrics of the session
+	 */
+	private Object call(OdooXmlRpcProxy client, RPCServices service, String model, String method,
+			String rpcMethod, Object[] params) throws XmlRpcException {
+		RpcMetrics metrics = rpcMetrics;
+		TrafficRecorder recorder = trafficRecorder;
+		TrafficReplay replay = trafficReplay;
+		String what = method == null ? rpcMethod : (model == null ? method : model + "." + method);
+		Deadline.check(what);
+		if (metrics == null && recorder == null && replay == null) {
+			return send(client, rpcMethod, params, what);
+		}
+
+		MeteredTransportFactory.CallTap tap = MeteredTransportFactory.startTap(service, password, recorder != null,
+				replay);
+		long start = System.nanoTime();
+		Object result = null;
+		Throwable error = null;
+		try {
+			result = send(client, rpcMethod, params, what);
+			return result;
+		} catch (XmlRpcException | RuntimeException | Error e) {
+			error = e;
+			throw e;
+		} finally {
+			long duration = System.nanoTime() - start;
+			MeteredTransportFactory.stopTap();
+			if (recorder != null) {
+				recorder.record(tap);
+			}
+			if (metrics != null) {
+				try {
+					metrics.callCompleted(new RpcCallInfo(service, model, method, duration, tap.requestBytes,
+							tap.responseBytes, result, error));
+				} catch (RuntimeException e) {
+					// Metrics must not fail the call
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes the call and reports a read timeout caused by the deadline of
+	 * the thread as a DeadlineExceededException
+	 */
+	private static Object send(OdooXmlRpcProxy client, String rpcMethod, Object[] params, String what)
+			throws XmlRpcException {
+		try {
+			return client.execute(rpcMethod, params);
+		} catch (XmlRpcException e) {
+			Deadline deadline = Deadline.current();
+			if (deadline != null && deadline.isExpired() && e.getCause() instanceof SocketTimeoutException) {
+				throw new DeadlineExceededException("Deadline exceeded during " + what, e);
+			}
+			throw e;
+		}
+	}
+
 	/**
 	 * Executes a workflow by sending a signal to the workflow engine for a
 	 * specific object. This functions calls the 'exec_workflow' method on the
@@ -347,7 +594,277 @@ public class Session {
 			throws XmlRpcException {
 		Object[] params = new Object[] { databaseName, userID, password, objectName, signal, objectID };
 
-		objectClient.execute("exec_workflow", params);
+		try {
+			executeObject(objectName, signal, "exec_workflow", params);
+		} finally {
+			QueryCache queries = queryCache;
+			if (queries != null) {
+				queries.invalidate(objectName);
+			}
+			RecordCache records = recordCache;
+			if (records != null) {
+				// Transitions often change other records of the model, like the lines of an order
+				records.invalidate(objectName);
+			}
+		}
+	}
+
+	/**
+	 * Reports every call this session makes to the server to metrics. Calls
+	 * are not timed or counted without metrics.
+	 *
+	 * @param rpcMetrics
+	 *            Metrics to report to, null to stop reporting
+	 */
+	public void setRpcMetrics(RpcMetrics rpcMetrics) {
+		this.rpcMetrics = rpcMetrics;
+	}
+
+	public RpcMetrics getRpcMetrics() {
+		return rpcMetrics;
+	}
+
+	/**
+	 * Sets the connect and read timeouts of the calls to a service. Calls
+	 * made within a Deadline never wait longer than the time that is left.
+	 *
+	 * @param service
+	 *            Service the timeouts apply to
+	 * @param connectTimeoutMillis
+	 *            Time to wait for a connection, 0 to wait without limit
+	 * @param replyTimeoutMillis
+	 *            Time to wait for data of the reply, 0 to wait without limit
+	 */
+	public void setTimeouts(RPCServices service, int connectTimeoutMillis, int replyTimeoutMillis) {
+		synchronized (timeouts) {
+			timeouts.put(service, new int[] { connectTimeoutMillis, replyTimeoutMillis });
+		}
+		if (service == RPCServices.RPC_OBJECT) {
+			objectClient.setTimeouts(connectTimeoutMillis, replyTimeoutMillis);
+			for (NodePool pool : new NodePool[] { nodePool, replicaPool }) {
+				if (pool != null) {
+					for (NodePool.Node node : pool.getNodes()) {
+						node.client.setTimeouts(connectTimeoutMillis, replyTimeoutMillis);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the connect and read timeouts of the calls to all services
+	 *
+	 * @param connectTimeoutMillis
+	 *            Time to wait for a connection, 0 to wait without limit
+	 * @param replyTimeoutMillis
+	 *            Time to wait for data of the reply, 0 to wait without limit
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int replyTimeoutMillis) {
+		for (RPCServices service : RPCServices.values()) {
+			setTimeouts(service, connectTimeoutMillis, replyTimeoutMillis);
+		}
+	}
+
+	/**
+	 * Creates a client for a service with the timeouts set for it
+	 */
+	private OdooXmlRpcProxy newClient(RPCServices service) {
+		return newClient(host, port, service);
+	}
+
+	private OdooXmlRpcProxy newClient(String host, int port, RPCServices service) {
+		OdooXmlRpcProxy client = new OdooXmlRpcProxy(protocol, host, port, service);
+		int[] serviceTimeouts;
+		synchronized (timeouts) {
+			serviceTimeouts = timeouts.get(service);
+		}
+		if (serviceTimeouts != null) {
+			client.setTimeouts(serviceTimeouts[0], serviceTimeouts[1]);
+		}
+		return client;
+	}
+
+	/**
+	 * Adds an Odoo server that runs the same database to spread object calls
+	 * over. The server of the session is the first node. Every node logs in
+	 * the first time it is used. Read-only calls that can't reach a node are
+	 * made on another one; calls that change data are not, because the node
+	 * may have applied them.
+	 *
+	 * @param host
+	 *            Host name or IP address of the server
+	 * @param port
+	 *            XML-RPC port number of the server
+	 */
+	public synchronized void addNode(String host, int port) {
+		requireNodePool().add(new NodePool.Node(host, port, false, newClient(host, port, RPCServices.RPC_OBJECT)));
+	}
+
+	/**
+	 * Sets how object calls are spread over the nodes. Default
+	 * LEAST_OUTSTANDING.
+	 *
+	 * @param loadBalancing
+	 */
+	public synchronized void setLoadBalancing(LoadBalancing loadBalancing) {
+		requireNodePool().setLoadBalancing(loadBalancing);
+		if (replicaPool != null) {
+			replicaPool.setLoadBalancing(loadBalancing);
+		}
+	}
+
+	/**
+	 * Sets when a node stops getting calls. Defaults 3 failures and 30
+	 * seconds.
+	 *
+	 * @param failures
+	 *            Failures in a row that eject a node
+	 * @param ejectMillis
+	 *            Time an ejected node gets no calls
+	 */
+	public synchronized void setNodeEjection(int failures, long ejectMillis) {
+		requireNodePool().setEjection(failures, ejectMillis);
+		if (replicaPool != null) {
+			replicaPool.setEjection(failures, ejectMillis);
+		}
+	}
+
+	/**
+	 * Returns the nodes that get no calls at the moment because they failed
+	 *
+	 * @return host:port of every ejected node
+	 */
+	public List<String> getEjectedNodes() {
+		List<String> ejected = new ArrayList<String>();
+		for (NodePool pool : new NodePool[] { nodePool, replicaPool }) {
+			if (pool != null) {
+				ejected.addAll(pool.getEjectedEndpoints());
+			}
+		}
+		return ejected;
+	}
+
+	/**
+	 * Adds a read-only replica of the database. Reads go to the replicas as
+	 * the routing policy says, calls that change data always go to the
+	 * session's own server or its nodes. The replicas share the load
+	 * balancing of setLoadBalancing and are ejected in the same way as nodes.
+	 * Reads are made on the primary when no replica can be reached.
+	 *
+	 * @param host
+	 *            Host name or IP address of the replica
+	 * @param port
+	 *            XML-RPC port number of the replica
+	 */
+	public synchronized void addReplica(String host, int port) {
+		if (replicaPool == null) {
+			NodePool pool = new NodePool();
+			if (nodePool != null) {
+				pool.setLoadBalancing(nodePool.getLoadBalancing());
+				pool.setEjection(nodePool.getEjectAfterFailures(), nodePool.getEjectMillis());
+			}
+			replicaPool = pool;
+		}
+		replicaPool.add(new NodePool.Node(host, port, false, newClient(host, port, RPCServices.RPC_OBJECT)));
+	}
+
+	/**
+	 * Sets which reads go to the replicas added with addReplica
+	 *
+	 * @param routingPolicy
+	 */
+	public void setRoutingPolicy(RoutingPolicy routingPolicy) {
+		this.routingPolicy = routingPolicy;
+	}
+
+	public RoutingPolicy getRoutingPolicy() {
+		return routingPolicy;
+	}
+
+	private NodePool requireNodePool() {
+		if (nodePool == null) {
+			NodePool pool = new NodePool();
+			pool.add(new NodePool.Node(host, port, true, objectClient));
+			nodePool = pool;
+		}
+		return nodePool;
+	}
+
+	/**
+	 * Records the requests and responses of every call this session makes to
+	 * the server, to replay them later.
+	 *
+	 * @param trafficRecorder
+	 *            Recorder to write to, null to stop recording
+	 */
+	public void setTrafficRecorder(TrafficRecorder trafficRecorder) {
+		this.trafficRecorder = trafficRecorder;
+	}
+
+	public TrafficRecorder getTrafficRecorder() {
+		return trafficRecorder;
+	}
+
+	/**
+	 * Answers every call this session makes from a recording instead of the
+	 * server. Set it before startSession() to replay the login as well.
+	 *
+	 * @param trafficReplay
+	 *            Recording to answer from, null to call the server again
+	 */
+	public void setTrafficReplay(TrafficReplay trafficReplay) {
+		this.trafficReplay = trafficReplay;
+	}
+
+	public TrafficReplay getTrafficReplay() {
+		return trafficReplay;
+	}
+
+	/**
+	 * Adds an interceptor to the end of the chain that every call to the
+	 * server passes through. Calls that are answered from the query or record
+	 * cache, or that wait for an identical call, don't reach the interceptors.
+	 *
+	 * @param interceptor
+	 */
+	public synchronized void addInterceptor(RpcInterceptor interceptor) {
+		RpcInterceptor[] chain = Arrays.copyOf(interceptors, interceptors.length + 1);
+		chain[chain.length - 1] = interceptor;
+		interceptors = chain;
+	}
+
+	/**
+	 * Removes an interceptor from the chain
+	 *
+	 * @param interceptor
+	 */
+	public synchronized void removeInterceptor(RpcInterceptor interceptor) {
+		List<RpcInterceptor> chain = new ArrayList<RpcInterceptor>(Arrays.asList(interceptors));
+		chain.remove(interceptor);
+		interceptors = chain.toArray(new RpcInterceptor[chain.size()]);
+	}
+
+	/**
+	 * Returns the interceptors, outermost first
+	 *
+	 * @return
+	 */
+	public List<RpcInterceptor> getInterceptors() {
+		return Collections.unmodifiableList(Arrays.asList(interceptors));
+	}
+
+	/**
+	 * Returns if a call doesn't change data on the server
+	 */
+	static boolean isReadOnly(RPCServices service, String rpcMethod, String method) {
+		switch (service) {
+		case RPC_OBJECT:
+			return "execute".equals(rpcMethod) && READ_ONLY_COMMANDS.contains(method);
+		case RPC_DATABASE:
+			return "list".equals(rpcMethod) || "server_version".equals(rpcMethod);
+		default:
+			return true;
+		}
 	}
 
 	/**
@@ -359,7 +876,9 @@ public class Session {
 	public Version getServerVersion() throws XmlRpcException {
 		if (serverVersion == null) {
 			// Cache server version
-			serverVersion = OdooXmlRpcProxy.getServerVersion(protocol, host, port);
+			OdooXmlRpcProxy client = newClient(RPCServices.RPC_DATABASE);
+			serverVersion = new Version(execute(client, RPCServices.RPC_DATABASE, null, "server_version",
+					"server_version", new Object[] {}).toString());
 		}
 		return serverVersion;
 	}
@@ -369,9 +888,10 @@ public class Session {
 		Object[] reportParams = new Object[] { databaseName, userID, password, reportName, ids };
 		
 		if (getServerVersion().getMajor() < 11) {
-			OdooXmlRpcProxy client = new OdooXmlRpcProxy(protocol, host, port, RPCServices.RPC_REPORT);
+			OdooXmlRpcProxy client = newClient(RPCServices.RPC_REPORT);
  
-			Map<String, Object> result = (Map<String, Object>)client.execute("render_report", reportParams);
+			Map<String, Object> result = (Map<String, Object>) execute(client, RPCServices.RPC_REPORT, reportName,
+					"render_report", "render_report", reportParams);
 				finalResults = DatatypeConverter.parseBase64Binary(
 				    (String)result.get("result"));
 			
@@ -401,4 +921,75 @@ public class Session {
 	public Context getContext() {
 		return context;
 	}
+
+	/**
+	 * Sets the cache for search results of the adapters of this session. Only
+	 * adapters that enabled the cache with setQueryCacheEnabled use it.
+	 *
+	 * @param queryCache
+	 *            Cache to use, or null to stop caching
+	 */
+	public void setQueryCache(QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	/**
+	 * Returns the cache for search results, or null if there is none
+	 *
+	 * @return
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Sets the cache for records read by ID by the adapters of this session.
+	 * Only adapters that enabled the cache with setRecordCacheEnabled use it.
+	 *
+	 * @param recordCache
+	 *            Cache to use, or null to stop caching
+	 */
+	public void setRecordCache(RecordCache recordCache) {
+		this.recordCache = recordCache;
+	}
+
+	/**
+	 * Returns the cache for records read by ID, or null if there is none
+	 *
+	 * @return
+	 */
+	public RecordCache getRecordCache() {
+		return recordCache;
+	}
+
+	/**
+	 * Lets concurrent read-only calls (search, read, fields_get, name_get...)
+	 * with identical parameters share one request to the server. When a result
+	 * was shared, each caller gets its own copy of it.
+	 *
+	 * @param coalesce
+	 *            true to share identical requests
+	 */
+	public void setRequestCoalescing(boolean coalesce) {
+		if (!coalesce) {
+			singleFlight = null;
+		} else if (singleFlight == null) {
+			singleFlight = new SingleFlight();
+		}
+	}
+
+	public boolean isRequestCoalescing() {
+		return singleFlight != null;
+	}
+
+	/**
+	 * Returns the number of calls that were served by an identical request
+	 * that was already in flight
+	 *
+	 * @return
+	 */
+	public long getCoalescedRequestCount() {
+		SingleFlight flight = singleFlight;
+		return flight == null ? 0 : flight.getCoalescedCount();
+	}
 }
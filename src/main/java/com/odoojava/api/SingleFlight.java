@@ -0,0 +1,187 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+/**
+ * Lets concurrent callers with the same request share one call to the server.
+ * The first caller makes the call, callers that arrive while it is in flight
+ * wait for its result. Nothing is kept after the call completes.
+ *
+ * Rows change the maps they were read into, so a result that was shared is
+ * copied for every caller. A caller that nobody joined gets the result as is.
+ *
+ * Waiting callers stop at their own Deadline. If the call fails because the
+ * deadline of the caller that made it passed, the others make the call
+ * themselves.
+ */
+final class SingleFlight {
+
+	interface Call {
+		Object call() throws XmlRpcException;
+	}
+
+	/**
+	 * Request parameters compared by content. The hash is taken once, so the
+	 * entry can still be removed if a caller changes its arrays later.
+	 */
+	private static final class Key {
+		private final Object[] request;
+		private final int hash;
+
+		Key(Object[] request) {
+			this.request = request;
+			this.hash = Arrays.deepHashCode(request);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			return obj instanceof Key && hash == ((Key) obj).hash && Arrays.deepEquals(request, ((Key) obj).request);
+		}
+	}
+
+	private static final class Flight {
+		final CompletableFuture<Object> future = new CompletableFuture<Object>();
+		// Only changed while the flight is in the map, under the lock of its entry
+		final AtomicInteger joiners = new AtomicInteger();
+	}
+
+	// Returned by await when the call failed on the deadline of its caller
+	private static final Object DEADLINE_EXCEEDED = new Object();
+
+	private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<Key, Flight>();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Executes a call, or waits for the identical call that is in flight
+	 * @param request Identifies the request, compared by content. Calls with
+	 * equal requests must return the same result. Leave out secrets like the
+	 * password, they are not needed to tell requests apart.
+	 * @param call
+	 * @return The result, copied if it was shared with other callers
+	 * @throws XmlRpcException
+	 */
+	Object execute(Object[] request, Call call) throws XmlRpcException {
+		Key key = new Key(request);
+		Flight flight = new Flight();
+		Flight current = inFlight.compute(key, (k, existing) -> {
+			if (existing == null)
+				return flight;
+			existing.joiners.incrementAndGet();
+			return existing;
+		});
+
+		if (current != flight) {
+			coalescedCount.incrementAndGet();
+			Object shared = await(current.future);
+			// The deadline of the caller that made the call passed, ours may not have
+			return shared == DEADLINE_EXCEEDED ? call.call() : copy(shared);
+		}
+
+		Object result;
+		try {
+			result = call.call();
+		} catch (XmlRpcException | RuntimeException | Error e) {
+			inFlight.remove(key, flight);
+			flight.future.completeExceptionally(e);
+			throw e;
+		}
+		// Nobody can join once the flight is out of the map
+		inFlight.remove(key, flight);
+		flight.future.complete(result);
+		// Joiners copy the original, so it must stay unchanged
+		return flight.joiners.get() == 0 ? result : copy(result);
+	}
+
+	long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	private static Object await(CompletableFuture<Object> future) throws XmlRpcException {
+		Deadline deadline = Deadline.current();
+		try {
+			if (deadline != null)
+				return future.get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			return future.get();
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException("Deadline exceeded while waiting for an identical request", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlRpcException("Interrupted while waiting for an identical request", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DeadlineExceededException)
+				return DEADLINE_EXCEEDED;
+			if (cause instanceof XmlRpcException)
+				throw (XmlRpcException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new XmlRpcException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Deep copy of an XML-RPC value
+	 */
+	@SuppressWarnings("unchecked")
+	static Object copy(Object value) {
+		if (value instanceof Object[]) {
+			Object[] array = (Object[]) value;
+			Object[] copy = new Object[array.length];
+			for (int i = 0; i < array.length; i++)
+				copy[i] = copy(array[i]);
+			return copy;
+		}
+		if (value instanceof Map) {
+			Map<String, Object> map = (Map<String, Object>) value;
+			HashMap<String, Object> copy = new HashMap<String, Object>(map.size() * 2);
+			for (Map.Entry<String, Object> entry : map.entrySet())
+				copy.put(entry.getKey(), copy(entry.getValue()));
+			return copy;
+		}
+		if (value instanceof Date)
+			return ((Date) value).clone();
+		if (value instanceof byte[])
+			return ((byte[]) value).clone();
+		return value;
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Records the XML-RPC requests and responses of a Session to a file, to
+ * replay them later with TrafficReplay:
+ *
+ *		TrafficRecorder recorder = new TrafficRecorder(new File("traffic.rpc"));
+ *		session.setTrafficRecorder(recorder);
+ *		...
+ *		session.setTrafficRecorder(null);
+ *		recorder.close();
+ *
+ * Records are appended, so a file can collect the traffic of several runs.
+ * Each record holds the service, the time the server took to answer, and the
+ * request and response bodies compressed with deflate. Every record is
+ * flushed when it is complete. The session password is masked in the stored
+ * requests.
+ *
+ * Calls that fail before a response arrives, like connection errors, are not
+ * recorded. Faults are recorded, as they arrive as a response. A write error
+ * doesn't fail the call, it stops the recording and is returned by getError().
+ */
+public class TrafficRecorder implements Closeable {
+
+	static final byte[] MAGIC = "ODOORPC1".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] PASSWORD_MASK = "********".getBytes(StandardCharsets.UTF_8);
+
+	private final DataOutputStream out;
+	private long recordCount = 0;
+	private IOException error;
+
+	/**
+	 * @param file File to append to. It is created if it doesn't exist.
+	 * @throws IOException if the file can't be opened or is not a recording
+	 */
+	public TrafficRecorder(File file) throws IOException {
+		boolean empty = !file.exists() || file.length() == 0;
+		if (!empty)
+			checkMagic(file);
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		if (empty) {
+			out.write(MAGIC);
+			out.flush();
+		}
+	}
+
+	static void checkMagic(File file) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			in.readFully(magic);
+		} catch (IOException e) {
+			throw new IOException(file + " is not a traffic recording", e);
+		}
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException(file + " is not a traffic recording");
+	}
+
+	/**
+	 * Appends the request and response of a tapped call
+	 */
+	synchronized void record(MeteredTransportFactory.CallTap tap) {
+		if (error != null || tap.response == null || tap.response.size() == 0)
+			return;
+		try {
+			byte[] request = mask(tap.request.toByteArray(), tap.password);
+			byte[] response = tap.response.toByteArray();
+			out.writeUTF(tap.service.name());
+			out.writeLong(tap.waitNanos);
+			out.writeBoolean(tap.gzipped);
+			writeBody(request);
+			writeBody(response);
+			out.flush();
+			recordCount++;
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	private void writeBody(byte[] body) throws IOException {
+		byte[] compressed = deflate(body);
+		out.writeInt(body.length);
+		out.writeInt(compressed.length);
+		out.write(compressed);
+	}
+
+	/**
+	 * Returns the number of calls recorded
+	 * @return
+	 */
+	public synchronized long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Returns the error that stopped the recording
+	 * @return null if all calls were recorded
+	 */
+	public synchronized IOException getError() {
+		return error;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Replaces the password, as it is written in the XML, in a request
+	 */
+	static byte[] mask(byte[] request, String password) {
+		if (password == null || password.isEmpty())
+			return request;
+		byte[] search = password.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+				.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream masked = new ByteArrayOutputStream(request.length);
+		int i = 0;
+		while (i < request.length) {
+			if (matches(request, i, search)) {
+				masked.write(PASSWORD_MASK, 0, PASSWORD_MASK.length);
+				i += search.length;
+			} else {
+				masked.write(request[i++]);
+			}
+		}
+		return masked.toByteArray();
+	}
+
+	private static boolean matches(byte[] data, int offset, byte[] search) {
+		if (offset + search.length > data.length)
+			return false;
+		for (int j = 0; j < search.length; j++) {
+			if (data[offset + j] != search[j])
+				return false;
+		}
+		return true;
+	}
+
+	static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished())
+				compressed.write(buffer, 0, deflater.deflate(buffer));
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	static byte[] inflate(byte[] compressed, int length) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] data = new byte[length];
+			int read = 0;
+			while (read < length && !inflater.finished())
+				read += inflater.inflate(data, read, length - read);
+			if (read != length)
+				throw new IOException("Recorded body is truncated");
+			return data;
+		} catch (DataFormatException e) {
+			throw new IOException("Recorded body is corrupt", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
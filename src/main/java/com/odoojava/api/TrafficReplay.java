@@ -0,0 +1,208 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+/**
+ * Answers the calls of a Session from a file written by TrafficRecorder,
+ * without connecting to a server:
+ *
+ *		TrafficReplay replay = new TrafficReplay(new File("traffic.rpc"));
+ *		replay.setTimeScale(0);
+ *		Session session = new Session("localhost", 8069, "db", "user", "password");
+ *		session.setTrafficReplay(replay);
+ *		session.startSession();
+ *
+ * A call gets the response recorded for the same service and the same request
+ * body, so the session must send what it sent while recording: the same
+ * database, user and calls. Identical requests get their recorded responses
+ * in recording order, and start over from the first when all were used.
+ * Calls without a recorded response fail with an XmlRpcException.
+ *
+ * Each response waits for the time the server took to answer while recording,
+ * multiplied by the time scale.
+ */
+public class TrafficReplay {
+
+	static final class Exchange {
+		final long waitNanos;
+		final boolean gzipped;
+		final byte[] response;
+
+		Exchange(long waitNanos, boolean gzipped, byte[] response) {
+			this.waitNanos = waitNanos;
+			this.gzipped = gzipped;
+			this.response = response;
+		}
+	}
+
+	private final Map<String, List<Exchange>> exchanges = new HashMap<String, List<Exchange>>();
+	private final Map<String, Integer> positions = new HashMap<String, Integer>();
+	private int exchangeCount = 0;
+	private long replayedCount = 0;
+	private long missCount = 0;
+	private volatile double timeScale = 1;
+
+	/**
+	 * Loads a recording. A record that was cut off at the end of the file is ignored.
+	 * @param file File written by TrafficRecorder
+	 * @throws IOException if the file can't be read or is not a recording
+	 */
+	public TrafficReplay(File file) throws IOException {
+		TrafficRecorder.checkMagic(file);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			in.skipBytes(TrafficRecorder.MAGIC.length);
+			while (true) {
+				String service;
+				try {
+					service = in.readUTF();
+				} catch (EOFException e) {
+					break;
+				}
+				try {
+					long waitNanos = in.readLong();
+					boolean gzipped = in.readBoolean();
+					byte[] request = readBody(in);
+					byte[] response = readBody(in);
+					exchanges.computeIfAbsent(key(service, request), k -> new ArrayList<Exchange>())
+							.add(new Exchange(waitNanos, gzipped, response));
+					exchangeCount++;
+				} catch (EOFException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	private static byte[] readBody(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+		return TrafficRecorder.inflate(compressed, length);
+	}
+
+	private static String key(String service, byte[] request) {
+		try {
+			return service + ":" + DatatypeConverter.printHexBinary(MessageDigest.getInstance("SHA-256").digest(request));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Sets the factor the recorded server time is multiplied with
+	 * @param timeScale 1 for the recorded timing, 0 to answer straight away
+	 */
+	public void setTimeScale(double timeScale) {
+		if (timeScale < 0)
+			throw new IllegalArgumentException("timeScale can't be negative");
+		this.timeScale = timeScale;
+	}
+
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Returns the recorded response for a request, after waiting for the scaled server time
+	 * @param service
+	 * @param request Request body as sent by the client
+	 * @param password Password of the session, masked in the recorded requests
+	 * @return
+	 * @throws XmlRpcException if there is no recorded response for the request
+	 */
+	Exchange replay(RPCServices service, byte[] request, String password) throws XmlRpcException {
+		String key = key(service.name(), TrafficRecorder.mask(request, password));
+		Exchange exchange;
+		synchronized (this) {
+			List<Exchange> recorded = exchanges.get(key);
+			if (recorded == null) {
+				missCount++;
+				throw new XmlRpcException("No recorded response for this " + service + " request");
+			}
+			Integer position = positions.get(key);
+			int index = position == null ? 0 : position;
+			exchange = recorded.get(index);
+			positions.put(key, (index + 1) % recorded.size());
+			replayedCount++;
+		}
+
+		long wait = (long) (exchange.waitNanos * timeScale);
+		if (wait > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new XmlRpcException("Interrupted while replaying a response", e);
+			}
+		}
+		return exchange;
+	}
+
+	/**
+	 * Returns the number of recorded calls
+	 * @return
+	 */
+	public int getExchangeCount() {
+		return exchangeCount;
+	}
+
+	/**
+	 * Returns the number of calls answered from the recording
+	 * @return
+	 */
+	public synchronized long getReplayedCount() {
+		return replayedCount;
+	}
+
+	/**
+	 * Returns the number of calls that had no recorded response
+	 * @return
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Starts every request over at its first recorded response
+	 */
+	public synchronized void rewind() {
+		positions.clear();
+	}
+}
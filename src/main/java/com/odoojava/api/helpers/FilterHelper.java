@@ -19,12 +19,17 @@
 
 package com.odoojava.api.helpers;
 
+import java.util.regex.Pattern;
+
 /**
  * Filter helper to assist is common tasks and store some hardcoded values
  * @author Pieter van der Merwe
  *
  */
 public class FilterHelper {
+	private static final Pattern CSV_COMMA = Pattern.compile("(?!\\\\),");
+	private static final Pattern CSV_ESCAPE = Pattern.compile("\\\\(?=,)");
+
 	/**
 	 * Returns a list of supported operators supported by the API
 	 * @return
@@ -51,7 +56,7 @@ public class FilterHelper {
 	 * @return
 	 */
 	public static String csvEncodeString(String value){
-	  return value.replaceAll("(?!\\\\),", "\\\\,");
+	  return CSV_COMMA.matcher(value).replaceAll("\\\\,");
 	}
 	
 	/**
@@ -60,6 +65,6 @@ public class FilterHelper {
 	 * @return
 	 */
 	public static String csvDecodeString(String value){
-    return value.replaceAll("\\\\(?=,)", "");
+    return CSV_ESCAPE.matcher(value).replaceAll("");
   }
 }
@@ -0,0 +1,188 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class ChangeBufferTest {
+	private static final String TEST_MODEL_NAME = "sale.order";
+
+	private static class WriteCommand extends OdooCommand {
+		final List<Object[]> writtenIds = new ArrayList<>();
+		final List<Map<String, Object>> writtenValues = new ArrayList<>();
+		boolean fail = false;
+		int failingId = 0;
+
+		WriteCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("model", TEST_MODEL_NAME);
+			return new Object[] { row };
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> state = new HashMap<>();
+			state.put("type", "char");
+			HashMap<String, Object> note = new HashMap<>();
+			note.put("type", "text");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("state", state);
+			fields.put("note", note);
+			return fields;
+		}
+
+		@Override
+		public boolean writeObject(String objectName, Object[] ids, Map<String, Object> valueList)
+				throws XmlRpcException {
+			if (fail) {
+				throw new XmlRpcException("Server unavailable");
+			}
+			if (Arrays.asList(ids).contains(failingId)) {
+				throw new XmlRpcException("Record " + failingId + " is locked");
+			}
+			writtenIds.add(ids);
+			writtenValues.add(valueList);
+			return true;
+		}
+
+		@Override
+		public boolean writeObject(String objectName, int id, Map<String, Object> valueList)
+				throws XmlRpcException {
+			return writeObject(objectName, new Object[] { id }, valueList);
+		}
+	}
+
+	private static RowCollection existingRows(ObjectAdapter adapter, int count) throws Exception {
+		FieldCollection fields = adapter.getFields();
+		RowCollection rows = new RowCollection();
+		for (int i = 1; i <= count; i++) {
+			HashMap<String, Object> values = new HashMap<>();
+			values.put("id", i);
+			values.put("state", "draft");
+			values.put("note", false);
+			rows.add(new Row(values, fields));
+		}
+		return rows;
+	}
+
+	@Test
+	public void should_write_identical_changes_in_one_call() throws Exception {
+		WriteCommand command = new WriteCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = existingRows(adapter, 5);
+
+		try (ChangeBuffer buffer = new ChangeBuffer(adapter)) {
+			buffer.track(rows);
+			for (Row row : rows) {
+				row.put("state", "sent");
+				row.put("state", "done");
+			}
+			assertThat(command.writtenIds).as("Writes before commit").isEmpty();
+		}
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.writtenIds).as("Write calls").hasSize(1);
+		softAssertions.assertThat(command.writtenIds.get(0)).as("Written ids").containsOnly(1, 2, 3, 4, 5);
+		softAssertions.assertThat(command.writtenValues.get(0)).as("Written values").containsOnlyKeys("state")
+				.containsEntry("state", "done");
+		softAssertions.assertThat(rows.get(0).getChangedFields()).as("Changed fields after commit").isEmpty();
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_flush_when_max_pending_rows_is_reached() throws Exception {
+		WriteCommand command = new WriteCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = existingRows(adapter, 5);
+
+		ChangeBuffer buffer = new ChangeBuffer(adapter, 2);
+		buffer.track(rows);
+		for (Row row : rows) {
+			row.put("note", "Note for " + row.getID());
+		}
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.writtenIds).as("Write calls").hasSize(4);
+		softAssertions.assertThat(buffer.getPendingCount()).as("Pending rows").isEqualTo(1);
+		buffer.commit();
+		softAssertions.assertThat(command.writtenIds).as("Write calls after commit").hasSize(5);
+		softAssertions.assertThat(buffer.getPendingCount()).as("Pending rows after commit").isEqualTo(0);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_keep_rows_pending_and_report_failed_automatic_flush() throws Exception {
+		WriteCommand command = new WriteCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = existingRows(adapter, 2);
+
+		ChangeBuffer buffer = new ChangeBuffer(adapter, 2);
+		buffer.track(rows);
+		command.fail = true;
+		rows.get(0).put("state", "done");
+		rows.get(1).put("state", "done");
+
+		assertThat(buffer.getPendingCount()).as("Pending rows after failure").isEqualTo(2);
+
+		command.fail = false;
+		Throwable thrown = catchThrowable(buffer::commit);
+		assertThat(thrown).as("Error of automatic flush").isInstanceOf(OdooApiException.class)
+				.hasCauseInstanceOf(XmlRpcException.class);
+		assertThat(command.writtenIds).as("Rows written by commit").hasSize(1);
+		assertThat(buffer.getPendingCount()).as("Pending rows after commit").isEqualTo(0);
+	}
+
+	@Test
+	public void should_write_row_by_row_when_a_group_fails() throws Exception {
+		WriteCommand command = new WriteCommand();
+		command.failingId = 3;
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = existingRows(adapter, 4);
+		for (Row row : rows)
+			row.put("state", "done");
+
+		Throwable thrown = catchThrowable(() -> adapter.writeObjectGrouped(rows, true));
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(thrown).as("Error").isInstanceOf(OdooApiException.class)
+				.hasMessageContaining("Record 3 is locked");
+		softAssertions.assertThat(command.writtenIds).as("Rows written before the failing row")
+				.containsExactly(new Object[] { 1 }, new Object[] { 2 });
+		softAssertions.assertThat(rows.get(3).getChangedFields()).as("Row after the failing row").isNotEmpty();
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_write_rows_one_by_one_in_order_unless_grouped() throws Exception {
+		WriteCommand command = new WriteCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = existingRows(adapter, 3);
+		rows.get(0).put("state", "done");
+		rows.get(1).put("state", "sent");
+		rows.get(2).put("state", "done");
+
+		adapter.writeObject(rows, true);
+
+		assertThat(command.writtenIds).as("Write calls").containsExactly(new Object[] { 1 }, new Object[] { 2 },
+				new Object[] { 3 });
+	}
+}
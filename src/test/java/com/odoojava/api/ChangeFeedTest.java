@@ -0,0 +1,239 @@
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class ChangeFeedTest {
+	private static final String TEST_MODEL_NAME = "res.partner";
+
+	private static class FeedCommand extends OdooCommand {
+		// Compared as text, so fractions of a second sort after the whole second
+		final TreeMap<Integer, String> writeDates = new TreeMap<>();
+		final List<Object[]> searches = new ArrayList<>();
+
+		FeedCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter, int offset, int limit, String order,
+				boolean count) {
+			searches.add(filter);
+			List<Integer> ids = writeDates.keySet().stream().filter(id -> matches(id, filter))
+					.sorted((a, b) -> {
+						int compare = writeDates.get(a).compareTo(writeDates.get(b));
+						return compare != 0 ? compare : a.compareTo(b);
+					}).collect(Collectors.toList());
+			if (limit > 0 && ids.size() > limit)
+				ids = ids.subList(0, limit);
+			return new Response(ids.toArray());
+		}
+
+		private boolean matches(Integer id, Object[] filter) {
+			int[] position = new int[] { 0 };
+			boolean matches = true;
+			while (position[0] < filter.length)
+				matches &= matches(id, filter, position);
+			return matches;
+		}
+
+		/**
+		 * Evaluates the prefix expression at position, terms on other fields match
+		 */
+		private boolean matches(Integer id, Object[] filter, int[] position) {
+			Object element = filter[position[0]++];
+			if ("|".equals(element))
+				return matches(id, filter, position) | matches(id, filter, position);
+			if ("&".equals(element))
+				return matches(id, filter, position) & matches(id, filter, position);
+			if ("!".equals(element))
+				return !matches(id, filter, position);
+			Object[] term = (Object[]) element;
+			List<Object> values = term[2] instanceof Object[] ? Arrays.asList((Object[]) term[2]) : null;
+			if (term[0].equals("write_date")) {
+				int compare = writeDates.get(id).compareTo(term[2].toString());
+				switch (term[1].toString()) {
+				case ">=":
+					return compare >= 0;
+				case ">":
+					return compare > 0;
+				case "<":
+					return compare < 0;
+				case "=":
+					return compare == 0;
+				}
+			}
+			if (term[0].equals("id") && term[1].equals("not in"))
+				return !values.contains(id);
+			if (term[0].equals("id") && term[1].equals("in"))
+				return values.contains(id);
+			return true;
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (!TEST_MODEL_NAME.equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				return new Object[] { row };
+			}
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("id", ids[i]);
+				row.put("name", "Partner " + ids[i]);
+				// Stored with fractions of a second, returned to the second
+				row.put("write_date", writeDates.get(ids[i]).substring(0, 19));
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> writeDate = new HashMap<>();
+			writeDate.put("type", "datetime");
+			HashMap<String, Object> active = new HashMap<>();
+			active.put("type", "boolean");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			fields.put("write_date", writeDate);
+			fields.put("active", active);
+			return fields;
+		}
+	}
+
+	private static class MemoryStore implements ChangeFeed.WatermarkStore {
+		final Map<String, String> watermarks = new HashMap<>();
+
+		@Override
+		public String load(String key) {
+			return watermarks.get(key);
+		}
+
+		@Override
+		public void save(String key, String watermark) {
+			watermarks.put(key, watermark);
+		}
+	}
+
+	private static List<Integer> ids(RowCollection rows) {
+		return rows.stream().map(Row::getID).collect(Collectors.toList());
+	}
+
+	@Test
+	public void should_page_through_changes_once() throws Exception {
+		FeedCommand command = new FeedCommand();
+		command.writeDates.put(1, "2018-01-01 10:00:00");
+		command.writeDates.put(2, "2018-01-01 10:00:00");
+		command.writeDates.put(3, "2018-01-01 10:00:00");
+		command.writeDates.put(4, "2018-01-01 10:00:05");
+		command.writeDates.put(5, "2018-01-01 10:00:01");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		MemoryStore store = new MemoryStore();
+
+		ChangeFeed feed = new ChangeFeed(adapter, new String[] { "name" }, store, "partners");
+		feed.setPageSize(2);
+		List<List<Integer>> pages = new ArrayList<>();
+		RowCollection rows;
+		while (!(rows = feed.nextPage()).isEmpty()) {
+			pages.add(ids(rows));
+			feed.commit();
+		}
+
+		command.writeDates.put(2, "2018-01-01 10:00:10");
+		command.writeDates.put(4, "2018-01-01 10:00:20");
+		ChangeFeed nextSync = new ChangeFeed(adapter, new String[] { "name" }, store, "partners");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(pages).as("Pages").containsExactly(Arrays.asList(1, 2), Arrays.asList(3, 5),
+				Arrays.asList(4));
+		softAssertions.assertThat(store.watermarks.get("partners")).as("Stored watermark")
+				.isEqualTo("2018-01-01 10:00:05|4");
+		softAssertions.assertThat(ids(nextSync.nextPage())).as("Next sync").containsExactly(2, 4);
+		softAssertions.assertThat(ids(nextSync.nextPage())).as("Next sync done").isEmpty();
+		softAssertions.assertAll();
+	}
+
+	private static List<List<Integer>> readAll(ChangeFeed feed) throws Exception {
+		List<List<Integer>> pages = new ArrayList<>();
+		RowCollection rows;
+		// Bounded, a feed that doesn't advance fails instead of hanging
+		while (pages.size() < 10 && !(rows = feed.nextPage()).isEmpty())
+			pages.add(ids(rows));
+		return pages;
+	}
+
+	@Test
+	public void should_page_through_write_dates_stored_with_fractions_of_a_second() throws Exception {
+		FeedCommand command = new FeedCommand();
+		command.writeDates.put(1, "2018-01-01 10:00:00.700");
+		command.writeDates.put(2, "2018-01-01 10:00:00.200");
+		command.writeDates.put(3, "2018-01-01 10:00:01.500");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+
+		ChangeFeed feed = new ChangeFeed(adapter, new String[] { "name" }, null, "partners");
+		feed.setPageSize(2);
+		List<List<Integer>> pages = readAll(feed);
+		command.writeDates.put(1, "2018-01-01 10:00:01.900");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(pages).as("Pages").containsExactly(Arrays.asList(1, 2), Arrays.asList(3));
+		softAssertions.assertThat(feed.getWatermark()).as("Watermark").isEqualTo("2018-01-01 10:00:01|3");
+		softAssertions.assertThat(readAll(feed)).as("Changed again").containsExactly(Arrays.asList(1));
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_page_through_more_records_than_a_page_in_one_second() throws Exception {
+		FeedCommand command = new FeedCommand();
+		for (int id = 1; id <= 5; id++)
+			command.writeDates.put(id, "2018-01-01 10:00:00." + (10 - id) + "00");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+
+		ChangeFeed feed = new ChangeFeed(adapter, new String[] { "name" }, null, "partners");
+		feed.setPageSize(2);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(readAll(feed)).as("Pages").containsExactly(Arrays.asList(4, 5),
+				Arrays.asList(2, 3), Arrays.asList(1));
+		softAssertions.assertThat(feed.getWatermark()).as("Watermark")
+				.isEqualTo("2018-01-01 10:00:00|4,5,2,3,1");
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_find_deleted_ids_in_chunks() throws Exception {
+		FeedCommand command = new FeedCommand();
+		command.writeDates.put(1, "2018-01-01 10:00:00");
+		command.writeDates.put(2, "2018-01-01 10:00:00");
+		command.writeDates.put(3, "2018-01-01 10:00:00");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setFilterSplitSize(2);
+
+		ChangeFeed feed = new ChangeFeed(adapter, new String[] { "name" }, null, "partners");
+		Object[] deleted = feed.findDeleted(new Object[] { 1, 9, 2, 3, 10 });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(deleted).as("Deleted").containsExactly(9, 10);
+		softAssertions.assertThat(command.searches).as("Searches").hasSize(3);
+		softAssertions.assertThat(command.searches.get(0)[0]).as("Archived records included").isEqualTo("|");
+		softAssertions.assertAll();
+	}
+}
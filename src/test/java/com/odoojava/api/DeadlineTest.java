@@ -0,0 +1,110 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+public class DeadlineTest {
+
+	@Test
+	public void should_fail_fast_once_the_deadline_has_passed() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("deadline.partner", 4, 20, 8);
+			server.start();
+			Session session = server.newSession();
+			ObjectAdapter adapter = session.getObjectAdapter("deadline.partner");
+			server.setLatencyMillis(500);
+
+			Throwable timedOut;
+			Throwable afterwards;
+			long calls;
+			long callsAfterwards;
+			try (Deadline deadline = Deadline.start(100, TimeUnit.MILLISECONDS)) {
+				timedOut = catchThrowable(() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+				calls = server.getCallCount();
+				afterwards = catchThrowable(() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+				callsAfterwards = server.getCallCount();
+			}
+			server.setLatencyMillis(0);
+			RowCollection rows = adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" });
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(timedOut).as("During call").isInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertThat(afterwards).as("After deadline").isInstanceOf(DeadlineExceededException.class)
+					.hasMessageContaining("before");
+			softAssertions.assertThat(callsAfterwards).as("Calls")
+					.isEqualTo(calls);
+			softAssertions.assertThat(rows).as("Without deadline").hasSize(20);
+			softAssertions.assertThat(Deadline.current()).as("Closed").isNull();
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_apply_timeouts_and_deadline_to_chunks() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("deadline.partner", 4, 0, 8);
+			server.start();
+			Session session = server.newSession();
+			ObjectAdapter adapter = session.getObjectAdapter("deadline.partner");
+			FieldCollection fields = adapter.getFields(new String[] { "name" });
+			RowCollection rows = new RowCollection();
+			for (int i = 0; i < 20; i++) {
+				Row row = adapter.getNewRow(fields);
+				row.put("name", "Row " + i);
+				rows.add(row);
+			}
+			ImportOptions options = new ImportOptions();
+			options.setChunkSize(2);
+			options.setMaxConcurrentChunks(2);
+			server.setLatencyMillis(200);
+
+			Throwable importError;
+			long nestedRemaining;
+			try (Deadline deadline = Deadline.start(500, TimeUnit.MILLISECONDS)) {
+				try (Deadline nested = Deadline.start(1, TimeUnit.MINUTES)) {
+					nestedRemaining = nested.getRemaining(TimeUnit.MILLISECONDS);
+				}
+				importError = catchThrowable(() -> adapter.importData(rows, options));
+			}
+			long loads = server.getCallCount("deadline.partner", "load");
+
+			session.setTimeouts(RPCServices.RPC_OBJECT, 0, 50);
+			Throwable replyTimeout = catchThrowable(() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(nestedRemaining).as("Nested deadline").isLessThanOrEqualTo(500);
+			softAssertions.assertThat(importError).as("Import").isInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertThat(loads).as("Chunks sent").isGreaterThan(0).isLessThan(10);
+			softAssertions.assertThat(replyTimeout).as("Reply timeout").isInstanceOf(XmlRpcException.class)
+					.isNotInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertAll();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.odoojava.api.FilterCollection.FilterOperator;
+
+public class DomainTest {
+
+	@Test
+	public void should_give_equivalent_domains_the_same_key() throws Exception {
+		FilterCollection first = new FilterCollection();
+		first.add(FilterOperator.OR);
+		first.add("state", "=", "draft");
+		first.add("state", "=", "sent");
+		first.add("partner_id", "=", 7);
+
+		FilterCollection second = new FilterCollection();
+		second.add("partner_id", "=", 7);
+		second.add("state", "in", new Object[] { "sent", "draft", "sent" });
+
+		FilterCollection different = new FilterCollection();
+		different.add("partner_id", "=", "7");
+		different.add("state", "in", new Object[] { "sent", "draft" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(Domain.parse(first).getKey()).as("Equivalent domain")
+				.isEqualTo(Domain.parse(second).getKey());
+		softAssertions.assertThat(Domain.parse(first).getKey()).as("Value type differs")
+				.isNotEqualTo(Domain.parse(different).getKey());
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_push_negation_down_to_terms() throws Exception {
+		Object[] domain = new Object[] { "!", "|", new Object[] { "state", "=", "done" },
+				new Object[] { "amount", "<", 10 } };
+
+		Domain normalized = Domain.parse(domain).normalize();
+
+		assertThat(normalized.toArray()).containsOnly(new Object[] { "amount", ">=", 10 },
+				new Object[] { "state", "!=", "done" });
+	}
+
+	@Test
+	public void should_round_trip_to_filter_collection() throws Exception {
+		Object[] domain = new Object[] { new Object[] { "active", "=", true }, "|", "&",
+				new Object[] { "state", "=", "done" }, new Object[] { "paid", "=", true },
+				new Object[] { "state", "=", "cancel" } };
+
+		Domain parsed = Domain.parse(domain);
+		FilterCollection filters = parsed.toFilterCollection();
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(filters.getFilters()).as("Filters").containsExactly(domain);
+		softAssertions.assertThat(Domain.parse(filters)).as("Parsed again").isEqualTo(parsed);
+		softAssertions.assertAll();
+	}
+}
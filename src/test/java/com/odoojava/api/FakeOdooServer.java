@@ -0,0 +1,864 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.xmlrpc.common.TypeFactoryImpl;
+import org.apache.xmlrpc.common.XmlRpcHttpRequestConfigImpl;
+import org.apache.xmlrpc.parser.XmlRpcRequestParser;
+import org.apache.xmlrpc.serializer.DefaultXMLWriterFactory;
+import org.apache.xmlrpc.serializer.XmlRpcWriter;
+import org.apache.xmlrpc.util.SAXParsers;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-memory stand-in for an Odoo server, to run the client against without a
+ * network or a database:
+ *
+ *		FakeOdooServer server = new FakeOdooServer();
+ *		server.addModel("res.partner", 20, 10000, 32);
+ *		server.setLatencyMillis(5);
+ *		server.start();
+ *		Session session = server.newSession();
+ *
+ * It answers /xmlrpc/2/common (login, version), /xmlrpc/2/db (list,
+ * server_version) and /xmlrpc/2/object (execute and execute_kw of search,
+ * search_count, read, search_read, write, create, unlink, load, fields_get,
+ * name_get and context_get). Domains support the comparison operators, in,
+ * like and the prefix operators. Records with active = false are left out of
+ * searches unless the domain filters on active, as Odoo does.
+ *
+ * Every call waits for the fixed latency plus the per row latency times the
+ * number of rows it returns or changes, so throughput tests see the cost of
+ * round trips and of payload size.
+ */
+public class FakeOdooServer implements AutoCloseable {
+
+	public static final String DATABASE = "fake";
+	public static final String USER = "admin";
+	public static final String PASSWORD = "admin";
+	public static final int USER_ID = 1;
+
+	static {
+		// Without TCP_NODELAY small responses wait for the delayed ACK of the client
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private static final String[] SYNTHETIC_TYPES = { "char", "integer", "float", "boolean", "date", "datetime",
+			"many2one", "text" };
+
+	private final Map<String, Model> models = new ConcurrentHashMap<String, Model>();
+	private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong callCount = new AtomicLong();
+	private final XmlRpcHttpRequestConfigImpl config = new XmlRpcHttpRequestConfigImpl();
+	private final TypeFactoryImpl typeFactory = new TypeFactoryImpl(null);
+
+	private String version = "10.0";
+	private volatile long latencyNanos = 0;
+	private volatile long latencyPerRowNanos = 0;
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+	private volatile int failureStatus;
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public FakeOdooServer() {
+		// The client sends requests with extensions enabled
+		config.setEnabledForExtensions(true);
+		addModel("ir.model", fields("model", "char", "name", "char"));
+	}
+
+	/**
+	 * Field definitions as returned by fields_get, from pairs of field name and type
+	 * @param namesAndTypes For example "name", "char", "amount", "float"
+	 * @return
+	 */
+	public static Map<String, Map<String, Object>> fields(String... namesAndTypes) {
+		Map<String, Map<String, Object>> fields = new LinkedHashMap<String, Map<String, Object>>();
+		for (int i = 0; i + 1 < namesAndTypes.length; i += 2) {
+			Map<String, Object> definition = new HashMap<String, Object>();
+			definition.put("type", namesAndTypes[i + 1]);
+			definition.put("string", namesAndTypes[i]);
+			fields.put(namesAndTypes[i], definition);
+		}
+		return fields;
+	}
+
+	/**
+	 * Adds an empty model
+	 * @param name Model name
+	 * @param fields Field definitions, see fields(). Many2one fields need a "relation" to a model of this server.
+	 * @return The model, to add records to
+	 */
+	public Model addModel(String name, Map<String, Map<String, Object>> fields) {
+		Model model = new Model(name, fields);
+		models.put(name, model);
+		if (!name.equals("ir.model")) {
+			Map<String, Object> values = new HashMap<String, Object>();
+			values.put("model", name);
+			values.put("name", name);
+			models.get("ir.model").create(values);
+		}
+		return model;
+	}
+
+	/**
+	 * Adds a model with generated fields and records. Besides name, active and
+	 * write_date, the model has fieldCount fields whose types cycle through
+	 * char, integer, float, boolean, date, datetime, many2one (to the model
+	 * itself) and text.
+	 * @param name Model name
+	 * @param fieldCount Number of generated fields
+	 * @param recordCount Number of records to generate
+	 * @param valueSize Length of the char and text values
+	 * @return The model
+	 */
+	public Model addModel(String name, int fieldCount, int recordCount, int valueSize) {
+		Map<String, Map<String, Object>> fields = fields("name", "char", "active", "boolean", "write_date",
+				"datetime");
+		for (int i = 0; i < fieldCount; i++) {
+			String type = SYNTHETIC_TYPES[i % SYNTHETIC_TYPES.length];
+			String fieldName = "x_" + type + "_" + i;
+			fields.putAll(fields(fieldName, type));
+			if (type.equals("many2one"))
+				fields.get(fieldName).put("relation", name);
+		}
+
+		Model model = addModel(name, fields);
+		char[] padding = new char[Math.max(0, valueSize)];
+		Arrays.fill(padding, 'x');
+		String paddingString = new String(padding);
+		for (int id = 1; id <= recordCount; id++) {
+			Map<String, Object> values = new HashMap<String, Object>();
+			values.put("name", "Record " + id);
+			values.put("active", true);
+			for (String fieldName : fields.keySet()) {
+				if (!fieldName.startsWith("x_"))
+					continue;
+				switch ((String) fields.get(fieldName).get("type")) {
+				case "char":
+				case "text":
+					values.put(fieldName, (id + paddingString).substring(0, Math.max(1, valueSize)));
+					break;
+				case "integer":
+					values.put(fieldName, id);
+					break;
+				case "float":
+					values.put(fieldName, id * 0.5);
+					break;
+				case "boolean":
+					values.put(fieldName, id % 2 == 0);
+					break;
+				case "date":
+					values.put(fieldName, "2018-01-" + (10 + id % 20));
+					break;
+				case "datetime":
+					values.put(fieldName, "2018-01-" + (10 + id % 20) + " 12:00:00");
+					break;
+				case "many2one":
+					values.put(fieldName, 1 + id % recordCount);
+					break;
+				}
+			}
+			model.create(values);
+		}
+		return model;
+	}
+
+	public Model getModel(String name) {
+		return models.get(name);
+	}
+
+	/**
+	 * Sets the version returned by server_version and version
+	 * @param version For example "10.0"
+	 */
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * Sets the time every call waits before it answers
+	 * @param latencyMillis
+	 */
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+	}
+
+	/**
+	 * Sets the time a call waits for every row it returns or changes, on top of the fixed latency
+	 * @param latencyPerRowMicros
+	 */
+	public void setLatencyPerRowMicros(long latencyPerRowMicros) {
+		this.latencyPerRowNanos = TimeUnit.MICROSECONDS.toNanos(latencyPerRowMicros);
+	}
+
+	/**
+	 * Answers the next calls with an HTTP error instead of handling them, like
+	 * a proxy in front of an unavailable server
+	 * @param count Number of calls to fail
+	 * @param status HTTP status to answer with, for example 503
+	 */
+	public void failNextCalls(int count, int status) {
+		this.failureStatus = status;
+		this.failuresLeft.set(count);
+	}
+
+	/**
+	 * Starts listening on a free port of the loopback interface
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "fake-odoo-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/xmlrpc/2/", this::handle);
+		server.start();
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns a started session for the default database and user
+	 * @return
+	 * @throws Exception
+	 */
+	public Session newSession() throws Exception {
+		Session session = new Session("localhost", getPort(), DATABASE, USER, PASSWORD);
+		session.startSession();
+		return session;
+	}
+
+	/**
+	 * Returns the number of calls answered
+	 * @return
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	/**
+	 * Returns the number of calls of a method on a model
+	 * @param model
+	 * @param method For example "search_read"
+	 * @return
+	 */
+	public long getCallCount(String model, String method) {
+		AtomicLong count = callCounts.get(model + "." + method);
+		return count == null ? 0 : count.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String service = exchange.getRequestURI().getPath().substring("/xmlrpc/2/".length());
+		if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+			try (InputStream in = exchange.getRequestBody()) {
+				while (in.read() >= 0) {
+				}
+			}
+			exchange.sendResponseHeaders(failureStatus, -1);
+			exchange.close();
+			return;
+		}
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (InputStream in = exchange.getRequestBody()) {
+			XmlRpcRequestParser parser = new XmlRpcRequestParser(config, typeFactory);
+			XMLReader reader = SAXParsers.newXMLReader();
+			reader.setContentHandler(parser);
+			reader.parse(new InputSource(in));
+
+			long start = System.nanoTime();
+			Object[] rowCount = new Object[] { 0 };
+			Object result = dispatch(service, parser.getMethodName(), parser.getParams().toArray(), rowCount);
+			callCount.incrementAndGet();
+			long wait = latencyNanos + latencyPerRowNanos * (Integer) rowCount[0] - (System.nanoTime() - start);
+			if (wait > 0)
+				TimeUnit.NANOSECONDS.sleep(wait);
+
+			new XmlRpcWriter(config, new DefaultXMLWriterFactory().getXmlWriter(config, response), typeFactory)
+					.write(config, result);
+		} catch (Exception e) {
+			response.reset();
+			try {
+				new XmlRpcWriter(config, new DefaultXMLWriterFactory().getXmlWriter(config, response), typeFactory)
+						.write(config, 1, String.valueOf(e.getMessage()));
+			} catch (Exception writeError) {
+				throw new IOException(writeError);
+			}
+		}
+
+		byte[] body = response.toByteArray();
+		exchange.getResponseHeaders().set("Content-Type", "text/xml");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private Object dispatch(String service, String method, Object[] params, Object[] rowCount) throws Exception {
+		switch (service) {
+		case "common":
+			if (method.equals("version")) {
+				Map<String, Object> versionInfo = new HashMap<String, Object>();
+				versionInfo.put("server_version", version);
+				versionInfo.put("protocol_version", 1);
+				return versionInfo;
+			}
+			if (method.equals("login") || method.equals("authenticate"))
+				return DATABASE.equals(params[0]) && USER.equals(params[1]) && PASSWORD.equals(params[2]) ? USER_ID
+						: false;
+			break;
+		case "db":
+			if (method.equals("list"))
+				return new Object[] { DATABASE };
+			if (method.equals("server_version"))
+				return version;
+			break;
+		case "object":
+			if (method.equals("execute") || method.equals("execute_kw")) {
+				if (!DATABASE.equals(params[0]) || !Integer.valueOf(USER_ID).equals(params[1])
+						|| !PASSWORD.equals(params[2]))
+					throw new IllegalArgumentException("AccessDenied");
+				String modelName = (String) params[3];
+				String command = (String) params[4];
+				Object[] arguments = method.equals("execute") ? Arrays.copyOfRange(params, 5, params.length)
+						: (Object[]) params[5];
+				callCounts.computeIfAbsent(modelName + "." + command, key -> new AtomicLong()).incrementAndGet();
+				return execute(modelName, command, arguments, rowCount);
+			}
+			break;
+		}
+		throw new IllegalArgumentException("Method " + method + " is not supported on " + service);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object execute(String modelName, String command, Object[] args, Object[] rowCount) {
+		if (command.equals("context_get")) {
+			Map<String, Object> context = new HashMap<String, Object>();
+			context.put("lang", "en_US");
+			context.put("tz", "Europe/Brussels");
+			return context;
+		}
+
+		Model model = models.get(modelName);
+		if (model == null)
+			throw new IllegalArgumentException("Model " + modelName + " does not exist");
+		Map<String, Object> context = args.length > 0 && args[args.length - 1] instanceof Map
+				? (Map<String, Object>) args[args.length - 1] : new HashMap<String, Object>();
+		boolean activeTest = !Boolean.FALSE.equals(context.get("active_test"));
+
+		switch (command) {
+		case "search": {
+			Object[] ids = model.search(domain(args, 0), arg(args, 1), arg(args, 2), arg(args, 3), activeTest);
+			rowCount[0] = ids.length;
+			// Before Odoo 10 the count flag comes after the context
+			Object count = args.length > 4 && args[4] instanceof Boolean ? args[4] : arg(args, 5);
+			return Boolean.TRUE.equals(count) ? (Object) ids.length : ids;
+		}
+		case "search_count":
+			return model.search(domain(args, 0), null, null, null, activeTest).length;
+		case "read": {
+			Object[] rows = model.read(ids(args[0]), strings(arg(args, 1)));
+			rowCount[0] = rows.length;
+			return rows;
+		}
+		case "search_read": {
+			Object[] ids = model.search(domain(args, 0), arg(args, 2), arg(args, 3), arg(args, 4), activeTest);
+			Object[] rows = model.read(ids, strings(arg(args, 1)));
+			rowCount[0] = rows.length;
+			return rows;
+		}
+		case "write": {
+			Object[] ids = ids(args[0]);
+			model.write(ids, (Map<String, Object>) args[1]);
+			rowCount[0] = ids.length;
+			return true;
+		}
+		case "create":
+			rowCount[0] = 1;
+			return model.create((Map<String, Object>) args[0]);
+		case "unlink": {
+			Object[] ids = ids(args[0]);
+			model.unlink(ids);
+			rowCount[0] = ids.length;
+			return true;
+		}
+		case "load": {
+			Object[] rows = (Object[]) args[1];
+			rowCount[0] = rows.length;
+			Map<String, Object> result = new HashMap<String, Object>();
+			result.put("ids", model.load(strings(args[0]), rows));
+			result.put("messages", new Object[0]);
+			return result;
+		}
+		case "fields_get":
+			return model.fieldsGet(strings(arg(args, 0)));
+		case "name_get": {
+			Object[] ids = ids(args[0]);
+			Object[] names = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++)
+				names[i] = new Object[] { ids[i], model.displayName((Integer) ids[i]) };
+			rowCount[0] = ids.length;
+			return names;
+		}
+		default:
+			throw new IllegalArgumentException("Method " + command + " is not supported on " + modelName);
+		}
+	}
+
+	private static Object arg(Object[] args, int index) {
+		if (index >= args.length || args[index] instanceof Map)
+			return null;
+		return args[index];
+	}
+
+	private static Object[] domain(Object[] args, int index) {
+		Object domain = arg(args, index);
+		return domain instanceof Object[] ? (Object[]) domain : new Object[0];
+	}
+
+	private static Object[] ids(Object ids) {
+		Object[] values = ids instanceof Object[] ? (Object[]) ids : new Object[] { ids };
+		Object[] result = new Object[values.length];
+		for (int i = 0; i < values.length; i++)
+			result[i] = Integer.parseInt(values[i].toString());
+		return result;
+	}
+
+	private static String[] strings(Object values) {
+		if (!(values instanceof Object[]))
+			return new String[0];
+		Object[] array = (Object[]) values;
+		String[] result = new String[array.length];
+		for (int i = 0; i < array.length; i++)
+			result[i] = array[i].toString();
+		return result;
+	}
+
+	private static String now() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date());
+	}
+
+	/**
+	 * Records of one model, stored the way Odoo stores them: many2one values
+	 * as IDs, many2many values as ID arrays and empty values as null. Changes
+	 * replace the map of a record, so reads don't lock.
+	 */
+	public final class Model {
+
+		private final String name;
+		private final Map<String, Map<String, Object>> fields;
+		private final ConcurrentSkipListMap<Integer, Map<String, Object>> records = new ConcurrentSkipListMap<Integer, Map<String, Object>>();
+		private int nextId = 1;
+
+		Model(String name, Map<String, Map<String, Object>> fields) {
+			this.name = name;
+			this.fields = fields;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Creates a record
+		 * @param values Field values, many2one values as IDs
+		 * @return The new ID
+		 */
+		public synchronized int create(Map<String, Object> values) {
+			int id = nextId++;
+			Map<String, Object> record = new HashMap<String, Object>();
+			record.put("id", id);
+			if (fields.containsKey("active"))
+				record.put("active", true);
+			records.put(id, update(record, values));
+			return id;
+		}
+
+		/**
+		 * Returns a copy of the stored values of a record
+		 * @param id
+		 * @return null if there is no record with the ID
+		 */
+		public Map<String, Object> get(int id) {
+			Map<String, Object> record = records.get(id);
+			return record == null ? null : new HashMap<String, Object>(record);
+		}
+
+		public int size() {
+			return records.size();
+		}
+
+		Object[] search(Object[] domain, Object offset, Object limit, Object order, boolean activeTest) {
+			Predicate<Map<String, Object>> filter = DomainFilter.compile(domain);
+			if (activeTest && fields.containsKey("active") && !DomainFilter.mentions(domain, "active"))
+				filter = filter.and(record -> !Boolean.FALSE.equals(record.get("active")));
+
+			List<Map<String, Object>> found = new ArrayList<Map<String, Object>>();
+			for (Map<String, Object> record : records.values()) {
+				if (filter.test(record))
+					found.add(record);
+			}
+			if (order instanceof String)
+				found.sort(comparator((String) order));
+
+			int from = offset instanceof Integer ? Math.min((Integer) offset, found.size()) : 0;
+			int to = limit instanceof Integer ? Math.min(found.size(), from + (Integer) limit) : found.size();
+			Object[] ids = new Object[to - from];
+			for (int i = from; i < to; i++)
+				ids[i - from] = found.get(i).get("id");
+			return ids;
+		}
+
+		Object[] read(Object[] ids, String[] fieldNames) {
+			Collection<String> names = fieldNames.length == 0 ? fields.keySet() : Arrays.asList(fieldNames);
+			List<Object> rows = new ArrayList<Object>(ids.length);
+			for (Object id : ids) {
+				Map<String, Object> record = records.get(id);
+				if (record == null)
+					continue;
+				Map<String, Object> row = new HashMap<String, Object>(names.size() * 2);
+				row.put("id", id);
+				for (String fieldName : names) {
+					Map<String, Object> field = fields.get(fieldName);
+					if (field == null) {
+						if (!fieldName.equals("id"))
+							throw new IllegalArgumentException("Invalid field '" + fieldName + "' on model " + name);
+						continue;
+					}
+					Object value = record.get(fieldName);
+					if (value == null)
+						value = false;
+					else if ("many2one".equals(field.get("type")))
+						value = new Object[] { value, relation(field).displayName((Integer) value) };
+					row.put(fieldName, value);
+				}
+				rows.add(row);
+			}
+			return rows.toArray();
+		}
+
+		synchronized void write(Object[] ids, Map<String, Object> values) {
+			for (Object id : ids) {
+				Map<String, Object> record = records.get(id);
+				if (record == null)
+					throw new IllegalArgumentException("Record " + name + "(" + id + ") does not exist");
+				records.put((Integer) id, update(record, values));
+			}
+		}
+
+		synchronized void unlink(Object[] ids) {
+			for (Object id : ids)
+				records.remove(id);
+		}
+
+		/**
+		 * Creates or updates records from import rows. Many2one columns are
+		 * passed as field.id, the record ID as .id.
+		 */
+		synchronized Object[] load(String[] columns, Object[] rows) {
+			Object[] ids = new Object[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				Object[] row = (Object[]) rows[i];
+				Map<String, Object> values = new HashMap<String, Object>();
+				int id = 0;
+				for (int j = 0; j < columns.length && j < row.length; j++) {
+					if (columns[j].equals(".id")) {
+						id = Integer.parseInt(row[j].toString());
+						continue;
+					}
+					String fieldName = columns[j].endsWith(".id")
+							? columns[j].substring(0, columns[j].length() - 3) : columns[j];
+					values.put(fieldName, fromImport(fieldName, row[j]));
+				}
+				if (id != 0 && records.containsKey(id))
+					records.put(id, update(records.get(id), values));
+				else id = create(values);
+				ids[i] = id;
+			}
+			return ids;
+		}
+
+		Map<String, Object> fieldsGet(String[] fieldNames) {
+			Map<String, Object> result = new HashMap<String, Object>();
+			for (Map.Entry<String, Map<String, Object>> field : fields.entrySet()) {
+				if (fieldNames.length == 0 || Arrays.asList(fieldNames).contains(field.getKey()))
+					result.put(field.getKey(), new HashMap<String, Object>(field.getValue()));
+			}
+			return result;
+		}
+
+		String displayName(int id) {
+			Map<String, Object> record = records.get(id);
+			if (record == null)
+				return "";
+			Object displayName = record.get("name");
+			return displayName instanceof String ? (String) displayName : name + "," + id;
+		}
+
+		private Model relation(Map<String, Object> field) {
+			Model relation = models.get(field.get("relation"));
+			if (relation == null)
+				throw new IllegalArgumentException("Model " + field.get("relation") + " does not exist");
+			return relation;
+		}
+
+		/**
+		 * Returns a copy of a record with values applied
+		 */
+		private Map<String, Object> update(Map<String, Object> current, Map<String, Object> values) {
+			Map<String, Object> record = new HashMap<String, Object>(current);
+			for (Map.Entry<String, Object> entry : values.entrySet()) {
+				Map<String, Object> field = fields.get(entry.getKey());
+				if (field == null)
+					throw new IllegalArgumentException("Invalid field '" + entry.getKey() + "' on model " + name);
+				record.put(entry.getKey(), toStored(field, entry.getValue()));
+			}
+			if (fields.containsKey("write_date"))
+				record.put("write_date", now());
+			return record;
+		}
+
+		/**
+		 * Converts a written value: many2many commands to ID arrays, false to empty
+		 */
+		private Object toStored(Map<String, Object> field, Object value) {
+			if (Boolean.FALSE.equals(value) && !"boolean".equals(field.get("type")))
+				return null;
+			if ("many2many".equals(field.get("type")) || "one2many".equals(field.get("type"))) {
+				List<Object> ids = new ArrayList<Object>();
+				for (Object command : (Object[]) value) {
+					// [6, 0, ids] replaces, [4, id] links
+					Object[] parts = (Object[]) command;
+					if (Integer.valueOf(6).equals(parts[0]))
+						ids = new ArrayList<Object>(Arrays.asList((Object[]) parts[2]));
+					else if (Integer.valueOf(4).equals(parts[0]))
+						ids.add(parts[1]);
+				}
+				return ids.toArray();
+			}
+			return value;
+		}
+
+		private Object fromImport(String fieldName, Object value) {
+			Map<String, Object> field = fields.get(fieldName);
+			if (field == null)
+				throw new IllegalArgumentException("Unknown field '" + fieldName + "' on model " + name);
+			String text = value == null ? "" : value.toString();
+			if (text.isEmpty() || Boolean.FALSE.equals(value))
+				return "boolean".equals(field.get("type")) ? false : null;
+			switch ((String) field.get("type")) {
+			case "integer":
+			case "many2one":
+				return (int) Double.parseDouble(text);
+			case "float":
+			case "monetary":
+				return Double.parseDouble(text);
+			case "boolean":
+				return text.equalsIgnoreCase("true") || text.equals("1");
+			default:
+				return text;
+			}
+		}
+
+		private Comparator<Map<String, Object>> comparator(String order) {
+			Comparator<Map<String, Object>> comparator = null;
+			for (String part : order.split(",")) {
+				String[] words = part.trim().split("\\s+");
+				final String fieldName = words[0];
+				Comparator<Map<String, Object>> next = (a, b) -> DomainFilter.compare(a.get(fieldName), b.get(fieldName));
+				if (words.length > 1 && words[1].equalsIgnoreCase("desc"))
+					next = next.reversed();
+				comparator = comparator == null ? next : comparator.thenComparing(next);
+			}
+			return comparator;
+		}
+	}
+
+	/**
+	 * Evaluates Odoo domains in prefix notation against stored records
+	 */
+	private static final class DomainFilter {
+
+		@SuppressWarnings("unchecked")
+		static Predicate<Map<String, Object>> compile(Object[] domain) {
+			ArrayList<Predicate<Map<String, Object>>> stack = new ArrayList<Predicate<Map<String, Object>>>();
+			for (int i = domain.length - 1; i >= 0; i--) {
+				Object element = domain[i];
+				if ("&".equals(element) || "|".equals(element)) {
+					Predicate<Map<String, Object>> left = stack.remove(stack.size() - 1);
+					Predicate<Map<String, Object>> right = stack.remove(stack.size() - 1);
+					stack.add("&".equals(element) ? left.and(right) : left.or(right));
+				} else if ("!".equals(element)) {
+					stack.add(stack.remove(stack.size() - 1).negate());
+				} else {
+					Object[] leaf = element instanceof List ? ((List<Object>) element).toArray() : (Object[]) element;
+					stack.add(leaf(leaf));
+				}
+			}
+			Predicate<Map<String, Object>> result = record -> true;
+			for (Predicate<Map<String, Object>> predicate : stack)
+				result = result.and(predicate);
+			return result;
+		}
+
+		static boolean mentions(Object[] domain, String fieldName) {
+			for (Object element : domain) {
+				if (element instanceof Object[] && fieldName.equals(((Object[]) element)[0]))
+					return true;
+			}
+			return false;
+		}
+
+		private static Predicate<Map<String, Object>> leaf(Object[] leaf) {
+			// (1, '=', 1) and (0, '=', 1) are the true and false leaves
+			if (leaf[0] instanceof Integer) {
+				boolean value = leaf[0].equals(leaf[2]);
+				return record -> value;
+			}
+			final String fieldName = leaf[0].toString();
+			if (fieldName.contains("."))
+				throw new IllegalArgumentException("Domains on related fields are not supported: " + fieldName);
+			final String operator = leaf[1].toString().toLowerCase();
+			final Object expected = leaf[2];
+			switch (operator) {
+			case "=":
+			case "==":
+				return record -> equal(record.get(fieldName), expected);
+			case "!=":
+			case "<>":
+				return record -> !equal(record.get(fieldName), expected);
+			case "<":
+				return record -> record.get(fieldName) != null && compare(record.get(fieldName), expected) < 0;
+			case ">":
+				return record -> record.get(fieldName) != null && compare(record.get(fieldName), expected) > 0;
+			case "<=":
+				return record -> record.get(fieldName) != null && compare(record.get(fieldName), expected) <= 0;
+			case ">=":
+				return record -> record.get(fieldName) != null && compare(record.get(fieldName), expected) >= 0;
+			case "in":
+				return record -> in(record.get(fieldName), expected);
+			case "not in":
+				return record -> !in(record.get(fieldName), expected);
+			case "like":
+			case "ilike":
+			case "not like":
+			case "not ilike": {
+				final boolean ignoreCase = operator.contains("ilike");
+				final boolean negate = operator.startsWith("not");
+				final String pattern = ignoreCase ? expected.toString().toLowerCase() : expected.toString();
+				return record -> {
+					Object value = record.get(fieldName);
+					String text = value == null ? "" : ignoreCase ? value.toString().toLowerCase() : value.toString();
+					return text.contains(pattern) != negate;
+				};
+			}
+			default:
+				throw new IllegalArgumentException("Operator " + operator + " is not supported");
+			}
+		}
+
+		private static boolean equal(Object actual, Object expected) {
+			if (Boolean.FALSE.equals(expected) && (actual == null || Boolean.FALSE.equals(actual)))
+				return true;
+			if (actual == null)
+				return false;
+			if (actual instanceof Object[])
+				return in(expected, actual);
+			return compare(actual, expected) == 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static boolean in(Object actual, Object expected) {
+			Object[] values = expected instanceof List ? ((List<Object>) expected).toArray()
+					: expected instanceof Object[] ? (Object[]) expected : new Object[] { expected };
+			if (actual instanceof Object[]) {
+				for (Object single : (Object[]) actual) {
+					if (in(single, values))
+						return true;
+				}
+				return false;
+			}
+			for (Object value : values) {
+				if (equal(actual, value))
+					return true;
+			}
+			return false;
+		}
+
+		static int compare(Object a, Object b) {
+			if (a == null || b == null)
+				return a == null ? (b == null ? 0 : -1) : 1;
+			if (a instanceof Number && b instanceof Number)
+				return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+			if (a instanceof Boolean && b instanceof Boolean)
+				return ((Boolean) a).compareTo((Boolean) b);
+			return a.toString().compareTo(b.toString());
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class FakeOdooServerTest {
+
+	@Test
+	public void should_serve_object_adapter_calls() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("fake.partner", 16, 100, 10);
+			server.start();
+			Session session = server.newSession();
+			ObjectAdapter adapter = session.getObjectAdapter("fake.partner");
+
+			FilterCollection filters = new FilterCollection();
+			filters.add("x_integer_1", "<=", 10);
+			filters.add("x_boolean_3", "=", true);
+			RowCollection rows = adapter.searchAndReadObject(filters, new String[] { "name", "x_many2one_6" });
+
+			Row row = rows.get(0);
+			row.put("name", "Changed");
+			adapter.writeObject(row, true);
+
+			Row newRow = adapter.getNewRow(new String[] { "name", "x_integer_1" });
+			newRow.put("name", "New");
+			newRow.put("x_integer_1", 500);
+			adapter.createObject(newRow);
+
+			RowCollection imports = new RowCollection();
+			Row imported = adapter.getNewRow(new String[] { "name", "x_many2one_6" });
+			imported.put("name", "Imported");
+			imported.put("x_many2one_6", 3);
+			imports.add(imported);
+			adapter.importData(imports);
+
+			RowCollection unlinked = new RowCollection();
+			unlinked.add(rows.get(1));
+			adapter.unlinkObject(unlinked);
+
+			FakeOdooServer.Model model = server.getModel("fake.partner");
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(rows).as("Rows found").hasSize(5);
+			softAssertions.assertThat((Object[]) row.get("x_many2one_6")).as("Many2one")
+					.containsExactly(3, "Record 3");
+			softAssertions.assertThat(model.get(2).get("name")).as("Written").isEqualTo("Changed");
+			softAssertions.assertThat(model.get(newRow.getID()).get("x_integer_1")).as("Created").isEqualTo(500);
+			softAssertions.assertThat(model.get(imported.getID()).get("x_many2one_6")).as("Imported").isEqualTo(3);
+			softAssertions.assertThat(model.get(4)).as("Unlinked").isNull();
+			softAssertions.assertThat(model.size()).as("Records").isEqualTo(101);
+			softAssertions.assertThat(server.getCallCount("fake.partner", "load")).as("Load calls").isEqualTo(1);
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_apply_latency_and_active_test() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			FakeOdooServer.Model model = server.addModel("fake.tag",
+					FakeOdooServer.fields("name", "char", "active", "boolean"));
+			Map<String, Object> values = new HashMap<String, Object>();
+			values.put("name", "Archived");
+			values.put("active", false);
+			model.create(values);
+			values.put("name", "Current");
+			values.put("active", true);
+			model.create(values);
+			server.setLatencyMillis(50);
+			server.start();
+			Session session = server.newSession();
+			OdooCommand command = new OdooCommand(session);
+
+			long start = System.nanoTime();
+			Object[] active = command.searchObject("fake.tag", new Object[0]).getResponseObjectAsArray();
+			long elapsedMillis = (System.nanoTime() - start) / 1000000;
+			Object[] all = command.searchObject("fake.tag",
+					new Object[] { "|", new Object[] { "active", "=", true }, new Object[] { "active", "=", false } })
+					.getResponseObjectAsArray();
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(elapsedMillis).as("Latency").isGreaterThanOrEqualTo(50);
+			softAssertions.assertThat(active).as("Active records").containsExactly(2);
+			softAssertions.assertThat(all).as("All records").containsExactly(1, 2);
+			softAssertions.assertAll();
+		}
+	}
+}
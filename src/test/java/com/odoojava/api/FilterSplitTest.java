@@ -0,0 +1,183 @@
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class FilterSplitTest {
+	private static final String TEST_MODEL_NAME = "product.product";
+
+	/**
+	 * Command for a model with records 1 to 20. The name of a record sorts in
+	 * reverse ID order.
+	 */
+	private static class SearchCommand extends OdooCommand {
+		final List<Object[]> searchedFilters = Collections.synchronizedList(new ArrayList<>());
+		final List<Object[]> readIds = Collections.synchronizedList(new ArrayList<>());
+
+		SearchCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter, int offset, int limit, String order,
+				boolean count) {
+			searchedFilters.add(filter);
+			Object[] term = (Object[]) filter[0];
+			List<Object> values = Arrays.asList((Object[]) term[2]);
+			boolean negated = "not in".equals(term[1]);
+
+			List<Object> ids = new ArrayList<>();
+			for (int id = 1; id <= 20; id++) {
+				if (values.contains(id) != negated)
+					ids.add(id);
+			}
+			if (order != null && order.startsWith("name"))
+				Collections.reverse(ids);
+			int from = Math.min(ids.size(), Math.max(0, offset));
+			int to = limit > 0 ? Math.min(ids.size(), from + limit) : ids.size();
+			ids = ids.subList(from, to);
+			return new Response(count ? (Object) ids.size() : ids.toArray());
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (TEST_MODEL_NAME.equals(objectName))
+				readIds.add(ids);
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				row.put("id", ids[i]);
+				row.put("name", String.format("P%02d", 100 - (Integer) ids[i]));
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			return fields;
+		}
+	}
+
+	private static ObjectAdapter adapter(SearchCommand command) throws Exception {
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setFilterSplitSize(4);
+		adapter.setFilterSplitConcurrency(3);
+		return adapter;
+	}
+
+	private static List<Object> ids(RowCollection rows) {
+		List<Object> ids = new ArrayList<>();
+		for (Row row : rows)
+			ids.add(row.getID());
+		return ids;
+	}
+
+	@Test
+	public void should_union_in_chunks() throws Exception {
+		SearchCommand command = new SearchCommand();
+		ObjectAdapter adapter = adapter(command);
+		FilterCollection filters = new FilterCollection();
+		filters.add("id", "in", new Object[] { 19, 3, 5, 7, 9, 11, 13, 15, 17, 42 });
+
+		RowCollection rows = adapter.searchAndReadObject(filters, new String[] { "name" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.searchedFilters).as("Chunk searches").hasSize(3);
+		softAssertions.assertThat(ids(rows)).as("Ids in id order").containsExactly(3, 5, 7, 9, 11, 13, 15, 17, 19);
+		softAssertions.assertThat(adapter.getObjectCount(filters)).as("Count").isEqualTo(9);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_order_and_page_like_an_unsplit_search() throws Exception {
+		FilterCollection filters = new FilterCollection();
+		filters.add("id", "in", new Object[] { 3, 5, 7, 9, 11, 13, 15, 17, 19, 42 });
+		SearchCommand unsplitCommand = new SearchCommand();
+		ObjectAdapter unsplit = new ObjectAdapter(unsplitCommand, TEST_MODEL_NAME, new Version("10.0"));
+		SearchCommand splitCommand = new SearchCommand();
+		ObjectAdapter split = adapter(splitCommand);
+
+		RowCollection expected = unsplit.searchAndReadObject(filters, new String[] { "name" }, 1, 3, "name asc");
+		RowCollection rows = split.searchAndReadObject(filters, new String[] { "name" }, 1, 3, "name asc");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(ids(expected)).as("Unsplit page").containsExactly(17, 15, 13);
+		softAssertions.assertThat(ids(rows)).as("Page with splitting enabled").isEqualTo(ids(expected));
+		softAssertions.assertThat(splitCommand.searchedFilters).as("Searches").hasSize(1);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_intersect_not_in_chunks() throws Exception {
+		SearchCommand command = new SearchCommand();
+		ObjectAdapter adapter = adapter(command);
+		FilterCollection filters = new FilterCollection();
+		filters.add("id", "not in", new Object[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+
+		RowCollection rows = adapter.searchAndReadObject(filters, new String[] { "name" });
+
+		List<Object> ids = new ArrayList<>();
+		for (Row row : rows)
+			ids.add(row.getID());
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.searchedFilters).as("Chunk searches").hasSize(4);
+		softAssertions.assertThat(ids).as("Ids in id order").containsExactly(17, 18, 19, 20);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_read_long_id_lists_in_chunks() throws Exception {
+		SearchCommand command = new SearchCommand();
+		ObjectAdapter adapter = adapter(command);
+
+		RowCollection rows = adapter.readObject(new Object[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, new String[] { "name" });
+
+		List<Object> ids = new ArrayList<>();
+		for (Row row : rows)
+			ids.add(row.getID());
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.readIds).as("Read calls").hasSize(3);
+		softAssertions.assertThat(ids).as("Ids in requested order").containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_not_split_by_default() throws Exception {
+		SearchCommand command = new SearchCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		Object[] ids = new Object[ObjectAdapter.DEFAULT_FILTER_SPLIT_SIZE + 1];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = i + 1;
+		FilterCollection filters = new FilterCollection();
+		filters.add("id", "in", ids);
+
+		adapter.searchAndReadObject(filters, new String[] { "name" });
+		adapter.readObject(ids, new String[] { "name" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.searchedFilters).as("Searches").hasSize(1);
+		softAssertions.assertThat(command.readIds).as("Read calls").hasSize(2);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,242 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class ImportDataTest {
+	private static final String TEST_MODEL_NAME = "res.partner";
+
+	/**
+	 * Command that answers the model validation and loads rows by turning
+	 * "row-N" names into database ID 1000 + N.
+	 */
+	private static class LoadCommand extends OdooCommand {
+		final List<Integer> loadSizes = Collections.synchronizedList(new ArrayList<>());
+
+		LoadCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("model", TEST_MODEL_NAME);
+			return new Object[] { row };
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			return fields;
+		}
+
+		@Override
+		public Map<String, Object> load(String objectName, String[] fieldList, Object[][] rows)
+				throws XmlRpcException {
+			loadSizes.add(rows.length);
+			Object[] ids = new Object[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				String name = rows[i][rows[i].length - 1].toString();
+				ids[i] = 1000 + Integer.parseInt(name.substring(4));
+			}
+			Map<String, Object> result = new HashMap<>();
+			result.put("ids", ids);
+			result.put("messages", new Object[0]);
+			return result;
+		}
+	}
+
+	private static RowCollection newRows(ObjectAdapter adapter, int count) throws Exception {
+		FieldCollection fields = adapter.getFields();
+		RowCollection rows = new RowCollection();
+		for (int i = 0; i < count; i++) {
+			Row row = adapter.getNewRow(fields);
+			row.put("name", "row-" + i);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Test
+	public void should_import_in_chunks_and_merge_ids_in_order() throws Exception {
+		LoadCommand command = new LoadCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 7);
+
+		ImportOptions options = new ImportOptions();
+		options.setChunkSize(2);
+		options.setMaxConcurrentChunks(3);
+		ImportResult result = adapter.importData(rows, options);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.loadSizes).as("Rows per load call").hasSize(4).containsOnly(2, 1);
+		softAssertions.assertThat(result.getChunkCount()).as("Chunk count").isEqualTo(4);
+		softAssertions.assertThat(result.getIds()).as("Imported ids").containsExactly(1000, 1001, 1002, 1003, 1004,
+				1005, 1006);
+		for (int i = 0; i < rows.size(); i++) {
+			softAssertions.assertThat(rows.get(i).getID()).as("Row " + i + " id").isEqualTo(1000 + i);
+		}
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_notify_listener_for_every_chunk() throws Exception {
+		ObjectAdapter adapter = new ObjectAdapter(new LoadCommand(), TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 10);
+		List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+
+		ImportOptions options = new ImportOptions();
+		options.setChunkSize(3);
+		options.setMaxConcurrentChunks(2);
+		options.setChunkImportedListener((chunkIndex, chunkCount, rowsImported, totalRows) -> {
+			assertThat(chunkCount).isEqualTo(4);
+			assertThat(totalRows).isEqualTo(10);
+			progress.add(rowsImported);
+		});
+		adapter.importData(rows, options);
+
+		assertThat(progress).as("Rows imported after every chunk").hasSize(4).contains(10);
+	}
+
+	@Test
+	public void should_stop_and_throw_when_a_chunk_fails() throws Exception {
+		LoadCommand command = new LoadCommand() {
+			@Override
+			public Map<String, Object> load(String objectName, String[] fieldList, Object[][] rows)
+					throws XmlRpcException {
+				throw new XmlRpcException("Request Entity Too Large");
+			}
+		};
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 5);
+
+		ImportOptions options = new ImportOptions();
+		options.setChunkSize(1);
+		options.setMaxConcurrentChunks(2);
+		Throwable thrown = catchThrowable(() -> adapter.importData(rows, options));
+
+		assertThat(thrown).as("Chunk failure").isInstanceOf(XmlRpcException.class)
+				.hasMessage("Request Entity Too Large");
+	}
+
+	/**
+	 * Rejects every load call containing one of the bad names. If reportRecords
+	 * is set, the failing rows are reported like the Odoo load function does.
+	 */
+	private static class RejectingCommand extends LoadCommand {
+		private final List<String> badNames;
+		private final boolean reportRecords;
+
+		RejectingCommand(boolean reportRecords, String... badNames) {
+			this.badNames = Arrays.asList(badNames);
+			this.reportRecords = reportRecords;
+		}
+
+		@Override
+		public Map<String, Object> load(String objectName, String[] fieldList, Object[][] rows)
+				throws XmlRpcException {
+			List<Object> messages = new ArrayList<>();
+			for (int i = 0; i < rows.length; i++) {
+				if (badNames.contains(rows[i][rows[i].length - 1].toString())) {
+					Map<String, Object> message = new HashMap<>();
+					message.put("type", "error");
+					message.put("message", "bad " + rows[i][rows[i].length - 1]);
+					if (reportRecords) {
+						message.put("record", i);
+					}
+					messages.add(message);
+				}
+			}
+			if (messages.isEmpty()) {
+				return super.load(objectName, fieldList, rows);
+			}
+			loadSizes.add(rows.length);
+			Map<String, Object> result = new HashMap<>();
+			result.put("ids", false);
+			result.put("messages", messages.toArray());
+			return result;
+		}
+	}
+
+	@Test
+	public void should_set_aside_rows_reported_by_the_server() throws Exception {
+		RejectingCommand command = new RejectingCommand(true, "row-3", "row-17");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 20);
+
+		ImportOptions options = new ImportOptions();
+		options.setIsolateFailures(true);
+		ImportResult result = adapter.importData(rows, options);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.loadSizes).as("Load calls").containsExactly(20, 18);
+		softAssertions.assertThat(result.isSuccessful()).as("Is successful").isFalse();
+		softAssertions.assertThat(result.getRowCount()).as("Imported rows").isEqualTo(18);
+		softAssertions.assertThat(result.getFailures()).extracting(f -> f.getRow().get("name")).as("Failed rows")
+				.containsExactly("row-3", "row-17");
+		softAssertions.assertThat(result.getFailures().get(0).getMessage()).as("Failure message")
+				.contains("bad row-3");
+		softAssertions.assertThat(rows.get(3).getID()).as("Failed row id").isEqualTo(0);
+		softAssertions.assertThat(rows.get(4).getID()).as("Imported row id").isEqualTo(1004);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_not_bisect_when_the_server_reports_every_row() throws Exception {
+		RejectingCommand command = new RejectingCommand(true, "row-0", "row-1", "row-2", "row-3");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 4);
+
+		ImportOptions options = new ImportOptions();
+		options.setIsolateFailures(true);
+		ImportResult result = adapter.importData(rows, options);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.loadSizes).as("Load calls").containsExactly(4);
+		softAssertions.assertThat(result.getFailures()).extracting(f -> f.getRow().get("name")).as("Failed rows")
+				.containsExactly("row-0", "row-1", "row-2", "row-3");
+		softAssertions.assertThat(result.getRowCount()).as("Imported rows").isZero();
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_bisect_when_the_server_does_not_report_rows() throws Exception {
+		RejectingCommand command = new RejectingCommand(false, "row-5");
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, 16);
+
+		ImportOptions options = new ImportOptions();
+		options.setChunkSize(8);
+		options.setMaxConcurrentChunks(2);
+		options.setIsolateFailures(true);
+		ImportResult result = adapter.importData(rows, options);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(result.getFailures()).extracting(f -> f.getRow().get("name")).as("Failed rows")
+				.containsExactly("row-5");
+		softAssertions.assertThat(result.getRowCount()).as("Imported rows").isEqualTo(15);
+		// 2 chunks, then 8 -> 4 + 4 -> 2 + 2 -> 1 + 1 for the bad half
+		softAssertions.assertThat(command.loadSizes).as("Load calls").hasSize(8);
+		softAssertions.assertThat(rows.get(15).getID()).as("Last row id").isEqualTo(1015);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,72 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.odoojava.api.OdooXmlRpcProxy.RPCServices;
+
+public class InterceptorTest {
+
+	@Test
+	public void should_run_interceptors_in_order_and_short_circuit() throws Exception {
+		Session session = new Session("localhost", 8069, "db", "user", "password");
+		List<String> calls = new ArrayList<>();
+		List<RpcRequest> requests = new ArrayList<>();
+		session.addInterceptor((request, chain) -> {
+			calls.add("outer before");
+			Object result = chain.proceed(request.withParameters(request.getParameters()));
+			calls.add("outer after " + result);
+			return result;
+		});
+		session.addInterceptor((request, chain) -> {
+			calls.add("inner");
+			requests.add(request);
+			return new Object[] { 42 };
+		});
+
+		Object result = session.executeCommand("res.partner", "search", new Object[] { new Object[0] });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat((Object[]) result).as("Result").containsExactly(42);
+		softAssertions.assertThat(calls).as("Order").hasSize(3).startsWith("outer before", "inner");
+		softAssertions.assertThat(requests.get(0).getService()).as("Service").isEqualTo(RPCServices.RPC_OBJECT);
+		softAssertions.assertThat(requests.get(0).getModel()).as("Model").isEqualTo("res.partner");
+		softAssertions.assertThat(requests.get(0).getMethod()).as("Method").isEqualTo("search");
+		softAssertions.assertThat(requests.get(0).isReadOnly()).as("Read only").isTrue();
+		softAssertions.assertThat(requests.get(0).toString()).as("No password").doesNotContain("password");
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_pass_faults_to_outer_interceptors() throws Exception {
+		Session session = new Session("localhost", 8069, "db", "user", "password");
+		List<Integer> faultCodes = new ArrayList<>();
+		session.addInterceptor((request, chain) -> {
+			try {
+				return chain.proceed(request);
+			} catch (XmlRpcException e) {
+				faultCodes.add(e.code);
+				throw e;
+			}
+		});
+		RpcInterceptor failing = (request, chain) -> {
+			throw new XmlRpcException(2, "Access denied");
+		};
+		session.addInterceptor(failing);
+
+		Throwable thrown = catchThrowable(() -> session.executeCommand("res.partner", "unlink", new Object[] { 1 }));
+		session.removeInterceptor(failing);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(thrown).as("Fault").isInstanceOf(XmlRpcException.class);
+		softAssertions.assertThat(faultCodes).as("Seen by outer").containsExactly(2);
+		softAssertions.assertThat(session.getInterceptors()).as("Removed").hasSize(1);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,99 @@
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class LazyRowTest {
+	private static final String TEST_MODEL_NAME = "product.product";
+
+	private static class ReadCommand extends OdooCommand {
+		final List<Object[]> readIds = new ArrayList<>();
+		final List<String[]> readFields = new ArrayList<>();
+
+		ReadCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (!TEST_MODEL_NAME.equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				return new Object[] { row };
+			}
+			readIds.add(ids);
+			readFields.add(fields);
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("id", ids[i]);
+				for (String field : fields)
+					row.put(field, field + " " + ids[i]);
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> fields = new HashMap<>();
+			for (String name : new String[] { "name", "default_code", "barcode" }) {
+				HashMap<String, Object> field = new HashMap<>();
+				field.put("type", "char");
+				fields.put(name, field);
+			}
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_load_missing_field_for_whole_collection() throws Exception {
+		ReadCommand command = new ReadCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setLazyLoading(true);
+		RowCollection rows = adapter.readObject(new Object[] { 1, 2, 3 }, new String[] { "name" });
+
+		Object firstCode = rows.get(0).get("default_code");
+		Object lastCode = rows.get(2).get("default_code");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(firstCode).as("First row").isEqualTo("default_code 1");
+		softAssertions.assertThat(lastCode).as("Last row").isEqualTo("default_code 3");
+		softAssertions.assertThat(command.readIds).as("Reads").hasSize(2);
+		softAssertions.assertThat(command.readIds.get(1)).as("Lazy read IDs").containsExactly(1, 2, 3);
+		softAssertions.assertThat(command.readFields.get(1)).as("Lazy read fields").containsExactly("default_code");
+		softAssertions.assertThat(rows.get(1).get("unknown")).as("Unknown field").isNull();
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_suggest_used_fields() throws Exception {
+		ReadCommand command = new ReadCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		FieldAccessProfiler profiler = new FieldAccessProfiler();
+		adapter.setFieldAccessProfiler(profiler);
+		RowCollection rows = adapter.readObject(new Object[] { 1, 2 }, new String[] { "name", "barcode" });
+
+		rows.get(0).get("name");
+		Object code = rows.get(0).get("default_code");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(code).as("Not loaded without lazy loading").isNull();
+		softAssertions.assertThat(profiler.getSuggestedFields(TEST_MODEL_NAME)).as("Suggested")
+				.containsExactly("default_code", "name");
+		softAssertions.assertThat(profiler.getUnusedFields(TEST_MODEL_NAME)).as("Unused").containsExactly("barcode");
+		softAssertions.assertThat(profiler.getLazyLoadCount(TEST_MODEL_NAME)).as("Lazy loads").isEqualTo(0);
+		softAssertions.assertAll();
+	}
+}
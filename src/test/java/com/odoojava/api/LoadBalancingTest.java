@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.odoojava.api.Session.LoadBalancing;
+
+public class LoadBalancingTest {
+
+	private static final Object[] ALL = new Object[] { new Object[0] };
+
+	@Test
+	public void should_spread_calls_over_nodes() throws Exception {
+		try (FakeOdooServer first = new FakeOdooServer(); FakeOdooServer second = new FakeOdooServer()) {
+			first.addModel("lb.partner", 4, 10, 8);
+			second.addModel("lb.partner", 4, 10, 8);
+			first.start();
+			second.start();
+			Session session = first.newSession();
+			session.addNode("localhost", second.getPort());
+
+			for (int i = 0; i < 20; i++)
+				session.executeCommand("lb.partner", "search", ALL);
+			long firstLeast = first.getCallCount("lb.partner", "search");
+			long secondLeast = second.getCallCount("lb.partner", "search");
+
+			session.setLoadBalancing(LoadBalancing.POWER_OF_TWO_CHOICES);
+			for (int i = 0; i < 40; i++)
+				session.executeCommand("lb.partner", "search", ALL);
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(firstLeast).as("First node").isEqualTo(10);
+			softAssertions.assertThat(secondLeast).as("Second node").isEqualTo(10);
+			softAssertions.assertThat(first.getCallCount("lb.partner", "search") - firstLeast)
+					.as("First node, two choices").isPositive();
+			softAssertions.assertThat(second.getCallCount("lb.partner", "search") - secondLeast)
+					.as("Second node, two choices").isPositive();
+			softAssertions.assertThat(session.getEjectedNodes()).as("Ejected").isEmpty();
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_eject_a_node_that_is_down() throws Exception {
+		try (FakeOdooServer first = new FakeOdooServer(); FakeOdooServer second = new FakeOdooServer()) {
+			first.addModel("lb.partner", 4, 10, 8);
+			second.addModel("lb.partner", 4, 10, 8);
+			first.start();
+			second.start();
+			Session session = first.newSession();
+			session.addNode("localhost", second.getPort());
+			session.setNodeEjection(1, 60000);
+			String secondNode = "localhost:" + second.getPort();
+
+			session.executeCommand("lb.partner", "search", ALL);
+			session.executeCommand("lb.partner", "search", ALL);
+			second.stop();
+			int found = 0;
+			for (int i = 0; i < 10; i++)
+				found += ((Object[]) session.executeCommand("lb.partner", "search", ALL)).length;
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(found).as("Found").isEqualTo(100);
+			softAssertions.assertThat(session.getEjectedNodes()).as("Ejected").containsExactly(secondNode);
+			softAssertions.assertThat(first.getCallCount("lb.partner", "search")).as("First node").isEqualTo(11);
+			softAssertions.assertAll();
+		}
+	}
+}
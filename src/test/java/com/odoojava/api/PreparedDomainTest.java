@@ -0,0 +1,121 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class PreparedDomainTest {
+	private static final String TEST_MODEL_NAME = "sale.order";
+
+	private static class SearchCommand extends OdooCommand {
+		final List<Object[]> searchedFilters = new ArrayList<>();
+
+		SearchCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter, int offset, int limit, String order,
+				boolean count) {
+			searchedFilters.add(filter);
+			return new Response(count ? (Object) 3 : new Object[] { 1, 2, 3 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("model", TEST_MODEL_NAME);
+			return new Object[] { row };
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> state = new HashMap<>();
+			state.put("type", "char");
+			HashMap<String, Object> partner = new HashMap<>();
+			partner.put("type", "many2one");
+			HashMap<String, Object> paid = new HashMap<>();
+			paid.put("type", "boolean");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("state", state);
+			fields.put("partner_id", partner);
+			fields.put("paid", paid);
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_convert_values_like_validate_filters() throws Exception {
+		ObjectAdapter adapter = new ObjectAdapter(new SearchCommand(), TEST_MODEL_NAME, new Version("10.0"));
+		FilterCollection filters = new FilterCollection();
+		filters.add("partner_id", "=", "7");
+		filters.add(FilterCollection.FilterOperator.OR);
+		filters.add("paid", "=", "yes");
+		filters.add("state", "in", "draft,sent\\,late");
+		filters.add("id", "in", "1,2");
+		filters.add("state", "is null", null);
+
+		Object[] domain = adapter.prepareDomain(filters).bind(null);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(domain).as("Domain").containsExactly(new Object[] { "partner_id", "=", 7 }, "|",
+				new Object[] { "paid", "=", true },
+				new Object[] { "state", "in", new Object[] { "draft", "sent,late" } },
+				new Object[] { "id", "in", new Object[] { 1, 2 } }, new Object[] { "state", "=", false });
+		softAssertions.assertThat(adapter.validateFilters(filters)).as("validateFilters").containsExactly(domain);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_bind_parameters_on_each_execution() throws Exception {
+		SearchCommand command = new SearchCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		FilterCollection filters = new FilterCollection();
+		filters.add("state", "=", "done");
+		filters.add("partner_id", "in", PreparedDomain.parameter("partners"));
+		PreparedDomain domain = adapter.prepareDomain(filters);
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("partners", "7,9");
+		adapter.searchAndReadObject(domain, values, new String[] { "state" }, -1, -1, null);
+		values.put("partners", 11);
+		int count = adapter.getObjectCount(domain, values);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(domain.getParameterNames()).as("Parameter names").containsExactly("partners");
+		softAssertions.assertThat(count).as("Count").isEqualTo(3);
+		softAssertions.assertThat(command.searchedFilters.get(0)).as("First execution").containsExactly(
+				new Object[] { "state", "=", "done" }, new Object[] { "partner_id", "in", new Object[] { 7, 9 } });
+		softAssertions.assertThat(command.searchedFilters.get(1)).as("Second execution").containsExactly(
+				new Object[] { "state", "=", "done" }, new Object[] { "partner_id", "in", new Object[] { 11 } });
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_reject_unknown_fields_when_prepared_and_missing_values_when_bound() throws Exception {
+		ObjectAdapter adapter = new ObjectAdapter(new SearchCommand(), TEST_MODEL_NAME, new Version("10.0"));
+		FilterCollection unknown = new FilterCollection();
+		unknown.add("missing_field", "=", "x");
+		FilterCollection parameterised = new FilterCollection();
+		parameterised.add("state", "=", PreparedDomain.parameter("state"));
+		PreparedDomain domain = adapter.prepareDomain(parameterised);
+
+		assertThat(catchThrowable(() -> adapter.prepareDomain(unknown))).as("Unknown field")
+				.isInstanceOf(OdooApiException.class);
+		assertThat(catchThrowable(() -> domain.bind(new HashMap<>()))).as("Missing parameter")
+				.isInstanceOf(OdooApiException.class).hasMessageContaining("state");
+	}
+}
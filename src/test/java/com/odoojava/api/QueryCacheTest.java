@@ -0,0 +1,110 @@
+package com.odoojava.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class QueryCacheTest {
+	private static final String TEST_MODEL_NAME = "res.partner";
+
+	private static class CachingCommand extends OdooCommand {
+		final Session session = new Session("localhost", 8069, "db", "user", "password");
+		int searches = 0;
+
+		CachingCommand() {
+			super(null);
+		}
+
+		@Override
+		Session getSession() {
+			return session;
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter, int offset, int limit, String order,
+				boolean count) {
+			searches++;
+			return new Response(new Object[] { 1, 2 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				row.put("id", ids[i]);
+				row.put("name", "Partner " + ids[i]);
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_return_copies_of_cached_rows_until_model_is_invalidated() throws Exception {
+		CachingCommand command = new CachingCommand();
+		QueryCache cache = new QueryCache(60000, 1000);
+		command.session.setQueryCache(cache);
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setQueryCacheEnabled(true);
+
+		FilterCollection filters = new FilterCollection();
+		filters.add("name", "=", "Partner 1");
+		FilterCollection sameFilters = new FilterCollection();
+		sameFilters.add("name", "in", new Object[] { "Partner 1" });
+
+		RowCollection first = adapter.searchAndReadObject(filters, new String[] { "name" });
+		first.get(0).put("name", "Changed");
+		RowCollection second = adapter.searchAndReadObject(sameFilters, new String[] { "name" });
+		cache.invalidate(TEST_MODEL_NAME);
+		adapter.searchAndReadObject(filters, new String[] { "name" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(second.get(0).get("name")).as("Cached value").isEqualTo("Partner 1");
+		softAssertions.assertThat(command.searches).as("Server searches").isEqualTo(2);
+		softAssertions.assertThat(cache.getHitCount()).as("Hits").isEqualTo(1);
+		softAssertions.assertThat(cache.getMissCount()).as("Misses").isEqualTo(2);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_evict_least_recently_used_entries_and_skip_stale_results() throws Exception {
+		QueryCache cache = new QueryCache(60000, 4);
+		Object[] rows = new Object[] { new HashMap<String, Object>(), new HashMap<String, Object>() };
+
+		cache.put("a", "first", rows, 1, cache.getGeneration("a"));
+		cache.put("a", "second", rows, 1, cache.getGeneration("a"));
+		cache.get("first");
+		cache.put("a", "third", rows, 1, cache.getGeneration("a"));
+
+		long staleGeneration = cache.getGeneration("b");
+		cache.invalidate("b");
+		cache.put("b", "stale", rows, 1, staleGeneration);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(cache.get("first")).as("Recently used entry").isNotNull();
+		softAssertions.assertThat(cache.get("second")).as("Evicted entry").isNull();
+		softAssertions.assertThat(cache.get("stale")).as("Stale entry").isNull();
+		softAssertions.assertThat(cache.getEvictionCount()).as("Evictions").isEqualTo(1);
+		softAssertions.assertThat(cache.getWeight()).as("Weight").isEqualTo(4);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,202 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class ReadBatcherTest {
+	private static final String TEST_MODEL_NAME = "res.partner";
+
+	private static class ReadCommand extends OdooCommand {
+		final List<Object[]> readIds = Collections.synchronizedList(new ArrayList<>());
+
+		ReadCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (!TEST_MODEL_NAME.equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				return new Object[] { row };
+			}
+			readIds.add(ids);
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("id", ids[i]);
+				row.put("name", "Partner " + ids[i]);
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_combine_concurrent_reads_into_one_call() throws Exception {
+		ReadCommand command = new ReadCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setReadBatching(200, 100);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+
+		try {
+			List<Future<RowCollection>> results = new ArrayList<>();
+			for (int i = 1; i <= 5; i++) {
+				final int id = i;
+				results.add(executor.submit(() -> adapter.readObject(new Object[] { id, 99 }, new String[] { "name" })));
+			}
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			for (int i = 0; i < 5; i++) {
+				RowCollection rows = results.get(i).get(5, TimeUnit.SECONDS);
+				softAssertions.assertThat(rows).as("Rows of caller " + i).hasSize(2);
+				softAssertions.assertThat(rows.get(0).getID()).as("First row of caller " + i).isEqualTo(i + 1);
+			}
+			softAssertions.assertThat(command.readIds).as("Read calls").hasSize(1);
+			softAssertions.assertThat(command.readIds.get(0)).as("Batched ids").hasSize(6);
+			softAssertions.assertAll();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_read_full_batches_straight_away() throws Exception {
+		ReadCommand command = new ReadCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setReadBatching(60000, 2);
+
+		long start = System.currentTimeMillis();
+		RowCollection rows = adapter.readObject(new Object[] { 1, 2, 3 }, new String[] { "name" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(rows).as("Rows").hasSize(3);
+		softAssertions.assertThat(System.currentTimeMillis() - start).as("Time waited").isLessThan(10000);
+		softAssertions.assertAll();
+	}
+
+	private static Object[] rows(Object[] ids) {
+		Object[] rows = new Object[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("id", ids[i]);
+			rows[i] = row;
+		}
+		return rows;
+	}
+
+	@Test
+	public void should_stop_waiting_for_a_batch_at_the_deadline() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ReadBatcher batcher = new ReadBatcher((ids, fields) -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new XmlRpcException("Interrupted", e);
+			}
+			return rows(ids);
+		}, 300, 100);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			executor.submit(() -> batcher.read(new Object[] { 1 }, new String[] { "name" }));
+			Thread.sleep(50);
+			long start = System.currentTimeMillis();
+			Throwable thrown;
+			try (Deadline deadline = Deadline.start(500, TimeUnit.MILLISECONDS)) {
+				thrown = catchThrowable(() -> batcher.read(new Object[] { 2 }, new String[] { "name" }));
+			}
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(thrown).as("Error").isInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertThat(System.currentTimeMillis() - start).as("Time waited").isLessThan(5000);
+			softAssertions.assertAll();
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_start_a_new_batch_when_ids_do_not_fit() throws Exception {
+		List<Object[]> readIds = Collections.synchronizedList(new ArrayList<>());
+		ReadBatcher batcher = new ReadBatcher((ids, fields) -> {
+			readIds.add(ids);
+			return rows(ids);
+		}, 300, 3);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<Object[]> first = executor.submit(() -> batcher.read(new Object[] { 1, 2 }, new String[] { "name" }));
+			Thread.sleep(50);
+			Future<Object[]> second = executor.submit(() -> batcher.read(new Object[] { 3, 4 }, new String[] { "name" }));
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(first.get(5, TimeUnit.SECONDS)).as("First caller").hasSize(2);
+			softAssertions.assertThat(second.get(5, TimeUnit.SECONDS)).as("Second caller").hasSize(2);
+			softAssertions.assertThat(readIds).as("Read calls").hasSize(2).containsOnly(new Object[] { 1, 2 },
+					new Object[] { 3, 4 });
+			softAssertions.assertAll();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_read_again_when_the_deadline_of_the_batch_sender_passed() throws Exception {
+		List<Object[]> readIds = Collections.synchronizedList(new ArrayList<>());
+		ReadBatcher batcher = new ReadBatcher((ids, fields) -> {
+			Deadline.check("read");
+			readIds.add(ids);
+			return rows(ids);
+		}, 300, 100);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<Throwable> leader = executor.submit(() -> {
+				try (Deadline deadline = Deadline.start(100, TimeUnit.MILLISECONDS)) {
+					return catchThrowable(() -> batcher.read(new Object[] { 1 }, new String[] { "name" }));
+				}
+			});
+			Thread.sleep(50);
+			Object[] rows = batcher.read(new Object[] { 2 }, new String[] { "name" });
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(leader.get(5, TimeUnit.SECONDS)).as("Error of the sender")
+					.isInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertThat(rows).as("Rows read again").hasSize(1);
+			softAssertions.assertThat(readIds).as("Read calls").containsExactly(new Object[] { 2 });
+			softAssertions.assertAll();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
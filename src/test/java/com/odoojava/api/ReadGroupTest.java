@@ -0,0 +1,118 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class ReadGroupTest {
+	private static final String TEST_MODEL_NAME = "account.move.line";
+
+	private static class GroupCommand extends OdooCommand {
+		final List<Object[]> groupedBy = new ArrayList<>();
+
+		GroupCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("model", TEST_MODEL_NAME);
+			return new Object[] { row };
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> partner = new HashMap<>();
+			partner.put("type", "many2one");
+			HashMap<String, Object> date = new HashMap<>();
+			date.put("type", "date");
+			HashMap<String, Object> balance = new HashMap<>();
+			balance.put("type", "float");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("partner_id", partner);
+			fields.put("date", date);
+			fields.put("balance", balance);
+			return fields;
+		}
+
+		@Override
+		public Object[] readGroup(String objectName, Object[] filter, String[] fields, String[] groupBy, int offset,
+				int limit, String orderBy, boolean lazy) throws XmlRpcException {
+			groupedBy.add(groupBy);
+			HashMap<String, Object> group = new HashMap<>();
+			group.put(groupBy[0], groupBy[0].equals("partner_id") ? new Object[] { 7, "Agrolait" } : "March 2018");
+			group.put("balance", 150.5);
+			group.put("__domain", new Object[] { new Object[] { groupBy[0], "=", 7 } });
+			if (lazy) {
+				group.put(Group.fieldName(groupBy[0]) + "_count", 3);
+				HashMap<String, Object> context = new HashMap<>();
+				Object[] remaining = new Object[groupBy.length - 1];
+				System.arraycopy(groupBy, 1, remaining, 0, remaining.length);
+				context.put("group_by", remaining);
+				group.put("__context", context);
+			} else {
+				group.put("__count", 3);
+			}
+			return new Object[] { group };
+		}
+	}
+
+	@Test
+	public void should_return_typed_groups() throws Exception {
+		GroupCommand command = new GroupCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+
+		GroupCollection groups = adapter.readGroup(new FilterCollection(), new String[] { "balance:sum" },
+				new String[] { "partner_id", "date:month" });
+
+		Group group = groups.get(0);
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(groups).as("Groups").hasSize(1);
+		softAssertions.assertThat(group.getGroupId("partner_id")).as("Partner").isEqualTo(7);
+		softAssertions.assertThat(group.getCount()).as("Count").isEqualTo(3);
+		softAssertions.assertThat(group.getAggregateAsDouble("balance:sum")).as("Balance").isEqualTo(150.5);
+		softAssertions.assertThat(group.getDomain()).as("Domain").hasSize(1);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_expand_lazy_groups() throws Exception {
+		GroupCommand command = new GroupCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+
+		GroupCollection groups = adapter.readGroup(null, new String[] { "balance" },
+				new String[] { "partner_id", "date:month" }, 0, 80, "balance desc", true, true);
+
+		Group group = groups.get(0);
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(group.getCount()).as("Lazy count").isEqualTo(3);
+		softAssertions.assertThat(group.getRemainingGroupBy()).as("Remaining").containsExactly("date:month");
+		softAssertions.assertThat(group.getSubGroups()).as("Sub groups").hasSize(1);
+		softAssertions.assertThat(group.getSubGroups().get(0).getGroupValue("date:month")).as("Month")
+				.isEqualTo("March 2018");
+		softAssertions.assertThat(command.groupedBy).as("Calls").hasSize(2);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_reject_unknown_fields() throws Exception {
+		ObjectAdapter adapter = new ObjectAdapter(new GroupCommand(), TEST_MODEL_NAME, new Version("10.0"));
+
+		assertThat(catchThrowable(() -> adapter.readGroup(null, new String[] { "total:sum(amount)" },
+				new String[] { "partner_id" }))).isInstanceOf(OdooApiException.class).hasMessageContaining("amount");
+	}
+}
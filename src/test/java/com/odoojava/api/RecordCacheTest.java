@@ -0,0 +1,113 @@
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class RecordCacheTest {
+	private static final String TEST_MODEL_NAME = "product.product";
+
+	private static class ReadCommand extends OdooCommand {
+		final Session session = new Session("localhost", 8069, "db", "user", "password");
+		final List<Object[]> readIds = new ArrayList<>();
+		final List<String[]> readFields = new ArrayList<>();
+
+		ReadCommand() {
+			super(null);
+		}
+
+		@Override
+		Session getSession() {
+			return session;
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (!TEST_MODEL_NAME.equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				return new Object[] { row };
+			}
+			readIds.add(ids);
+			readFields.add(fields);
+			Object[] rows = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("id", ids[i]);
+				for (String field : fields)
+					row.put(field, field + " " + ids[i]);
+				rows[i] = row;
+			}
+			return rows;
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> code = new HashMap<>();
+			code.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			fields.put("default_code", code);
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_only_read_missing_records_and_fields() throws Exception {
+		ReadCommand command = new ReadCommand();
+		RecordCache cache = new RecordCache(100, 0);
+		command.session.setRecordCache(cache);
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		adapter.setRecordCacheEnabled(true);
+
+		adapter.readObject(new Object[] { 1, 2 }, new String[] { "name" });
+		RowCollection rows = adapter.readObject(new Object[] { 3, 2, 1 }, new String[] { "name", "default_code" });
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.readIds).as("Read calls").hasSize(3);
+		softAssertions.assertThat(command.readIds.get(1)).as("Missing ids").containsExactly(3);
+		softAssertions.assertThat(command.readIds.get(2)).as("Ids missing a field").containsExactly(2, 1);
+		softAssertions.assertThat(command.readFields.get(2)).as("Missing field").containsExactly("default_code");
+		softAssertions.assertThat(rows).as("Rows").hasSize(3);
+		softAssertions.assertThat(rows.get(1).get("name")).as("Cached name").isEqualTo("name 2");
+		softAssertions.assertThat(rows.get(1).get("default_code")).as("Read code").isEqualTo("default_code 2");
+		softAssertions.assertThat(rows.get(0).getID()).as("Requested order").isEqualTo(3);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_invalidate_written_ids_only() throws Exception {
+		RecordCache cache = new RecordCache(100, 0);
+		HashMap<String, Object> first = new HashMap<>();
+		first.put("id", 1);
+		first.put("name", "One");
+		HashMap<String, Object> second = new HashMap<>();
+		second.put("id", 2);
+		second.put("name", "Two");
+		cache.put(TEST_MODEL_NAME, new Object[] { first, second }, "", cache.getGeneration(TEST_MODEL_NAME));
+
+		cache.commandExecuted(TEST_MODEL_NAME, "write", new Object[] { new Object[] { 2 }, new HashMap<>() }, true);
+		cache.commandExecuted(TEST_MODEL_NAME, "create", new Object[] { new HashMap<>() }, 3);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(cache.get(TEST_MODEL_NAME, 1, new String[] { "name" }, "")).as("Untouched record")
+				.containsEntry("name", "One");
+		softAssertions.assertThat(cache.get(TEST_MODEL_NAME, 2, new String[] { "name" }, "")).as("Written record")
+				.isNull();
+		cache.commandExecuted(TEST_MODEL_NAME, "action_archive", new Object[] { new Object[] { 9 } }, true);
+		softAssertions.assertThat(cache.size()).as("Records after unknown command").isEqualTo(0);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class RetryInterceptorTest {
+
+	@Test
+	public void should_retry_read_only_calls_only() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("retry.partner", 4, 10, 8);
+			server.start();
+			Session session = server.newSession();
+			ObjectAdapter adapter = session.getObjectAdapter("retry.partner");
+			RetryInterceptor retry = new RetryInterceptor();
+			retry.setBackoff(1, 5);
+			session.addInterceptor(retry);
+
+			server.failNextCalls(2, 503);
+			RowCollection rows = adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" });
+			long readRetries = retry.getRetryCount();
+
+			server.failNextCalls(1, 502);
+			Throwable writeError = catchThrowable(
+					() -> session.executeCommand("retry.partner", "unlink", new Object[] { new Object[] { 1 } }));
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(rows).as("Rows").hasSize(10);
+			softAssertions.assertThat(readRetries).as("Read retries").isEqualTo(2);
+			softAssertions.assertThat(writeError).as("Write").isInstanceOf(XmlRpcHttpTransportException.class);
+			softAssertions.assertThat(retry.getRetryCount()).as("Write retries").isEqualTo(2);
+			softAssertions.assertThat(server.getModel("retry.partner").size()).as("Records").isEqualTo(10);
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_fail_fast_while_the_circuit_is_open() throws Exception {
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("retry.partner", 4, 10, 8);
+			server.start();
+			Session session = server.newSession();
+			ObjectAdapter adapter = session.getObjectAdapter("retry.partner");
+			RetryInterceptor retry = new RetryInterceptor();
+			retry.setMaxAttempts(1);
+			retry.setCircuitBreaker(2, 200);
+			session.addInterceptor(retry);
+			CircuitBreaker breaker = retry.getCircuitBreaker("localhost:" + server.getPort());
+
+			server.failNextCalls(100, 503);
+			catchThrowable(() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+			catchThrowable(() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+			Throwable open = catchThrowable(
+					() -> adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" }));
+			CircuitBreaker.State openState = breaker.getState();
+
+			server.failNextCalls(0, 503);
+			Thread.sleep(250);
+			RowCollection rows = adapter.searchAndReadObject(new FilterCollection(), new String[] { "name" });
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(open).as("Open").isInstanceOf(CircuitOpenException.class);
+			softAssertions.assertThat(openState).as("Open state").isEqualTo(CircuitBreaker.State.OPEN);
+			softAssertions.assertThat(retry.getRejectedCount()).as("Rejected").isPositive();
+			softAssertions.assertThat(rows).as("After trial").hasSize(10);
+			softAssertions.assertThat(breaker.getState()).as("Closed state").isEqualTo(CircuitBreaker.State.CLOSED);
+			softAssertions.assertAll();
+		}
+	}
+}
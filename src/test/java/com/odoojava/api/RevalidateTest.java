@@ -0,0 +1,131 @@
+package com.odoojava.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class RevalidateTest {
+	private static final String TEST_MODEL_NAME = "product.product";
+
+	private static class RevalidateCommand extends OdooCommand {
+		final TreeMap<Integer, String[]> records = new TreeMap<>();
+		final List<Object[]> readIds = new ArrayList<>();
+		final List<String[]> probedFields = new ArrayList<>();
+
+		RevalidateCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] searchReadObject(String objectName, Object[] filter, String[] fields, int offset, int limit,
+				String order) {
+			probedFields.add(fields);
+			List<Object> ids = Arrays.asList((Object[]) ((Object[]) filter[filter.length - 1])[2]);
+			List<Object> results = new ArrayList<>();
+			for (Object id : ids) {
+				String[] record = records.get(id);
+				if (record != null) {
+					HashMap<String, Object> row = new HashMap<>();
+					row.put("id", id);
+					row.put("write_date", record[1]);
+					results.add(row);
+				}
+			}
+			return results.toArray();
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			if (!TEST_MODEL_NAME.equals(objectName)) {
+				HashMap<String, Object> row = new HashMap<>();
+				row.put("model", TEST_MODEL_NAME);
+				return new Object[] { row };
+			}
+			readIds.add(ids);
+			List<Object> results = new ArrayList<>();
+			for (Object id : ids) {
+				String[] record = records.get(id);
+				if (record != null) {
+					HashMap<String, Object> row = new HashMap<>();
+					row.put("id", id);
+					row.put("name", record[0]);
+					row.put("default_code", "P" + id);
+					row.put("write_date", record[1]);
+					results.add(row);
+				}
+			}
+			return results.toArray();
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> fields = new HashMap<>();
+			for (String name : new String[] { "name", "default_code" }) {
+				HashMap<String, Object> field = new HashMap<>();
+				field.put("type", "char");
+				fields.put(name, field);
+			}
+			HashMap<String, Object> writeDate = new HashMap<>();
+			writeDate.put("type", "datetime");
+			fields.put("write_date", writeDate);
+			return fields;
+		}
+	}
+
+	@Test
+	public void should_only_read_changed_rows_again() throws Exception {
+		RevalidateCommand command = new RevalidateCommand();
+		command.records.put(1, new String[] { "Chair", "2018-01-01 10:00:00" });
+		command.records.put(2, new String[] { "Table", "2018-01-01 10:00:00" });
+		command.records.put(3, new String[] { "Lamp", "2018-01-01 10:00:00" });
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = adapter.readObject(new Object[] { 1, 2, 3 },
+				new String[] { "name", "default_code", "write_date" });
+		command.readIds.clear();
+
+		command.records.put(2, new String[] { "Desk", "2018-01-02 08:00:00" });
+		command.records.remove(3);
+		RevalidationResult result = adapter.revalidate(rows);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.probedFields).as("Probe").containsExactly(new String[] { "write_date" });
+		softAssertions.assertThat(command.readIds).as("Reads").containsExactly(new Object[] { 2 });
+		softAssertions.assertThat(result.getRefreshedRows()).as("Refreshed").containsExactly(rows.get(1));
+		softAssertions.assertThat(result.getDeletedRows()).as("Deleted").containsExactly(rows.get(2));
+		softAssertions.assertThat(result.getCheckedCount()).as("Checked").isEqualTo(3);
+		softAssertions.assertThat(rows.get(1).get("name")).as("New name").isEqualTo("Desk");
+		softAssertions.assertThat(rows.get(0).get("name")).as("Unchanged").isEqualTo("Chair");
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_keep_pending_changes() throws Exception {
+		RevalidateCommand command = new RevalidateCommand();
+		command.records.put(1, new String[] { "Chair", "2018-01-01 10:00:00" });
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = adapter.readObject(new Object[] { 1 }, new String[] { "name", "default_code" });
+		rows.get(0).put("name", "Stool");
+
+		command.records.put(1, new String[] { "Armchair", "2018-01-02 08:00:00" });
+		RevalidationResult result = adapter.revalidate(rows);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(result.getRefreshedRows()).as("Read without write_date").hasSize(1);
+		softAssertions.assertThat(rows.get(0).get("name")).as("Pending change").isEqualTo("Stool");
+		softAssertions.assertThat(rows.get(0).getRawValue("write_date")).as("write_date kept for next time")
+				.isEqualTo("2018-01-02 08:00:00");
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package com.odoojava.api;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.odoojava.api.RoutingPolicy.Route;
+
+public class RoutingPolicyTest {
+
+	private static final String MODEL = "routing.partner";
+	private static final Object[] ALL = new Object[] { new Object[0] };
+
+	@Test
+	public void should_route_reads_by_rules_and_writes_to_the_primary() throws Exception {
+		try (FakeOdooServer primary = new FakeOdooServer(); FakeOdooServer replica = new FakeOdooServer()) {
+			primary.addModel(MODEL, 4, 10, 8);
+			replica.addModel(MODEL, 4, 10, 8);
+			primary.start();
+			replica.start();
+			Session session = primary.newSession();
+			session.addReplica("localhost", replica.getPort());
+			RoutingPolicy policy = session.getRoutingPolicy();
+			policy.setReadYourWritesMillis(0);
+
+			session.executeCommand(MODEL, "search", ALL);
+			long replicaDefault = replica.getCallCount(MODEL, "search");
+			policy.setRoute(MODEL, null, Route.PRIMARY);
+			session.executeCommand(MODEL, "search", ALL);
+			long primaryByModel = primary.getCallCount(MODEL, "search");
+			policy.setRoute(MODEL, "search", Route.REPLICA);
+			session.executeCommand(MODEL, "search", ALL);
+			session.executeCommand(MODEL, "unlink", new Object[] { new Object[] { 1 } });
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(replicaDefault).as("Replica by default").isEqualTo(1);
+			softAssertions.assertThat(primaryByModel).as("Primary for model").isEqualTo(1);
+			softAssertions.assertThat(replica.getCallCount(MODEL, "search")).as("Replica for method").isEqualTo(2);
+			softAssertions.assertThat(primary.getModel(MODEL).size()).as("Primary records").isEqualTo(9);
+			softAssertions.assertThat(replica.getModel(MODEL).size()).as("Replica records").isEqualTo(10);
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_read_own_writes_from_the_primary() throws Exception {
+		try (FakeOdooServer primary = new FakeOdooServer(); FakeOdooServer replica = new FakeOdooServer()) {
+			primary.addModel(MODEL, 4, 10, 8);
+			replica.addModel(MODEL, 4, 10, 8);
+			primary.start();
+			replica.start();
+			Session session = primary.newSession();
+			session.addReplica("localhost", replica.getPort());
+			session.getRoutingPolicy().setReadYourWritesMillis(200);
+
+			session.executeCommand(MODEL, "unlink", new Object[] { new Object[] { 1 } });
+			int afterWrite = ((Object[]) session.executeCommand(MODEL, "search", ALL)).length;
+			Thread.sleep(250);
+			int afterWindow = ((Object[]) session.executeCommand(MODEL, "search", ALL)).length;
+			replica.stop();
+			int replicaDown = ((Object[]) session.executeCommand(MODEL, "search", ALL)).length;
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(afterWrite).as("Within window").isEqualTo(9);
+			softAssertions.assertThat(afterWindow).as("After window").isEqualTo(10);
+			softAssertions.assertThat(replicaDown).as("Replica down").isEqualTo(9);
+			softAssertions.assertThat(session.getEjectedNodes()).as("Ejected").isEmpty();
+			softAssertions.assertAll();
+		}
+	}
+
+	@Test
+	public void should_not_count_session_start_as_a_write() throws Exception {
+		try (FakeOdooServer primary = new FakeOdooServer(); FakeOdooServer replica = new FakeOdooServer()) {
+			primary.addModel(MODEL, 4, 10, 8);
+			replica.addModel(MODEL, 4, 10, 8);
+			primary.start();
+			replica.start();
+			Session session = new Session("localhost", primary.getPort(), FakeOdooServer.DATABASE,
+					FakeOdooServer.USER, FakeOdooServer.PASSWORD);
+			session.addReplica("localhost", replica.getPort());
+			session.getRoutingPolicy().setReadYourWritesMillis(60000);
+			session.startSession();
+
+			session.executeCommand(MODEL, "search", ALL);
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(replica.getCallCount(MODEL, "search")).as("Replica").isEqualTo(1);
+			softAssertions.assertThat(primary.getCallCount(MODEL, "search")).as("Primary").isZero();
+			softAssertions.assertAll();
+		}
+	}
+}
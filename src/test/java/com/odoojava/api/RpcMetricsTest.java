@@ -0,0 +1,103 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class RpcMetricsTest {
+
+	private static final String SEARCH_RESPONSE = "<?xml version='1.0'?><methodResponse><params><param><value><array><data>"
+			+ "<value><int>1</int></value><value><int>2</int></value><value><int>3</int></value>"
+			+ "</data></array></value></param></params></methodResponse>";
+
+	private static final String FAULT_RESPONSE = "<?xml version='1.0'?><methodResponse><fault><value><struct>"
+			+ "<member><name>faultCode</name><value><int>2</int></value></member>"
+			+ "<member><name>faultString</name><value><string>Access denied</string></value></member>"
+			+ "</struct></value></fault></methodResponse>";
+
+	private static HttpServer startServer(String response) throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			try (InputStream in = exchange.getRequestBody()) {
+				while (in.read(new byte[1024]) >= 0)
+					;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "text/xml");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	@Test
+	public void should_time_and_count_calls() throws Exception {
+		HttpServer server = startServer(SEARCH_RESPONSE);
+		try {
+			Session session = new Session("localhost", server.getAddress().getPort(), "db", "user", "password");
+			InProcessRpcMetrics metrics = new InProcessRpcMetrics();
+			session.setRpcMetrics(metrics);
+
+			session.executeCommand("res.partner", "search", new Object[] { new Object[0] });
+			session.executeCommand("res.partner", "search", new Object[] { new Object[0] });
+
+			InProcessRpcMetrics.Stats search = metrics.getOperation("RPC_OBJECT:res.partner.search");
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(metrics.getCallCount()).as("Calls").isEqualTo(2);
+			softAssertions.assertThat(metrics.getErrorCount()).as("Errors").isEqualTo(0);
+			softAssertions.assertThat(search.getRowCount()).as("Rows").isEqualTo(6);
+			softAssertions.assertThat(search.getResponseBytes()).as("Response bytes")
+					.isEqualTo(2 * SEARCH_RESPONSE.length());
+			softAssertions.assertThat(search.getRequestBytes()).as("Request bytes").isGreaterThan(100);
+			softAssertions.assertThat(search.getLatency().getCount()).as("Latencies").isEqualTo(2);
+			softAssertions.assertAll();
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void should_count_faults_by_code() throws Exception {
+		HttpServer server = startServer(FAULT_RESPONSE);
+		try {
+			Session session = new Session("localhost", server.getAddress().getPort(), "db", "user", "password");
+			InProcessRpcMetrics metrics = new InProcessRpcMetrics();
+			session.setRpcMetrics(metrics);
+
+			Throwable thrown = catchThrowable(() -> session.executeCommand("res.partner", "unlink", new Object[] { 1 }));
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(thrown).as("Fault").isInstanceOf(XmlRpcException.class);
+			softAssertions.assertThat(metrics.getErrorCount()).as("Errors").isEqualTo(1);
+			softAssertions.assertThat(metrics.getErrorCountByFaultCode()).as("Fault codes").containsEntry("2", 1L);
+			softAssertions.assertAll();
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void should_report_percentiles_within_bucket_precision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++)
+			histogram.record(i * 1000000L);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(histogram.getPercentileMillis(50)).as("Median").isBetween(50.0, 57.0);
+		softAssertions.assertThat(histogram.getPercentileMillis(100)).as("Max").isEqualTo(100.0);
+		softAssertions.assertThat(histogram.getMeanMillis()).as("Mean").isEqualTo(50.5);
+		softAssertions.assertAll();
+	}
+}
@@ -0,0 +1,123 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	@Test
+	public void should_share_one_call_between_concurrent_callers() throws Exception {
+		SingleFlight flight = new SingleFlight();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		List<Future<Object>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> flight.execute(new Object[] { "res.partner", "fields_get" }, () -> {
+					calls.incrementAndGet();
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new XmlRpcException("Interrupted", e);
+					}
+					HashMap<String, Object> row = new HashMap<>();
+					row.put("name", "Partner");
+					return new Object[] { row };
+				})));
+			}
+			// Give the callers time to join the call in flight
+			while (flight.getCoalescedCount() < 3)
+				Thread.sleep(5);
+			release.countDown();
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			Object first = results.get(0).get(5, TimeUnit.SECONDS);
+			Object second = results.get(1).get(5, TimeUnit.SECONDS);
+			softAssertions.assertThat(calls.get()).as("Server calls").isEqualTo(1);
+			softAssertions.assertThat(first).as("Shared result").isEqualTo(second);
+			softAssertions.assertThat(((Object[]) first)[0]).as("Own copy").isNotSameAs(((Object[]) second)[0]);
+			softAssertions.assertAll();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_not_keep_results_or_errors_after_the_call() throws Exception {
+		SingleFlight flight = new SingleFlight();
+
+		Throwable thrown = catchThrowable(() -> flight.execute(new Object[] { "key" }, () -> {
+			throw new XmlRpcException("Server unavailable");
+		}));
+		Object result = flight.execute(new Object[] { "key" }, () -> 42);
+
+		assertThat(thrown).as("Error").isInstanceOf(XmlRpcException.class);
+		assertThat(result).as("Next call").isEqualTo(42);
+	}
+
+	@Test
+	public void should_not_copy_a_result_nobody_joined() throws Exception {
+		SingleFlight flight = new SingleFlight();
+		Object[] rows = new Object[] { new HashMap<String, Object>() };
+
+		Object result = flight.execute(new Object[] { "res.partner", "read", new Object[] { 1 } }, () -> rows);
+
+		assertThat(result).as("Result").isSameAs(rows);
+	}
+
+	@Test
+	public void should_call_again_when_the_deadline_of_the_caller_passed() throws Exception {
+		SingleFlight flight = new SingleFlight();
+		AtomicInteger calls = new AtomicInteger();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<Throwable> leader = executor.submit(() -> {
+				try (Deadline deadline = Deadline.start(100, TimeUnit.MILLISECONDS)) {
+					return catchThrowable(() -> flight.execute(new Object[] { "key" }, () -> {
+						calls.incrementAndGet();
+						try {
+							Thread.sleep(300);
+						} catch (InterruptedException e) {
+							throw new XmlRpcException("Interrupted", e);
+						}
+						Deadline.check("reply");
+						return 41;
+					}));
+				}
+			});
+			while (calls.get() == 0)
+				Thread.sleep(5);
+			Object result = flight.execute(new Object[] { "key" }, () -> {
+				calls.incrementAndGet();
+				return 42;
+			});
+
+			SoftAssertions softAssertions = new SoftAssertions();
+			softAssertions.assertThat(leader.get(5, TimeUnit.SECONDS)).as("Error of the caller")
+					.isInstanceOf(DeadlineExceededException.class);
+			softAssertions.assertThat(result).as("Result of the joined caller").isEqualTo(42);
+			softAssertions.assertThat(flight.getCoalescedCount()).as("Coalesced calls").isEqualTo(1);
+			softAssertions.assertThat(calls.get()).as("Calls").isEqualTo(2);
+			softAssertions.assertAll();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ *   Copyright 2011, 2014 De Bortoli Wines Pty Limited (Australia)
+ *
+ *   This file is part of OdooJavaAPI.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrafficReplayTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static RowCollection readPartners(Session session) throws Exception {
+		ObjectAdapter adapter = session.getObjectAdapter("replay.partner");
+		FilterCollection filters = new FilterCollection();
+		filters.add("x_integer_1", "<=", 20);
+		return adapter.searchAndReadObject(filters, new String[] { "name", "x_char_0" });
+	}
+
+	@Test
+	public void should_replay_recorded_calls_without_a_server() throws Exception {
+		File file = folder.newFile("traffic.rpc");
+		int port;
+		RowCollection recordedRows;
+		try (FakeOdooServer server = new FakeOdooServer()) {
+			server.addModel("replay.partner", 8, 50, 16);
+			server.start();
+			port = server.getPort();
+
+			try (TrafficRecorder recorder = new TrafficRecorder(file)) {
+				Session session = new Session("localhost", port, FakeOdooServer.DATABASE, FakeOdooServer.USER,
+						FakeOdooServer.PASSWORD);
+				session.setTrafficRecorder(recorder);
+				session.startSession();
+				recordedRows = readPartners(session);
+			}
+		}
+
+		TrafficReplay replay = new TrafficReplay(file);
+		replay.setTimeScale(0);
+		Session session = new Session("localhost", port, FakeOdooServer.DATABASE, FakeOdooServer.USER,
+				FakeOdooServer.PASSWORD);
+		session.setTrafficReplay(replay);
+		ObjectAdapter.clearModelNameCache();
+		session.startSession();
+		RowCollection replayedRows = readPartners(session);
+		Throwable miss = catchThrowable(() -> session.executeCommand("replay.partner", "unlink", new Object[] { 1 }));
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(replayedRows).as("Rows").hasSameSizeAs(recordedRows).hasSize(20);
+		softAssertions.assertThat(replayedRows.get(3).get("x_char_0")).as("Value")
+				.isEqualTo(recordedRows.get(3).get("x_char_0"));
+		softAssertions.assertThat(miss).as("Not recorded").isInstanceOf(XmlRpcException.class);
+		softAssertions.assertThat(replay.getMissCount()).as("Misses").isEqualTo(1);
+		softAssertions.assertThat(replay.getReplayedCount()).as("Replayed").isEqualTo(replay.getExchangeCount());
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_mask_the_password_in_requests() {
+		byte[] request = "<param><value><string>s&amp;cret</string></value></param><value>s&amp;cret</value>"
+				.getBytes(StandardCharsets.UTF_8);
+
+		String masked = new String(TrafficRecorder.mask(request, "s&cret"), StandardCharsets.UTF_8);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(masked).as("Masked").doesNotContain("cret");
+		softAssertions.assertThat(masked).as("Mask")
+				.isEqualTo("<param><value><string>********</string></value></param><value>********</value>");
+		softAssertions.assertAll();
+	}
+}
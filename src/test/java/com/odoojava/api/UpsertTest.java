@@ -0,0 +1,243 @@
+package com.odoojava.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class UpsertTest {
+	private static final String TEST_MODEL_NAME = "res.partner";
+
+	/**
+	 * Command with one existing external ID (sync.existing -> 42) that hands
+	 * out new IDs from 500 onwards.
+	 */
+	private static class ExternalIdCommand extends OdooCommand {
+		int lookups = 0;
+		final List<Object[][]> updates = new ArrayList<>();
+		final List<Object[][]> creates = new ArrayList<>();
+		final List<Object[][]> registeredIds = new ArrayList<>();
+		final List<String[]> createColumns = new ArrayList<>();
+		int failingCreate = 0;
+
+		ExternalIdCommand() {
+			super(null);
+		}
+
+		@Override
+		public Response searchObject(String objectName, Object[] filter) {
+			return new Response(new Object[] { 1 });
+		}
+
+		@Override
+		public Object[] readObject(String objectName, Object[] ids, String[] fields) throws XmlRpcException {
+			HashMap<String, Object> row = new HashMap<>();
+			row.put("model", TEST_MODEL_NAME);
+			return new Object[] { row };
+		}
+
+		@Override
+		public Map<String, Object> getFields(String objectName, String[] filterFields) throws XmlRpcException {
+			HashMap<String, Object> name = new HashMap<>();
+			name.put("type", "char");
+			HashMap<String, Object> fields = new HashMap<>();
+			fields.put("name", name);
+			return fields;
+		}
+
+		@Override
+		public Object[] searchReadObject(String objectName, Object[] filter, String[] fields, int offset, int limit,
+				String order) throws XmlRpcException {
+			assertThat(objectName).isEqualTo("ir.model.data");
+			lookups++;
+			HashMap<String, Object> existing = new HashMap<>();
+			existing.put("module", "sync");
+			existing.put("name", "existing");
+			existing.put("res_id", 42);
+			// Matches module in (...) and name in (...) but was not asked for
+			HashMap<String, Object> otherCombination = new HashMap<>();
+			otherCombination.put("module", "__import__");
+			otherCombination.put("name", "existing");
+			otherCombination.put("res_id", 43);
+			return new Object[] { existing, otherCombination };
+		}
+
+		@Override
+		public Map<String, Object> load(String objectName, String[] fieldList, Object[][] rows)
+				throws XmlRpcException {
+			Object[] ids = new Object[rows.length];
+			if (objectName.equals("ir.model.data")) {
+				registeredIds.add(rows);
+			} else if (fieldList[0].equals(".id")) {
+				updates.add(rows);
+				for (int i = 0; i < rows.length; i++) {
+					ids[i] = rows[i][0];
+				}
+			} else {
+				creates.add(rows);
+				createColumns.add(fieldList);
+				if (creates.size() == failingCreate) {
+					HashMap<String, Object> message = new HashMap<>();
+					message.put("type", "error");
+					message.put("message", "Create failed");
+					Map<String, Object> result = new HashMap<>();
+					result.put("ids", false);
+					result.put("messages", new Object[] { message });
+					return result;
+				}
+				for (int i = 0; i < rows.length; i++) {
+					ids[i] = 500 + 10 * (creates.size() - 1) + i;
+				}
+			}
+			Map<String, Object> result = new HashMap<>();
+			result.put("ids", ids);
+			result.put("messages", new Object[0]);
+			return result;
+		}
+	}
+
+	/**
+	 * Server before V7: rows are imported with import_data, which matches them
+	 * by external ID and doesn't return database IDs. New records get IDs from
+	 * 600 onwards.
+	 */
+	private static class LegacyCommand extends ExternalIdCommand {
+		final List<String[]> importColumns = new ArrayList<>();
+		final List<Object[][]> imports = new ArrayList<>();
+		final Map<String, Integer> createdIds = new HashMap<>();
+
+		@Override
+		public Object[] importData(String objectName, String[] fieldList, Object[][] rows) throws XmlRpcException {
+			importColumns.add(fieldList);
+			imports.add(rows);
+			for (Object[] row : rows) {
+				String externalId = row[0].toString();
+				if (!externalId.equals("sync.existing") && !createdIds.containsKey(externalId))
+					createdIds.put(externalId, 600 + createdIds.size());
+			}
+			return new Object[] { rows.length, 0, "", "" };
+		}
+
+		@Override
+		public Object[] searchReadObject(String objectName, Object[] filter, String[] fields, int offset, int limit,
+				String order) throws XmlRpcException {
+			List<Object> results = new ArrayList<>(Arrays.asList(super.searchReadObject(objectName, filter, fields,
+					offset, limit, order)));
+			for (Map.Entry<String, Integer> created : createdIds.entrySet()) {
+				HashMap<String, Object> data = new HashMap<>();
+				int dot = created.getKey().indexOf('.');
+				data.put("module", created.getKey().substring(0, dot));
+				data.put("name", created.getKey().substring(dot + 1));
+				data.put("res_id", created.getValue());
+				results.add(data);
+			}
+			return results.toArray();
+		}
+	}
+
+	private static RowCollection newRows(ObjectAdapter adapter, String... externalIds) throws Exception {
+		FieldCollection fields = adapter.getFields();
+		HashMap<String, Object> xmlIdType = new HashMap<>();
+		xmlIdType.put("type", "char");
+		fields.add(new Field("xml_id", xmlIdType));
+
+		RowCollection rows = new RowCollection();
+		for (String externalId : externalIds) {
+			Row row = adapter.getNewRow(fields);
+			row.put("xml_id", externalId);
+			row.put("name", "Partner " + externalId);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Test
+	public void should_update_existing_and_create_new_rows_in_bulk() throws Exception {
+		ExternalIdCommand command = new ExternalIdCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		RowCollection rows = newRows(adapter, "new_one", "sync.existing", "sync.new_two");
+
+		ImportResult result = adapter.upsert(rows, "xml_id");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.lookups).as("ir.model.data lookups").isEqualTo(1);
+		softAssertions.assertThat(command.updates).as("Update calls").hasSize(1);
+		softAssertions.assertThat(command.updates.get(0)).as("Updated rows").hasSize(1);
+		softAssertions.assertThat(command.updates.get(0)[0]).as("Updated row").containsExactly(42,
+				"Partner sync.existing");
+		softAssertions.assertThat(command.creates).as("Create calls").hasSize(1);
+		softAssertions.assertThat(command.creates.get(0)).as("Created rows").hasSize(2);
+		softAssertions.assertThat(command.createColumns.get(0)).as("Create columns").containsExactly("id", "name");
+		softAssertions.assertThat(command.creates.get(0)).as("Created rows with external ids").containsExactly(
+				new Object[] { "__import__.new_one", "Partner new_one" },
+				new Object[] { "sync.new_two", "Partner sync.new_two" });
+		softAssertions.assertThat(result.getIds()).as("Ids").containsExactly(500, 42, 501);
+		softAssertions.assertThat(command.registeredIds).as("Separate external id registrations").isEmpty();
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_use_cache_for_repeated_syncs() throws Exception {
+		ExternalIdCommand command = new ExternalIdCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+
+		adapter.upsert(newRows(adapter, "sync.existing", "sync.created"), "xml_id");
+		ImportResult second = adapter.upsert(newRows(adapter, "sync.existing", "sync.created"), "xml_id");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.lookups).as("ir.model.data lookups").isEqualTo(1);
+		softAssertions.assertThat(command.creates).as("Create calls").hasSize(1);
+		softAssertions.assertThat(second.getIds()).as("Ids of second sync").containsExactly(42, 500);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_update_records_of_committed_chunks_after_a_failure() throws Exception {
+		ExternalIdCommand command = new ExternalIdCommand();
+		command.failingCreate = 2;
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("10.0"));
+		ImportOptions options = new ImportOptions();
+		options.setChunkSize(1);
+
+		Throwable failure = catchThrowable(
+				() -> adapter.upsert(newRows(adapter, "sync.first", "sync.second"), "xml_id", options));
+		command.failingCreate = 0;
+		ImportResult retry = adapter.upsert(newRows(adapter, "sync.first", "sync.second"), "xml_id", options);
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(failure).as("Failure").isInstanceOf(OdooApiException.class);
+		softAssertions.assertThat(command.updates).as("Committed chunk updated").hasSize(1);
+		softAssertions.assertThat(command.updates.get(0)[0]).as("Updated row").containsExactly(500,
+				"Partner sync.first");
+		softAssertions.assertThat(command.creates).as("Create calls").hasSize(3);
+		softAssertions.assertThat(retry.getIds()).as("Ids").containsExactly(500, 520);
+		softAssertions.assertAll();
+	}
+
+	@Test
+	public void should_send_the_external_ids_of_all_rows_before_v7() throws Exception {
+		LegacyCommand command = new LegacyCommand();
+		ObjectAdapter adapter = new ObjectAdapter(command, TEST_MODEL_NAME, new Version("6.1"));
+		RowCollection rows = newRows(adapter, "new_one", "sync.existing");
+
+		adapter.upsert(rows, "xml_id");
+
+		SoftAssertions softAssertions = new SoftAssertions();
+		softAssertions.assertThat(command.imports).as("Import calls").hasSize(1);
+		softAssertions.assertThat(command.importColumns.get(0)).as("Import columns").containsExactly("id", "name");
+		softAssertions.assertThat(command.imports.get(0)).as("Imported rows").containsExactly(
+				new Object[] { "__import__.new_one", "Partner new_one" },
+				new Object[] { "sync.existing", "Partner sync.existing" });
+		softAssertions.assertThat(rows.get(0).getID()).as("Created row id").isEqualTo(600);
+		softAssertions.assertThat(rows.get(1).getID()).as("Updated row id").isEqualTo(42);
+		softAssertions.assertAll();
+	}
+}